@@ -0,0 +1,64 @@
+# Fake News Detection API - Benchmark Script
+# This script downloads JMH, compiles the server sources together with the benchmarks and runs them
+#
+# Usage: .\bench.ps1 [JMH options]
+#   .\bench.ps1                          # all benchmarks, with the GC (allocation rate) profiler
+#   .\bench.ps1 DetectionBenchmark       # one benchmark class
+#   .\bench.ps1 -p textSize=1024         # one parameter value
+
+$ErrorActionPreference = "Stop"
+
+Write-Host "📊 Running Fake News Detection benchmarks..." -ForegroundColor Green
+
+# Benchmarks share the server's Gson dependency
+if (-not (Test-Path "lib\gson-2.10.1.jar")) {
+    Write-Host "❌ Gson dependency not found. Please run .\build.ps1 first" -ForegroundColor Red
+    exit 1
+}
+
+# Create benchmark lib directory
+if (-not (Test-Path "lib\bench")) {
+    New-Item -ItemType Directory -Path "lib\bench"
+    Write-Host "📁 Created lib\bench directory"
+}
+
+# Download JMH and its dependencies if not present
+$jmhJars = @{
+    "jmh-core-1.37.jar" = "https://repo1.maven.org/maven2/org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37.jar"
+    "jmh-generator-annprocess-1.37.jar" = "https://repo1.maven.org/maven2/org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37.jar"
+    "jopt-simple-5.0.4.jar" = "https://repo1.maven.org/maven2/net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar"
+    "commons-math3-3.6.1.jar" = "https://repo1.maven.org/maven2/org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+}
+foreach ($jar in $jmhJars.Keys) {
+    $path = "lib\bench\$jar"
+    if (-not (Test-Path $path)) {
+        Write-Host "📦 Downloading $jar..."
+        try {
+            Invoke-WebRequest -Uri $jmhJars[$jar] -OutFile $path
+        } catch {
+            Write-Host "❌ Failed to download $($jar): $($_.Exception.Message)" -ForegroundColor Red
+            Write-Host "💡 Please manually download $jar to the lib\bench\ directory" -ForegroundColor Yellow
+            exit 1
+        }
+    }
+}
+
+# Create benchmark classes directory
+if (-not (Test-Path "bench-classes")) {
+    New-Item -ItemType Directory -Path "bench-classes"
+    Write-Host "📁 Created bench-classes directory"
+}
+
+# Compile server and benchmark sources; the JMH annotation processor generates the harness
+Write-Host "🔨 Compiling benchmarks..."
+try {
+    javac -encoding UTF-8 -cp "lib\*;lib\bench\*" -d bench-classes src\*.java bench\bench\*.java
+    Write-Host "✅ Compilation successful!"
+} catch {
+    Write-Host "❌ Compilation failed: $($_.Exception.Message)" -ForegroundColor Red
+    exit 1
+}
+
+# Run benchmarks; the GC profiler reports allocation rate per operation
+Write-Host ""
+java -cp "bench-classes;lib\*;lib\bench\*" org.openjdk.jmh.Main -prof gc @args
@@ -0,0 +1,80 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Deterministic synthetic articles and indicator sets shared by the benchmarks
+ */
+final class BenchmarkData {
+
+    private static final String[] NEWS_PHRASES = {
+        "according to", "research shows", "officials said", "shocking", "secret",
+        "miracle cure", "the report states", "you won't believe"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static String[] vocabulary(Random rand, int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            int length = 3 + rand.nextInt(8);
+            StringBuilder word = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + rand.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    /**
+     * Distinct phrases of one to three words; IndicatorMatcher refuses duplicates
+     */
+    static List<String> indicators(Random rand, String[] vocabulary, int count) {
+        Set<String> indicators = new LinkedHashSet<>();
+        while (indicators.size() < count) {
+            int words = 1 + rand.nextInt(3);
+            StringBuilder phrase = new StringBuilder();
+            for (int j = 0; j < words; j++) {
+                if (j > 0) {
+                    phrase.append(' ');
+                }
+                phrase.append(vocabulary[rand.nextInt(vocabulary.length)]);
+            }
+            indicators.add(phrase.toString());
+        }
+        return new ArrayList<>(indicators);
+    }
+
+    /**
+     * Text of exactly {@code size} chars with indicators sprinkled in, in mixed case.
+     */
+    static String text(Random rand, String[] vocabulary, List<String> indicators, int size) {
+        StringBuilder text = new StringBuilder(size + 64);
+        while (text.length() < size) {
+            if (rand.nextInt(50) == 0) {
+                text.append(indicators.get(rand.nextInt(indicators.size())).toUpperCase(Locale.ROOT));
+            } else {
+                text.append(vocabulary[rand.nextInt(vocabulary.length)]);
+            }
+            text.append(rand.nextInt(12) == 0 ? ". " : " ");
+        }
+        text.setLength(size);
+        return text.toString();
+    }
+
+    /**
+     * News-like article that exercises the built-in indicator lists.
+     */
+    static String article(int size) {
+        Random rand = new Random(size);
+        List<String> phrases = new ArrayList<>(List.of(NEWS_PHRASES));
+        return text(rand, vocabulary(rand, 4_000), phrases, size);
+    }
+}
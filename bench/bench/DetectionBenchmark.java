@@ -0,0 +1,78 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detection latency benchmark - FakeNewsAPI.performDetection end to end
+ *
+ * Measures one detection (normalization, classifier and result construction) for 1 KB,
+ * 100 KB and 5 MB articles, with the heuristic and with a linear model of
+ * production size. Caches are bypassed, so every call is a full score.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DetectionBenchmark {
+
+    @Param({"1024", "102400", "5242880"})
+    public int textSize;
+
+    @Param({"heuristic", "linear"})
+    public String classifier;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkData.article(textSize);
+        if ("linear".equals(classifier)) {
+            useRandomModel(20);
+        } else {
+            ServerInternals.useHeuristic();
+        }
+    }
+
+    @Benchmark
+    public Object performDetection() {
+        return ServerInternals.performDetection(text);
+    }
+
+    /**
+     * The TextNormalizer pass alone, the share of performDetection every classifier pays
+     */
+    @Benchmark
+    public int normalize() {
+        return ServerInternals.normalizedTokens(text);
+    }
+
+    /**
+     * Untrained model with the same shape as a real one; latency does not depend on weight values.
+     */
+    static void useRandomModel(int bits) {
+        int buckets = ServerInternals.featureBuckets(bits);
+        Random rand = new Random(7);
+        float[] idf = new float[buckets];
+        float[] weights = new float[buckets];
+        for (int i = 0; i < buckets; i++) {
+            idf[i] = 1 + rand.nextFloat() * 5;
+            weights[i] = (float) rand.nextGaussian() * 0.1f;
+        }
+        ServerInternals.useLinearModel(bits, idf, weights);
+    }
+}
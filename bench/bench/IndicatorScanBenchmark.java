@@ -0,0 +1,83 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indicator scan benchmark - IndicatorMatcher vs the original contains loop
+ *
+ * Compares the compiled Aho-Corasick scan against the previous
+ * toLowerCase() + String.contains() loop across article and indicator-set
+ * sizes. Setup checks that both agree on which indicators matched.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class IndicatorScanBenchmark {
+
+    @Param({"1024", "102400", "5242880"})
+    public int textSize;
+
+    @Param({"16", "1000", "5000"})
+    public int indicatorCount;
+
+    private List<String> indicators;
+    private Object matcher;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        Random rand = new Random(42);
+        String[] vocabulary = BenchmarkData.vocabulary(rand, 4_000);
+        indicators = BenchmarkData.indicators(rand, vocabulary, indicatorCount);
+        matcher = ServerInternals.compileMatcher(indicators);
+        text = BenchmarkData.text(rand, vocabulary, indicators, textSize);
+        verify();
+    }
+
+    @Benchmark
+    public int matcher() {
+        return ServerInternals.distinctMatches(matcher, text);
+    }
+
+    /**
+     * The original performDetection loop, kept here as the baseline
+     */
+    @Benchmark
+    public int containsLoop() {
+        String lowerText = text.toLowerCase();
+        int score = 0;
+        for (String indicator : indicators) {
+            if (lowerText.contains(indicator)) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    private void verify() {
+        boolean[] matched = ServerInternals.matched(matcher, text);
+        String lowerText = text.toLowerCase();
+        for (int id = 0; id < indicators.size(); id++) {
+            if (lowerText.contains(indicators.get(id)) != matched[id]) {
+                throw new IllegalStateException("Mismatch for indicator '" + indicators.get(id) + "'");
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON benchmark - request body decoding and result encoding
+ *
+ * Compares the streaming "text" extraction used by DetectHandler with the
+ * original readLine + JsonParser DOM path, and Gson encoding of a
+ * DetectionResult into UTF-8 bytes with the pooled Utf8JsonWriter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonBenchmark {
+
+    @Param({"1024", "102400", "5242880"})
+    public int textSize;
+
+    private final Gson gson = new Gson();
+    private byte[] body;
+    private Object result;
+
+    @Setup
+    public void setUp() {
+        String article = BenchmarkData.article(textSize);
+        JsonObject request = new JsonObject();
+        request.addProperty("source", "wire");
+        request.addProperty("text", article);
+        body = gson.toJson(request).getBytes(StandardCharsets.UTF_8);
+        result = ServerInternals.withId(ServerInternals.performDetection(article), "4b56b4ca9ecf760be17cd4eb69514858");
+    }
+
+    @Benchmark
+    public String decodeStreaming() throws IOException {
+        return ServerInternals.extractTextField(
+            new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The original readRequestBody + JsonParser path, kept here as the baseline
+     */
+    @Benchmark
+    public String decodeDom() throws IOException {
+        StringBuilder requestBody = new StringBuilder();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                requestBody.append(line);
+            }
+        }
+        return JsonParser.parseString(requestBody.toString()).getAsJsonObject().get("text").getAsString();
+    }
+
+    /**
+     * The original gson.toJson + getBytes response path, kept here as the baseline
+     */
+    @Benchmark
+    public byte[] encodeGson() {
+        return gson.toJson(result).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int encodeDirect() {
+        return ServerInternals.encodeDirect(result);
+    }
+}
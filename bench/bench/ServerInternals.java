@@ -0,0 +1,242 @@
+package bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * The package-private server internals the benchmarks measure
+ *
+ * JMH only generates harness code for benchmarks in a named package, and a
+ * named package cannot refer to classes in the default package, where the
+ * server lives. The server and the benchmarks share the unnamed module, so
+ * the internals are bound here once through a private lookup; the handles
+ * are constants the JIT inlines, so a call costs what a direct call does.
+ * Server types the benchmarks cannot name are passed around as Object.
+ */
+public final class ServerInternals {
+
+    private static final MethodHandle PERFORM_DETECTION;
+    private static final MethodHandle WITH_ID;
+    private static final MethodHandle WRITE_JSON;
+    private static final MethodHandle EXTRACT_TEXT_FIELD;
+    private static final MethodHandle SET_CLASSIFIER;
+    private static final MethodHandle NEW_HEURISTIC;
+    private static final MethodHandle NEW_FEATURE_HASHER;
+    private static final MethodHandle BUCKETS;
+    private static final MethodHandle NEW_LINEAR;
+    private static final MethodHandle NORMALIZE;
+    private static final MethodHandle TOKEN_COUNT;
+    private static final MethodHandle COMPILE;
+    private static final MethodHandle SCAN;
+    private static final MethodHandle DISTINCT;
+    private static final MethodHandle MATCHED;
+    private static final MethodHandle MATCHER_SIZE;
+    private static final MethodHandle ACQUIRE;
+    private static final MethodHandle JSON_LENGTH;
+    private static final MethodHandle RELEASE;
+
+    static {
+        try {
+            Class<?> api = Class.forName("FakeNewsAPI");
+            Class<?> result = Class.forName("FakeNewsAPI$DetectionResult");
+            Class<?> classifier = Class.forName("Classifier");
+            Class<?> hasher = Class.forName("FeatureHasher");
+            Class<?> normalizer = Class.forName("TextNormalizer");
+            Class<?> normalized = Class.forName("TextNormalizer$Normalized");
+            Class<?> matcher = Class.forName("IndicatorMatcher");
+            Class<?> matches = Class.forName("IndicatorMatcher$Matches");
+            Class<?> writer = Class.forName("Utf8JsonWriter");
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            MethodHandles.Lookup in = MethodHandles.privateLookupIn(api, lookup);
+            PERFORM_DETECTION = in.findStatic(api, "performDetection", MethodType.methodType(result, String.class));
+            EXTRACT_TEXT_FIELD = in.findStatic(api, "extractTextField", MethodType.methodType(String.class, Reader.class));
+            SET_CLASSIFIER = in.findStaticSetter(api, "classifier", classifier);
+            in = MethodHandles.privateLookupIn(result, lookup);
+            WITH_ID = in.findVirtual(result, "withId", MethodType.methodType(result, String.class));
+            WRITE_JSON = in.findVirtual(result, "writeJson", MethodType.methodType(void.class, writer));
+
+            Class<?> heuristic = Class.forName("HeuristicClassifier");
+            NEW_HEURISTIC = MethodHandles.privateLookupIn(heuristic, lookup)
+                .findConstructor(heuristic, MethodType.methodType(void.class));
+            in = MethodHandles.privateLookupIn(hasher, lookup);
+            NEW_FEATURE_HASHER = in.findConstructor(hasher, MethodType.methodType(void.class, int.class, boolean.class));
+            BUCKETS = in.findVirtual(hasher, "buckets", MethodType.methodType(int.class));
+            Class<?> linear = Class.forName("LinearClassifier");
+            NEW_LINEAR = MethodHandles.privateLookupIn(linear, lookup).findConstructor(linear, MethodType.methodType(
+                void.class, hasher, float[].class, float[].class, float.class, long.class, long.class, String.class));
+
+            NORMALIZE = MethodHandles.privateLookupIn(normalizer, lookup)
+                .findStatic(normalizer, "normalize", MethodType.methodType(normalized, CharSequence.class));
+            TOKEN_COUNT = MethodHandles.privateLookupIn(normalized, lookup)
+                .findVirtual(normalized, "tokenCount", MethodType.methodType(int.class));
+
+            in = MethodHandles.privateLookupIn(matcher, lookup);
+            COMPILE = in.findStatic(matcher, "compile", MethodType.methodType(matcher, List.class));
+            SCAN = in.findVirtual(matcher, "scan", MethodType.methodType(matches, CharSequence.class));
+            MATCHER_SIZE = in.findVirtual(matcher, "size", MethodType.methodType(int.class));
+            in = MethodHandles.privateLookupIn(matches, lookup);
+            DISTINCT = in.findVirtual(matches, "distinct", MethodType.methodType(int.class, int.class, int.class));
+            MATCHED = in.findVirtual(matches, "matched", MethodType.methodType(boolean.class, int.class));
+
+            in = MethodHandles.privateLookupIn(writer, lookup);
+            ACQUIRE = in.findStatic(writer, "acquire", MethodType.methodType(writer));
+            JSON_LENGTH = in.findVirtual(writer, "length", MethodType.methodType(int.class));
+            RELEASE = in.findVirtual(writer, "release", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private ServerInternals() {
+    }
+
+    /**
+     * FakeNewsAPI.performDetection, a DetectionResult
+     */
+    public static Object performDetection(String text) {
+        try {
+            return PERFORM_DETECTION.invoke(text);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * DetectionResult.withId
+     */
+    public static Object withId(Object result, String id) {
+        try {
+            return WITH_ID.invoke(result, id);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Encodes the result with a pooled Utf8JsonWriter and returns the encoded length
+     */
+    public static int encodeDirect(Object result) {
+        try {
+            Object json = ACQUIRE.invoke();
+            try {
+                WRITE_JSON.invoke(result, json);
+                return (int) JSON_LENGTH.invoke(json);
+            } finally {
+                RELEASE.invoke(json);
+            }
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * FakeNewsAPI.extractTextField, the streaming decode DetectHandler uses
+     */
+    public static String extractTextField(Reader body) throws IOException {
+        try {
+            return (String) EXTRACT_TEXT_FIELD.invoke(body);
+        } catch (IOException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Makes the built-in heuristic the server's classifier
+     */
+    public static void useHeuristic() {
+        try {
+            SET_CLASSIFIER.invoke(NEW_HEURISTIC.invoke());
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Number of buckets of a FeatureHasher with 2^bits and bigrams
+     */
+    public static int featureBuckets(int bits) {
+        try {
+            return (int) BUCKETS.invoke(NEW_FEATURE_HASHER.invoke(bits, true));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Makes a linear model over a FeatureHasher with 2^bits and bigrams the server's classifier
+     */
+    public static void useLinearModel(int bits, float[] idf, float[] weights) {
+        try {
+            Object hasher = NEW_FEATURE_HASHER.invoke(bits, true);
+            SET_CLASSIFIER.invoke(NEW_LINEAR.invoke(hasher, idf, weights, 0f, 0L, 0L, "benchmark"));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Token count of TextNormalizer.normalize, the pass every classifier pays
+     */
+    public static int normalizedTokens(CharSequence text) {
+        try {
+            return (int) TOKEN_COUNT.invoke(NORMALIZE.invoke(text));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * IndicatorMatcher.compile
+     */
+    public static Object compileMatcher(List<String> phrases) {
+        try {
+            return COMPILE.invoke(phrases);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Scans the text and returns the number of distinct phrases found
+     */
+    public static int distinctMatches(Object matcher, CharSequence text) {
+        try {
+            return (int) DISTINCT.invoke(SCAN.invoke(matcher, text), 0, (int) MATCHER_SIZE.invoke(matcher));
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Scans the text and returns which phrase ids were found
+     */
+    public static boolean[] matched(Object matcher, CharSequence text) {
+        try {
+            Object matches = SCAN.invoke(matcher, text);
+            boolean[] matched = new boolean[(int) MATCHER_SIZE.invoke(matcher)];
+            for (int id = 0; id < matched.length; id++) {
+                matched[id] = (boolean) MATCHED.invoke(matches, id);
+            }
+            return matched;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IllegalStateException(e);
+    }
+}
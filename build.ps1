@@ -36,7 +36,7 @@ if (-not (Test-Path $gsonJar)) {
 # Compile Java source
 Write-Host "🔨 Compiling Java source..."
 try {
-    javac -cp "lib\*" -d classes src\FakeNewsAPI.java
+    javac -cp "lib\*" -d classes src\*.java
     Write-Host "✅ Compilation successful!"
 } catch {
     Write-Host "❌ Compilation failed: $($_.Exception.Message)" -ForegroundColor Red
@@ -24,7 +24,7 @@ Write-Host "🛑 Press Ctrl+C to stop the server" -ForegroundColor Yellow
 Write-Host ""
 
 try {
-    java -cp "classes;lib\*" FakeNewsAPI
+    java -cp "classes;lib\*" FakeNewsAPI @args
 } catch {
     Write-Host "❌ Failed to start server: $($_.Exception.Message)" -ForegroundColor Red
     exit 1
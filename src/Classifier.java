@@ -0,0 +1,20 @@
+/**
+ * Scoring engine behind FakeNewsAPI.performDetection
+ *
+ * Implementations must be thread-safe and deterministic: the same text
+ * always yields the same probability.
+ */
+interface Classifier {
+
+    /**
+     * Probability in [0, 1] that the text is fake news. performDetection
+     * passes a TextNormalizer.Normalized; implementations that tokenize
+     * should go through TextNormalizer.normalize, which returns it as is.
+     */
+    double fakeProbability(CharSequence text);
+
+    /**
+     * Short description reported on /health.
+     */
+    String name();
+}
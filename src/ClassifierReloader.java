@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Builds the classifier from its model or lexicon file and swaps in new
+ * versions while the server is running
+ *
+ * A replacement is loaded and compiled completely on the reloading thread
+ * and only then handed to the publish callback, which installs it with a
+ * single volatile write. Requests see either the old classifier or the new
+ * one, never a half-built state, and never pay for the compile. Reloads
+ * are triggered by a WatchService on the files' directories or by the
+ * admin endpoint; they run one at a time, and a file that fails to load
+ * leaves the current classifier in place.
+ */
+final class ClassifierReloader {
+
+    // Editors and copies often write a file in several steps; wait until it settles
+    private static final long SETTLE_MILLIS = 500;
+
+    private final Path model;
+    private final Path lexicon;
+    private final Consumer<Classifier> publish;
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile WatchService watcher;
+
+    ClassifierReloader(Path model, Path lexicon, Consumer<Classifier> publish) {
+        this.model = model != null ? model.toAbsolutePath().normalize() : null;
+        this.lexicon = lexicon != null ? lexicon.toAbsolutePath().normalize() : null;
+        this.publish = publish;
+    }
+
+    /**
+     * Builds a classifier from the configured files without publishing it:
+     * the linear model if one is set, else the lexicon, else the built-in lists.
+     */
+    Classifier load() throws IOException {
+        if (model != null) {
+            return LinearClassifier.load(model);
+        }
+        if (lexicon != null) {
+            return HeuristicClassifier.load(lexicon);
+        }
+        return new HeuristicClassifier();
+    }
+
+    /**
+     * Loads the files again and publishes the result. On failure the current
+     * classifier stays in place and the exception is rethrown.
+     */
+    synchronized Classifier reload() throws IOException {
+        Classifier next;
+        try {
+            next = load();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+        publish.accept(next);
+        reloads.increment();
+        return next;
+    }
+
+    /**
+     * Files a reload reads, in order of precedence.
+     */
+    List<Path> files() {
+        List<Path> files = new ArrayList<>(2);
+        if (model != null) {
+            files.add(model);
+        }
+        if (lexicon != null) {
+            files.add(lexicon);
+        }
+        return files;
+    }
+
+    /**
+     * Starts a daemon thread that reloads whenever one of the files changes.
+     * Does nothing when the built-in lists are in use.
+     */
+    void watch() throws IOException {
+        if (files().isEmpty()) {
+            return;
+        }
+        WatchService service = FileSystems.getDefault().newWatchService();
+        Set<Path> directories = new LinkedHashSet<>();
+        for (Path file : files()) {
+            directories.add(file.getParent());
+        }
+        for (Path directory : directories) {
+            // Atomic replacements (write to a temp file, then move) show up as CREATE
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        watcher = service;
+        Thread thread = new Thread(() -> watchLoop(service), "classifier-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void close() {
+        WatchService service = watcher;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    private void watchLoop(WatchService service) {
+        try {
+            while (true) {
+                boolean changed = drain(service.take());
+                WatchKey key;
+                while ((key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (!changed) {
+                    continue;
+                }
+                try {
+                    Classifier next = reload();
+                    System.out.println("🔄 Classifier reloaded: " + next.name());
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("❌ Classifier reload failed, keeping the current one: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Consumes the key's events; true if any of them touched a watched file.
+     */
+    private boolean drain(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            } else if (files().contains(directory.resolve((Path) event.context()))) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    long reloads() {
+        return reloads.sum();
+    }
+
+    long failures() {
+        return failures.sum();
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Global limit on concurrent detection requests that adapts to latency
+ *
+ * The limit follows AIMD, as TCP congestion control does: every request
+ * that finishes within the latency target while the limit is in use raises
+ * it by 1/limit, about one per limit's worth of requests, and a request
+ * over the target cuts it by BACKOFF. One burst of slow requests usually
+ * shares a cause, so the limit is cut at most once per target interval.
+ * The limit thereby settles just below the concurrency at which latency
+ * starts to climb, and requests beyond it are refused instead of queueing
+ * behind the ones already running.
+ *
+ * The limit is a double stored as bits in an AtomicLong and the in-flight
+ * count an AtomicInteger, both updated by compareAndSet.
+ */
+final class ConcurrencyLimiter {
+
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+    private final LongAdder limited = new LongAdder();
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || targetNanos <= 0) {
+            throw new IllegalArgumentException("Need 1 <= concurrency-min <= concurrency-max and a positive latency target");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetNanos = targetNanos;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.min(Math.max(initialLimit, minLimit), maxLimit)));
+    }
+
+    /**
+     * Takes a slot if fewer than limit() requests are in flight.
+     */
+    boolean tryAcquire() {
+        int limit = limit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                limited.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot without adjusting the limit, for requests whose
+     * latency says nothing about load (e.g. ones that failed early).
+     */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Frees the slot and adjusts the limit by the request's latency.
+     */
+    void release(long latencyNanos, long now) {
+        int running = inFlight.getAndDecrement();
+        if (latencyNanos > targetNanos) {
+            long decreased = lastDecrease.get();
+            if (now - decreased > targetNanos && lastDecrease.compareAndSet(decreased, now)) {
+                update(-1);
+            }
+        } else if (running * 2 >= limit()) {
+            // An idle server says nothing about the capacity, so only a limit in use grows
+            update(1);
+        }
+    }
+
+    private void update(int direction) {
+        while (true) {
+            long bits = limitBits.get();
+            double limit = Double.longBitsToDouble(bits);
+            double next = direction > 0 ? limit + 1.0 / limit : limit * BACKOFF;
+            next = Math.min(Math.max(next, minLimit), maxLimit);
+            if (next == limit || limitBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    int limit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    long limited() {
+        return limited.sum();
+    }
+}
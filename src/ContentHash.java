@@ -0,0 +1,136 @@
+/**
+ * 128-bit content hash of normalized article text
+ *
+ * MurmurHash3 (x64, 128-bit) computed over the UTF-16 code units of the text
+ * after trimming, collapsing whitespace runs to a single space and folding
+ * case. Normalization happens on the fly while hashing, so no normalized
+ * copy of the article is ever built.
+ */
+final class ContentHash {
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    final long high;
+    final long low;
+
+    private ContentHash(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    static ContentHash of(CharSequence text) {
+        long h1 = 0;
+        long h2 = 0;
+        long k1 = 0;
+        long k2 = 0;
+        int inBlock = 0;  // chars collected in the current 16-byte block
+        long length = 0;  // normalized length in chars
+
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            for (int emit = pendingSpace ? 2 : 1; emit > 0; emit--) {
+                char out = emit == 2 ? ' ' : fold(c);
+                if (inBlock < 4) {
+                    k1 |= (long) out << (16 * inBlock);
+                } else {
+                    k2 |= (long) out << (16 * (inBlock - 4));
+                }
+                length++;
+                if (++inBlock == 8) {
+                    h1 ^= mixK1(k1);
+                    h1 = Long.rotateLeft(h1, 27) + h2;
+                    h1 = h1 * 5 + 0x52DCE729;
+                    h2 ^= mixK2(k2);
+                    h2 = Long.rotateLeft(h2, 31) + h1;
+                    h2 = h2 * 5 + 0x38495AB5;
+                    k1 = 0;
+                    k2 = 0;
+                    inBlock = 0;
+                }
+            }
+            pendingSpace = false;
+            started = true;
+        }
+
+        // Tail
+        if (inBlock > 4) {
+            h2 ^= mixK2(k2);
+        }
+        if (inBlock > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        // Finalization
+        long bytes = length * 2;
+        h1 ^= bytes;
+        h2 ^= bytes;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new ContentHash(h1, h2);
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * 32 lowercase hex digits.
+     */
+    String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ContentHash)) {
+            return false;
+        }
+        ContentHash that = (ContentHash) other;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
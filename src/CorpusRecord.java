@@ -0,0 +1,153 @@
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One article read from a JSONL or CSV corpus line
+ *
+ * JSONL lines are objects with "text" and optional "label" and "id" fields.
+ * CSV lines are "label,text[,id]" with RFC 4180 quoting; a quoted field may
+ * not span lines since records are split on newlines. A holder is reused
+ * line after line by a single thread.
+ */
+final class CorpusRecord {
+
+    static final int UNLABELED = -1;
+
+    String text;
+    String id;
+    int label = UNLABELED;
+
+    private final List<String> fields = new ArrayList<>(4);
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * Parses a line in the given format ("jsonl" or "csv"). Returns false if
+     * the line has no usable text, e.g. a CSV header or a malformed record.
+     */
+    boolean parse(CharBuffer line, String format) {
+        text = null;
+        id = null;
+        label = UNLABELED;
+        try {
+            if ("csv".equals(format)) {
+                parseCsv(line);
+            } else {
+                parseJson(line);
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return false;
+        }
+        return text != null && !text.isBlank();
+    }
+
+    private void parseJson(CharBuffer line) throws IOException {
+        try (JsonReader json = new JsonReader(new CharBufferReader(line))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.skipValue();
+                } else if ("text".equals(name)) {
+                    text = json.nextString();
+                } else if ("id".equals(name)) {
+                    id = json.nextString();
+                } else if ("label".equals(name)) {
+                    label = json.peek() == JsonToken.BOOLEAN
+                        ? (json.nextBoolean() ? 1 : 0)
+                        : parseLabel(json.nextString());
+                } else {
+                    json.skipValue();
+                }
+            }
+        }
+    }
+
+    private void parseCsv(CharBuffer line) {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        for (int i = 0, n = line.length(); i < n; i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < n && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+
+        if (fields.size() < 2) {
+            return;
+        }
+        label = parseLabel(fields.get(0));
+        text = fields.get(1);
+        if (fields.size() > 2) {
+            id = fields.get(2);
+        }
+    }
+
+    /**
+     * Accepts fake/real, 1/0 and true/false (fake is 1). An empty label means
+     * unlabeled; anything else is rejected.
+     */
+    static int parseLabel(String value) {
+        String label = value.trim().toLowerCase();
+        switch (label) {
+            case "":
+                return UNLABELED;
+            case "fake":
+            case "1":
+            case "true":
+                return 1;
+            case "real":
+            case "0":
+            case "false":
+                return 0;
+            default:
+                throw new NumberFormatException("Unknown label: " + value);
+        }
+    }
+
+    /**
+     * Reader over a CharBuffer that consumes a duplicate, leaving the source untouched.
+     */
+    private static final class CharBufferReader extends Reader {
+        private final CharBuffer chars;
+
+        CharBufferReader(CharBuffer chars) {
+            this.chars = chars.duplicate();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (!chars.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, chars.remaining());
+            chars.get(buffer, offset, n);
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Offline classification of a whole JSONL or CSV news dump
+ *
+ * The dump is memory-mapped and split at record boundaries like the
+ * training corpus. Worker threads score chunks with the same classifier
+ * and result format as /detect and encode each chunk's results into its
+ * own buffer. The calling thread writes the buffers to the output file in
+ * input order. A window of chunk permits bounds how far the workers may
+ * run ahead of the writer, so memory stays flat however large the dump is.
+ *
+ * Each output line is {"offset":..., "sourceId":..., "label":..., "result":{...}},
+ * where offset is the record's byte offset in the dump and sourceId and
+ * label are copied from the record when present.
+ *
+ * Usage:
+ *   java -cp "classes;lib/*" FakeNewsAPI --classify dump.jsonl [--out results.jsonl]
+ *        [--model model.bin] [--format jsonl|csv] [--threads N] [--chunk-mb 16]
+ *        [--window 2N]
+ */
+final class DumpClassifier {
+
+    private static final long PROGRESS_INTERVAL_NANOS = 5_000_000_000L;
+
+    private static final byte[] OFFSET = Utf8JsonWriter.literal("{\"offset\":");
+    private static final byte[] SOURCE_ID = Utf8JsonWriter.literal(",\"sourceId\":");
+    private static final byte[] LABEL_FAKE = Utf8JsonWriter.literal(",\"label\":\"Fake\"");
+    private static final byte[] LABEL_REAL = Utf8JsonWriter.literal(",\"label\":\"Real\"");
+    private static final byte[] RESULT = Utf8JsonWriter.literal(",\"result\":");
+
+    private final FileChannel channel;
+    private final List<MappedRecords.Chunk> chunks;
+    private final String format;
+    private final int threads;
+    private final int window;
+
+    DumpClassifier(FileChannel channel, List<MappedRecords.Chunk> chunks, String format, int threads, int window) {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.format = format;
+        this.threads = threads;
+        this.window = window;
+    }
+
+    /**
+     * Runs the classify mode with FakeNewsAPI's classifier already loaded.
+     */
+    static void run(ServerConfig options) throws Exception {
+        String input = options.classifyInput();
+        Path inputPath = Paths.get(input);
+        Path outputPath = Paths.get(options.get("out", input + ".results.jsonl"));
+        String format = options.get("format", input.toLowerCase().endsWith(".csv") ? "csv" : "jsonl");
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        long chunkBytes = options.getLong("chunk-mb", 16) * 1024 * 1024;
+        int window = options.getInt("window", 2 * threads);
+        if (threads < 1 || window < 1) {
+            throw new IllegalArgumentException("threads and window must be positive");
+        }
+
+        try (FileChannel channel = FileChannel.open(inputPath, StandardOpenOption.READ);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputPath), 256 * 1024)) {
+            List<MappedRecords.Chunk> chunks = MappedRecords.split(channel, chunkBytes);
+            System.out.printf("📚 Dump: %s (%s, %.1f MB, %d chunks, %d threads, classifier %s)%n",
+                inputPath, format, channel.size() / 1e6, chunks.size(), threads, FakeNewsAPI.classifier.name());
+
+            Totals totals = new DumpClassifier(channel, chunks, format, threads, window).classify(out);
+            System.out.printf("💾 Results written to %s%n", outputPath);
+            if (totals.labeled > 0) {
+                System.out.printf("🎯 Accuracy on %d labeled records: %.4f%n",
+                    totals.labeled, totals.correct / (double) totals.labeled);
+            }
+        }
+    }
+
+    /**
+     * Scores every chunk and writes the results in input order.
+     */
+    Totals classify(OutputStream out) throws Exception {
+        List<CompletableFuture<ChunkResult>> results = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+        Semaphore permits = new Semaphore(window);
+        AtomicInteger nextChunk = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                MappedRecords.LineDecoder decoder = new MappedRecords.LineDecoder();
+                CorpusRecord record = new CorpusRecord();
+                try {
+                    while (true) {
+                        // Taking the permit before the index keeps the permits on the lowest
+                        // outstanding chunks, so the writer can always make progress
+                        permits.acquire();
+                        int index = nextChunk.getAndIncrement();
+                        if (index >= chunks.size()) {
+                            permits.release();
+                            return;
+                        }
+                        try {
+                            results.get(index).complete(score(chunks.get(index), decoder, record));
+                        } catch (IOException | RuntimeException e) {
+                            results.get(index).completeExceptionally(e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        Totals totals = new Totals();
+        long started = System.nanoTime();
+        long lastReport = started;
+        long bytesDone = 0;
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                ChunkResult chunk;
+                try {
+                    chunk = results.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Chunk " + i + " at offset " + chunks.get(i).start + " failed", e.getCause());
+                }
+                chunk.json.writeTo(out);
+                permits.release();
+                totals.add(chunk);
+                bytesDone += chunks.get(i).length;
+
+                long now = System.nanoTime();
+                if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    report("progress", totals, bytesDone, now - started);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report("done", totals, bytesDone, System.nanoTime() - started);
+        return totals;
+    }
+
+    private ChunkResult score(MappedRecords.Chunk chunk, MappedRecords.LineDecoder decoder, CorpusRecord record)
+            throws IOException {
+        ChunkResult result = new ChunkResult();
+        MappedRecords.forEachLine(channel, chunk, decoder, (offset, line) -> {
+            if (!record.parse(line, format)) {
+                result.skipped++;
+                return;
+            }
+            String text = record.text.trim();
+            FakeNewsAPI.DetectionResult detection = FakeNewsAPI.performDetection(text)
+                .withId(ContentHash.of(text).toHex());
+            boolean fake = "Fake".equals(detection.getPrediction());
+
+            Utf8JsonWriter json = result.json;
+            json.raw(OFFSET).number(offset);
+            if (record.id != null) {
+                json.raw(SOURCE_ID).string(record.id);
+            }
+            if (record.label != CorpusRecord.UNLABELED) {
+                json.raw(record.label == 1 ? LABEL_FAKE : LABEL_REAL);
+                result.labeled++;
+                if (fake == (record.label == 1)) {
+                    result.correct++;
+                }
+            }
+            json.raw(RESULT);
+            detection.writeJson(json);
+            json.raw('}').raw('\n');
+
+            result.records++;
+            if (fake) {
+                result.fake++;
+            }
+        });
+        return result;
+    }
+
+    private void report(String stage, Totals totals, long bytesDone, long nanos) throws IOException {
+        double seconds = Math.max(nanos / 1e9, 1e-9);
+        System.out.printf("⏱️  %s: %d docs (%d fake, %d skipped), %.1f%% of %.1f MB in %.1fs (%.0f docs/s, %.1f MB/s)%n",
+            stage, totals.records, totals.fake, totals.skipped, 100.0 * bytesDone / Math.max(channel.size(), 1),
+            channel.size() / 1e6, seconds, totals.records / seconds, bytesDone / 1e6 / seconds);
+    }
+
+    /**
+     * Encoded results and counts for one chunk; owned by one worker until handed to the writer.
+     */
+    private static final class ChunkResult {
+        final Utf8JsonWriter json = new Utf8JsonWriter();
+        long records;
+        long skipped;
+        long fake;
+        long labeled;
+        long correct;
+    }
+
+    static final class Totals {
+        long records;
+        long skipped;
+        long fake;
+        long labeled;
+        long correct;
+
+        void add(ChunkResult chunk) {
+            records += chunk.records;
+            skipped += chunk.skipped;
+            fake += chunk.fake;
+            labeled += chunk.labeled;
+            correct += chunk.correct;
+        }
+    }
+}
@@ -2,41 +2,277 @@ import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpExchange;
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipException;
 
 /**
  * Fake News Detection API - Core Java Implementation
  * 
  * This is a simple HTTP server that provides a /detect endpoint
- * for fake news detection. Currently returns stub/random predictions.
+ * for fake news detection. Predictions come from a trained linear model
+ * when one is configured, and from a keyword heuristic otherwise.
  */
 public class FakeNewsAPI {
     
-    private static final int PORT = 8080;
-    private static final Gson gson = new Gson();
+    private static RequestExecutor executor;
+    static volatile Classifier classifier = new HeuristicClassifier();
+    private static ClassifierReloader reloader;
+    private static ResultCache<DetectionResult> resultCache;
+    private static NearDuplicateIndex<DetectionResult> nearDuplicates;
+    // Bumped on every classifier swap; cached verdicts carry the one they were scored under
+    private static final AtomicLong classifierGeneration = new AtomicLong();
+    private static final ServerMetrics metrics = new ServerMetrics();
+    private static RequestLog requestLog;
+    private static RateLimiter rateLimiter;
+    private static String rateLimitHeader = "";
+    private static ConcurrencyLimiter concurrencyLimiter;
+    private static ForkJoinPool batchPool = ForkJoinPool.commonPool();
+    private static SegmentScorer segmenter;
+    private static int batchMaxItems = 10_000;
+    private static long maxBodyBytes = 10L * 1024 * 1024;
+    private static long batchMaxBodyBytes = 256L * 1024 * 1024;
+    private static int compressMinBytes = 1024;
+    private static int compressionLevel = 1;
     
     public static void main(String[] args) throws Exception {
-        HttpServer server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        ServerConfig config = ServerConfig.fromArgs(args);
+        int port = config.port();
+        
+        reloader = new ClassifierReloader(
+            config.modelPath() != null ? Paths.get(config.modelPath()) : null,
+            config.lexiconPath() != null ? Paths.get(config.lexiconPath()) : null,
+            FakeNewsAPI::useClassifier);
+        classifier = reloader.load();
+        batchPool = new ForkJoinPool(config.batchParallelism());
+        if (config.segmentMinChars() > 0) {
+            segmenter = new SegmentScorer(config.segmentMinChars(), config.segmentChars(), config.segmentTop(), batchPool);
+        }
+        if (config.classifyInput() != null) {
+            // Offline mode: score a whole dump from disk and exit
+            DumpClassifier.run(config);
+            return;
+        }
+        if (config.cacheSize() > 0) {
+            resultCache = new ResultCache<>(config.cacheSize(), config.cacheTtlSeconds());
+        }
+        if (config.dedupCapacity() > 0) {
+            nearDuplicates = new NearDuplicateIndex<>(config.dedupCapacity(), config.dedupThreshold());
+        }
+        
+        if (!config.logDir().isEmpty()) {
+            requestLog = new RequestLog(Paths.get(config.logDir()), config.logBuffer(),
+                config.logMaxMegabytes() * 1024 * 1024, config.logFiles());
+        }
         
         // API endpoints
-        server.createContext("/detect", new DetectHandler());
-        server.createContext("/health", new HealthHandler());
+        Map<String, HttpHandler> routes = new LinkedHashMap<>();
+        routes.put("/detect", admit(limit(new DetectHandler(), true)));
+        routes.put("/detect/batch", admit(limit(new BatchDetectHandler(), false)));
+        routes.put("/health", admit(new HealthHandler()));
+        routes.put("/admin/reload", admit(new ReloadHandler()));
+        
+        // Metrics are cheap to render, so they are served even when the executor is saturated
+        routes.put("/metrics", new MetricsHandler());
         
         // Enable CORS for all endpoints
-        server.createContext("/", new CorsHandler());
+        routes.put("/", new CorsHandler());
         
-        server.setExecutor(null); // Use default executor
+        batchMaxItems = config.batchMaxItems();
+        maxBodyBytes = config.maxBodyBytes();
+        batchMaxBodyBytes = config.batchMaxBodyBytes();
+        compressMinBytes = config.compressMinBytes();
+        compressionLevel = config.compressionLevel();
+        if (compressionLevel < 1 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compression-level must be between 1 and 9, got " + compressionLevel);
+        }
+        
+        executor = RequestExecutor.create(config);
+        if (config.rateLimit() > 0) {
+            rateLimiter = new RateLimiter(config.rateLimit(), config.rateBurst());
+            rateLimitHeader = config.rateLimitHeader();
+        }
+        if (config.adaptiveConcurrency()) {
+            concurrencyLimiter = new ConcurrencyLimiter(config.threads(), config.concurrencyMin(),
+                config.concurrencyMax(), config.latencyTargetMillis() * 1_000_000);
+        }
+        if (config.reloadWatch()) {
+            reloader.watch();
+        }
+        
+        // Both engines run the same handlers and filters on the same executor
+        Runnable stopServer;
+        Runnable startServer;
+        String engine;
+        if ("nio".equals(config.engine())) {
+            NioHttpServer server = new NioHttpServer(new InetSocketAddress(port), config.backlog(),
+                config.nioLoops(), executor, maxBodyBytes);
+            // Only batches may be large; every other path is held to the /detect limit before any body is read
+            routes.forEach((path, handler) -> server.createContext(path, handler,
+                "/detect/batch".equals(path) ? batchMaxBodyBytes : maxBodyBytes).getFilters().add(metrics.filter()));
+            startServer = () -> {
+                try {
+                    server.start();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            stopServer = server::stop;
+            engine = "nio (" + server.loopCount() + " event loops)";
+        } else if ("httpserver".equals(config.engine())) {
+            HttpServer server = HttpServer.create(new InetSocketAddress(port), config.backlog());
+            routes.forEach((path, handler) -> server.createContext(path, handler).getFilters().add(metrics.filter()));
+            server.setExecutor(executor);
+            startServer = server::start;
+            stopServer = () -> server.stop(1);
+            engine = "httpserver";
+        } else {
+            throw new IllegalArgumentException("Unknown engine '" + config.engine() + "'. Use httpserver or nio.");
+        }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stopServer.run();
+            reloader.close();
+            executor.shutdown();
+            batchPool.shutdown();
+            if (requestLog != null) {
+                requestLog.close();
+            }
+        }));
         
         System.out.println("🚀 Fake News Detection API Server started!");
-        System.out.println("📍 Server running on http://localhost:" + PORT);
+        System.out.println("📍 Server running on http://localhost:" + port);
+        System.out.println("🔌 Engine: " + engine);
+        System.out.println("🧵 Executor: " + executor.mode() + " (threads=" + config.threads()
+            + ", queue=" + config.queueDepth() + ", backlog=" + config.backlog() + ")");
+        System.out.println("🚦 Admission: " + (rateLimiter != null
+            ? config.rateLimit() + " req/s per " + (rateLimitHeader.isEmpty() ? "client IP" : rateLimitHeader)
+                + " (burst " + config.rateBurst() + ")" : "no rate limit")
+            + (concurrencyLimiter != null ? ", adaptive concurrency " + config.concurrencyMin() + "-"
+                + config.concurrencyMax() + " (target " + config.latencyTargetMillis() + "ms)" : ""));
+        System.out.println("🧠 Classifier: " + classifier.name());
+        System.out.println("✂️  Segments: " + (segmenter != null ? "texts of " + config.segmentMinChars()
+            + "+ chars scored in ~" + config.segmentChars() + "-char windows, top " + config.segmentTop() + " returned" : "off"));
+        if (!reloader.files().isEmpty()) {
+            System.out.println("🔄 Reload: POST /admin/reload (localhost)"
+                + (config.reloadWatch() ? ", watching " + reloader.files() : ""));
+        }
+        System.out.println("📝 Request log: " + (requestLog != null ? requestLog.directory().toAbsolutePath() : "off"));
         System.out.println("🔍 Detect endpoint: POST /detect");
+        System.out.println("📦 Batch endpoint: POST /detect/batch");
         System.out.println("❤️  Health check: GET /health");
+        System.out.println("📈 Metrics: GET /metrics");
         System.out.println("🛑 Press Ctrl+C to stop the server");
         
-        server.start();
+        startServer.run();
+    }
+
+    /**
+     * Installs a new classifier. Cached and near-duplicate verdicts came from
+     * the previous one, so they are dropped rather than served again. A
+     * detection that was scoring during the swap may still store its verdict
+     * after the clear; the generation bumped last makes lookups pass it over.
+     */
+    private static void useClassifier(Classifier next) {
+        classifier = next;
+        if (resultCache != null) {
+            resultCache.clear();
+        }
+        if (nearDuplicates != null) {
+            nearDuplicates.clear();
+        }
+        classifierGeneration.incrementAndGet();
+    }
+
+    /**
+     * Wraps a handler so exchanges rejected by the executor get a 503
+     * instead of waiting for a worker
+     */
+    private static HttpHandler admit(HttpHandler handler) {
+        return exchange -> {
+            if (RequestExecutor.isRejected()) {
+                addCorsHeaders(exchange);
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                sendErrorResponse(exchange, 503, "Server busy, please retry");
+                return;
+            }
+            handler.handle(exchange);
+        };
+    }
+
+    /**
+     * Wraps a detection handler with the per-client rate limit, answered with
+     * a 429, and the adaptive concurrency limit, answered with a 503. Only
+     * /detect feeds its latency to the concurrency limit: a batch takes a
+     * slot, but its duration grows with its size rather than with the load.
+     */
+    private static HttpHandler limit(HttpHandler handler, boolean sampleLatency) {
+        return exchange -> {
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                handler.handle(exchange);
+                return;
+            }
+            long started = System.nanoTime();
+            if (rateLimiter != null) {
+                long waitNanos = rateLimiter.acquire(clientKey(exchange), started);
+                if (waitNanos > 0) {
+                    addCorsHeaders(exchange);
+                    exchange.getResponseHeaders().add("Retry-After",
+                        Long.toString(Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000)));
+                    sendErrorResponse(exchange, 429, "Rate limit exceeded, please retry later");
+                    return;
+                }
+            }
+            ConcurrencyLimiter limiter = concurrencyLimiter;
+            if (limiter == null) {
+                handler.handle(exchange);
+                return;
+            }
+            if (!limiter.tryAcquire()) {
+                addCorsHeaders(exchange);
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                sendErrorResponse(exchange, 503, "Server busy, please retry");
+                return;
+            }
+            boolean completed = false;
+            try {
+                handler.handle(exchange);
+                completed = true;
+            } finally {
+                if (completed && sampleLatency) {
+                    long now = System.nanoTime();
+                    limiter.release(now - started, now);
+                } else {
+                    limiter.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * The configured client header if the request has one, else the client IP.
+     */
+    private static String clientKey(HttpExchange exchange) {
+        if (!rateLimitHeader.isEmpty()) {
+            String key = exchange.getRequestHeaders().getFirst(rateLimitHeader);
+            if (key != null && !key.isEmpty()) {
+                return key;
+            }
+        }
+        return exchange.getRemoteAddress().getAddress().getHostAddress();
     }
 
     /**
@@ -58,40 +294,69 @@ public class FakeNewsAPI {
             
             if ("POST".equals(exchange.getRequestMethod())) {
                 try {
-                    // Read and parse request body
-                    String requestBody = readRequestBody(exchange);
-                    JsonObject inputJson = JsonParser.parseString(requestBody).getAsJsonObject();
+                    // Stream the body and pull out only the text field
+                    long started = System.nanoTime();
+                    LimitedInputStream body = limitedBody(exchange, maxBodyBytes);
+                    String newsText;
+                    try {
+                        newsText = extractTextField(new InputStreamReader(body, StandardCharsets.UTF_8));
+                    } catch (JsonParseException | IllegalStateException | MalformedJsonException | EOFException e) {
+                        // Only the parse is answered as a client error; the same exceptions from later stages are bugs
+                        sendErrorResponse(exchange, 400, "Invalid JSON format");
+                        return;
+                    }
+                    long parsed = System.nanoTime();
+                    long readNanos = body.readNanos();
+                    long parseNanos = parsed - started - readNanos;
+                    metrics.recordStage(ServerMetrics.Stage.READ, readNanos);
+                    metrics.recordStage(ServerMetrics.Stage.PARSE, parseNanos);
                     
-                    if (!inputJson.has("text")) {
+                    if (newsText == null) {
                         sendErrorResponse(exchange, 400, "Missing 'text' field in request body");
                         return;
                     }
                     
-                    String newsText = inputJson.get("text").getAsString().trim();
+                    int leading = leadingWhitespace(newsText);
+                    newsText = newsText.trim();
                     
                     if (newsText.isEmpty()) {
                         sendErrorResponse(exchange, 400, "Text field cannot be empty");
                         return;
                     }
                     
-                    // Perform fake news detection (stub implementation)
-                    DetectionResult result = performDetection(newsText);
+                    // Perform fake news detection
+                    DetectionResult result = detect(newsText, leading);
+                    long detected = System.nanoTime();
+                    metrics.recordStage(ServerMetrics.Stage.DETECT, detected - parsed);
                     
                     // Send success response
-                    String response = gson.toJson(result);
-                    exchange.getResponseHeaders().add("Content-Type", "application/json");
-                    exchange.sendResponseHeaders(200, response.length());
-                    
-                    try (OutputStream os = exchange.getResponseBody()) {
-                        os.write(response.getBytes("UTF-8"));
+                    Utf8JsonWriter json = Utf8JsonWriter.acquire();
+                    long serializeNanos;
+                    long requestId = requestLog != null ? requestLog.nextRequestId() : 0;
+                    try {
+                        result.writeJson(json);
+                        serializeNanos = System.nanoTime() - detected;
+                        metrics.recordStage(ServerMetrics.Stage.SERIALIZE, serializeNanos);
+                        if (requestLog != null) {
+                            exchange.getResponseHeaders().add("X-Request-Id", Long.toString(requestId));
+                        }
+                        sendResponse(exchange, 200, JSON_CONTENT_TYPE, json.buffer(), json.length());
+                    } finally {
+                        json.release();
                     }
                     
                     // Log the request
-                    System.out.println("✅ Detection request processed: " + 
-                        newsText.substring(0, Math.min(50, newsText.length())) + "...");
+                    if (requestLog != null) {
+                        requestLog.log("/detect", requestId, -1, result,
+                            readNanos, parseNanos, detected - parsed, serializeNanos);
+                    }
                     
-                } catch (JsonSyntaxException e) {
-                    sendErrorResponse(exchange, 400, "Invalid JSON format");
+                } catch (PayloadTooLargeException e) {
+                    sendErrorResponse(exchange, 413, e.getMessage());
+                } catch (HttpCompression.UnsupportedContentEncodingException e) {
+                    sendErrorResponse(exchange, 415, e.getMessage());
+                } catch (ZipException e) {
+                    sendErrorResponse(exchange, 400, "Invalid compressed request body");
                 } catch (Exception e) {
                     System.err.println("❌ Error processing request: " + e.getMessage());
                     sendErrorResponse(exchange, 500, "Internal server error");
@@ -102,6 +367,230 @@ public class FakeNewsAPI {
         }
     }
 
+    /**
+     * Batch detection endpoint handler
+     * POST /detect/batch
+     * Input: JSON array of strings or {"text": "..."} objects, or NDJSON
+     *        (Content-Type: application/x-ndjson) with one of those per line
+     * Output: detection results in input order, as a JSON array or NDJSON to
+     *         match the input. Items that cannot be scored get an error object.
+     */
+    static class BatchDetectHandler implements HttpHandler {
+        private static final int BATCH_FLUSH_BYTES = 32 * 1024;
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendErrorResponse(exchange, 405, "Method not allowed. Use POST.");
+                return;
+            }
+            
+            List<BatchItem> items;
+            boolean ndjson;
+            long started = System.nanoTime();
+            try (LimitedInputStream body = limitedBody(exchange, batchMaxBodyBytes);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                ndjson = isNdjson(exchange, reader);
+                items = ndjson ? readNdjsonItems(reader) : readJsonArrayItems(reader);
+                metrics.recordStage(ServerMetrics.Stage.READ, body.readNanos());
+                metrics.recordStage(ServerMetrics.Stage.PARSE, System.nanoTime() - started - body.readNanos());
+            } catch (JsonParseException | IllegalStateException | MalformedJsonException | EOFException e) {
+                sendErrorResponse(exchange, 400, "Invalid JSON format");
+                return;
+            } catch (BatchTooLargeException | PayloadTooLargeException e) {
+                sendErrorResponse(exchange, 413, e.getMessage());
+                return;
+            } catch (HttpCompression.UnsupportedContentEncodingException e) {
+                sendErrorResponse(exchange, 415, e.getMessage());
+                return;
+            } catch (ZipException e) {
+                sendErrorResponse(exchange, 400, "Invalid compressed request body");
+                return;
+            }
+            
+            if (items.isEmpty()) {
+                sendErrorResponse(exchange, 400, "Batch must contain at least one item");
+                return;
+            }
+            
+            // Score everything in parallel, then stream results back in input order
+            long requestId = requestLog != null ? requestLog.nextRequestId() : 0;
+            List<ForkJoinTask<DetectionResult>> tasks = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                BatchItem item = items.get(i);
+                int index = i;
+                tasks.add(item.text != null ? batchPool.submit(() -> detectBatchItem(item, requestId, index)) : null);
+            }
+            
+            if (requestLog != null) {
+                exchange.getResponseHeaders().add("X-Request-Id", Long.toString(requestId));
+            }
+            exchange.getResponseHeaders().put("Content-Type", ndjson ? NDJSON_CONTENT_TYPE : JSON_CONTENT_TYPE);
+            // Batch responses are usually large, so they are compressed whenever the client allows it
+            String encoding = compressMinBytes >= 0 ? HttpCompression.negotiate(exchange.getRequestHeaders()) : null;
+            if (encoding != null) {
+                exchange.getResponseHeaders().put("Content-Encoding", List.of(encoding));
+                exchange.getResponseHeaders().put("Vary", VARY_ACCEPT_ENCODING);
+            }
+            exchange.sendResponseHeaders(200, 0); // chunked
+            
+            // Results are encoded into one pooled buffer that is flushed as it fills
+            Utf8JsonWriter json = Utf8JsonWriter.acquire();
+            try (OutputStream out = encoding != null
+                    ? HttpCompression.encode(exchange.getResponseBody(), encoding, compressionLevel, true)
+                    : exchange.getResponseBody()) {
+                if (!ndjson) {
+                    json.raw('[');
+                }
+                for (int i = 0; i < items.size(); i++) {
+                    if (i > 0 && !ndjson) {
+                        json.raw(',');
+                    }
+                    writeBatchResult(json, items.get(i), tasks.get(i));
+                    if (ndjson) {
+                        json.raw('\n');
+                    }
+                    if (json.length() >= BATCH_FLUSH_BYTES) {
+                        json.flushTo(out);
+                        out.flush();
+                    }
+                }
+                if (!ndjson) {
+                    json.raw(']');
+                }
+                json.flushTo(out);
+            } catch (IOException e) {
+                // Client went away mid-stream; stop any work still queued for it
+                for (ForkJoinTask<DetectionResult> task : tasks) {
+                    if (task != null) {
+                        task.cancel(false);
+                    }
+                }
+                throw e;
+            } finally {
+                json.release();
+            }
+        }
+    }
+
+    /**
+     * A single batch entry: either text to score or the reason it was rejected
+     */
+    private static class BatchItem {
+        final String text;
+        final String error;
+        // Whitespace trimmed off the front, which segment offsets are shifted by
+        final int leading;
+
+        BatchItem(String text, String error) {
+            this(text, error, 0);
+        }
+
+        BatchItem(String text, String error, int leading) {
+            this.text = text;
+            this.error = error;
+            this.leading = leading;
+        }
+    }
+
+    private static class BatchTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        BatchTooLargeException(int maxItems) {
+            super("Batch exceeds the maximum of " + maxItems + " items");
+        }
+    }
+
+    private static boolean isNdjson(HttpExchange exchange, BufferedReader reader) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.contains("ndjson")) {
+            return true;
+        }
+        // Otherwise sniff: a JSON array starts with '[' and NDJSON never does
+        reader.mark(1);
+        int c;
+        while ((c = reader.read()) != -1 && Character.isWhitespace(c)) {
+            reader.mark(1);
+        }
+        reader.reset();
+        return c != '[';
+    }
+
+    private static List<BatchItem> readJsonArrayItems(Reader reader) throws IOException {
+        List<BatchItem> items = new ArrayList<>();
+        JsonReader json = new JsonReader(reader);
+        json.beginArray();
+        while (json.hasNext()) {
+            checkBatchSize(items);
+            items.add(toBatchItem(JsonParser.parseReader(json)));
+        }
+        json.endArray();
+        return items;
+    }
+
+    private static List<BatchItem> readNdjsonItems(BufferedReader reader) throws IOException {
+        List<BatchItem> items = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            checkBatchSize(items);
+            items.add(toBatchItem(JsonParser.parseString(line)));
+        }
+        return items;
+    }
+
+    private static void checkBatchSize(List<BatchItem> items) throws BatchTooLargeException {
+        if (items.size() >= batchMaxItems) {
+            throw new BatchTooLargeException(batchMaxItems);
+        }
+    }
+
+    private static BatchItem toBatchItem(JsonElement element) {
+        JsonElement textElement = element;
+        if (element.isJsonObject()) {
+            textElement = element.getAsJsonObject().get("text");
+            if (textElement == null) {
+                return new BatchItem(null, "Missing 'text' field");
+            }
+        }
+        if (!textElement.isJsonPrimitive() || !textElement.getAsJsonPrimitive().isString()) {
+            return new BatchItem(null, "Item must be a string or an object with a 'text' field");
+        }
+        String raw = textElement.getAsString();
+        String text = raw.trim();
+        if (text.isEmpty()) {
+            return new BatchItem(null, "Text field cannot be empty");
+        }
+        return new BatchItem(text, null, leadingWhitespace(raw));
+    }
+
+    private static void writeBatchResult(Utf8JsonWriter json, BatchItem item, ForkJoinTask<DetectionResult> task) {
+        if (task == null) {
+            json.raw(errorBody(400, item.error));
+            return;
+        }
+        DetectionResult result;
+        try {
+            result = task.join();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Error processing batch item: " + e.getMessage());
+            json.raw(errorBody(500, "Internal server error"));
+            return;
+        }
+        long serializing = System.nanoTime();
+        result.writeJson(json);
+        metrics.recordStage(ServerMetrics.Stage.SERIALIZE, System.nanoTime() - serializing);
+    }
+
     /**
      * Health check endpoint handler
      * GET /health
@@ -112,17 +601,40 @@ public class FakeNewsAPI {
             addCorsHeaders(exchange);
             
             if ("GET".equals(exchange.getRequestMethod())) {
-                JsonObject health = new JsonObject();
-                health.addProperty("status", "healthy");
-                health.addProperty("timestamp", new Date().toString());
-                health.addProperty("service", "Fake News Detection API");
-                
-                String response = gson.toJson(health);
-                exchange.getResponseHeaders().add("Content-Type", "application/json");
-                exchange.sendResponseHeaders(200, response.length());
-                
-                try (OutputStream os = exchange.getResponseBody()) {
-                    os.write(response.getBytes("UTF-8"));
+                Utf8JsonWriter json = Utf8JsonWriter.acquire();
+                try {
+                    json.raw(HEALTH_PREFIX).string(new Date().toString());
+                    json.raw(HEALTH_CLASSIFIER).string(classifier.name());
+                    if (resultCache != null) {
+                        long hits = resultCache.hits();
+                        long misses = resultCache.misses();
+                        long lookups = hits + misses;
+                        json.raw(HEALTH_CACHE_SIZE).number(resultCache.size());
+                        json.raw(HEALTH_CACHE_HITS).number(hits);
+                        json.raw(HEALTH_CACHE_MISSES).number(misses);
+                        json.raw(HEALTH_CACHE_HIT_RATE).number(lookups == 0 ? 0.0 : Math.round(hits * 1000.0 / lookups) / 1000.0);
+                        json.raw(HEALTH_CACHE_EVICTIONS).number(resultCache.evictions());
+                        json.raw(HEALTH_CACHE_EXPIRATIONS).number(resultCache.expirations()).raw('}');
+                    }
+                    if (nearDuplicates != null) {
+                        json.raw(HEALTH_DEDUP_SIZE).number(nearDuplicates.size());
+                        json.raw(HEALTH_DEDUP_LOOKUPS).number(nearDuplicates.lookups());
+                        json.raw(HEALTH_DEDUP_DUPLICATES).number(nearDuplicates.matches()).raw('}');
+                    }
+                    if (rateLimiter != null) {
+                        json.raw(HEALTH_RATE_CLIENTS).number(rateLimiter.clients());
+                        json.raw(HEALTH_RATE_LIMITED).number(rateLimiter.limited()).raw('}');
+                    }
+                    if (concurrencyLimiter != null) {
+                        json.raw(HEALTH_CONCURRENCY_LIMIT).number(concurrencyLimiter.limit());
+                        json.raw(HEALTH_CONCURRENCY_IN_FLIGHT).number(concurrencyLimiter.inFlight());
+                        json.raw(HEALTH_CONCURRENCY_LIMITED).number(concurrencyLimiter.limited()).raw('}');
+                    }
+                    json.raw('}');
+                    
+                    sendResponse(exchange, 200, JSON_CONTENT_TYPE, json.buffer(), json.length());
+                } finally {
+                    json.release();
                 }
             } else {
                 sendErrorResponse(exchange, 405, "Method not allowed. Use GET.");
@@ -130,6 +642,97 @@ public class FakeNewsAPI {
         }
     }
 
+    /**
+     * Metrics endpoint handler, Prometheus text format
+     * GET /metrics
+     */
+    static class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendErrorResponse(exchange, 405, "Method not allowed. Use GET.");
+                return;
+            }
+            
+            StringBuilder out = new StringBuilder(16 * 1024);
+            metrics.render(out);
+            if (executor != null) {
+                ServerMetrics.counter(out, "fakenews_requests_rejected_total",
+                    "Requests refused with 503 because the executor was saturated", executor.rejectedCount());
+            }
+            if (resultCache != null) {
+                ServerMetrics.gauge(out, "fakenews_cache_entries", "Results held in the cache", resultCache.size());
+                ServerMetrics.counter(out, "fakenews_cache_hits_total", "Cache lookups answered from the cache", resultCache.hits());
+                ServerMetrics.counter(out, "fakenews_cache_misses_total", "Cache lookups that had to score the text", resultCache.misses());
+                ServerMetrics.counter(out, "fakenews_cache_evictions_total", "Entries evicted to stay within the size limit", resultCache.evictions());
+                ServerMetrics.counter(out, "fakenews_cache_expirations_total", "Entries dropped after their TTL", resultCache.expirations());
+            }
+            if (nearDuplicates != null) {
+                ServerMetrics.gauge(out, "fakenews_near_duplicate_entries", "Articles held in the near-duplicate index", nearDuplicates.size());
+                ServerMetrics.counter(out, "fakenews_near_duplicate_lookups_total", "Near-duplicate index lookups", nearDuplicates.lookups());
+                ServerMetrics.counter(out, "fakenews_near_duplicate_matches_total", "Lookups that reused an earlier verdict", nearDuplicates.matches());
+            }
+            if (requestLog != null) {
+                ServerMetrics.counter(out, "fakenews_request_log_written_total", "Request log records written", requestLog.written());
+                ServerMetrics.counter(out, "fakenews_request_log_dropped_total", "Request log records dropped because the writer fell behind", requestLog.dropped());
+            }
+            if (rateLimiter != null) {
+                ServerMetrics.gauge(out, "fakenews_rate_limit_clients", "Clients currently tracked by the rate limiter", rateLimiter.clients());
+                ServerMetrics.counter(out, "fakenews_rate_limit_allowed_total", "Detection requests within their client's rate limit", rateLimiter.allowed());
+                ServerMetrics.counter(out, "fakenews_rate_limited_total", "Detection requests refused with 429 by the per-client rate limit", rateLimiter.limited());
+            }
+            if (concurrencyLimiter != null) {
+                ServerMetrics.gauge(out, "fakenews_concurrency_limit", "Current adaptive limit on concurrent detection requests", concurrencyLimiter.limit());
+                ServerMetrics.gauge(out, "fakenews_concurrency_in_flight", "Detection requests holding a concurrency slot", concurrencyLimiter.inFlight());
+                ServerMetrics.counter(out, "fakenews_concurrency_limited_total", "Detection requests refused with 503 by the concurrency limit", concurrencyLimiter.limited());
+            }
+            if (segmenter != null) {
+                ServerMetrics.counter(out, "fakenews_segmented_documents_total", "Long texts scored in segments", segmenter.documents());
+                ServerMetrics.counter(out, "fakenews_segments_scored_total", "Segments scored for long texts", segmenter.segments());
+            }
+            if (reloader != null) {
+                ServerMetrics.counter(out, "fakenews_classifier_reloads_total", "Classifier reloads that were swapped in", reloader.reloads());
+                ServerMetrics.counter(out, "fakenews_classifier_reload_failures_total", "Classifier reloads that failed and kept the old one", reloader.failures());
+            }
+            
+            byte[] payload = out.toString().getBytes(StandardCharsets.UTF_8);
+            sendResponse(exchange, 200, METRICS_CONTENT_TYPE, payload, payload.length);
+        }
+    }
+
+    /**
+     * Classifier reload endpoint, accepted from localhost only
+     * POST /admin/reload
+     * Output: {"status": "reloaded", "classifier": "..."}
+     */
+    static class ReloadHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+                sendErrorResponse(exchange, 403, "Reload is only accepted from localhost");
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendErrorResponse(exchange, 405, "Method not allowed. Use POST.");
+                return;
+            }
+            
+            Classifier next;
+            try {
+                next = reloader.reload();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("❌ Classifier reload failed, keeping the current one: " + e.getMessage());
+                sendErrorResponse(exchange, 500, "Reload failed: " + e.getMessage());
+                return;
+            }
+            System.out.println("🔄 Classifier reloaded: " + next.name());
+            
+            Utf8JsonWriter json = new Utf8JsonWriter();
+            json.raw(RELOAD_PREFIX).string(next.name()).raw('}');
+            sendResponse(exchange, 200, JSON_CONTENT_TYPE, json.buffer(), json.length());
+        }
+    }
+
     /**
      * CORS handler for preflight requests
      */
@@ -141,87 +744,296 @@ public class FakeNewsAPI {
         }
     }
 
+    // Confidence below this margin around 0.5 is reported as inconclusive
+    private static final double INCONCLUSIVE_MARGIN = 0.05;
+
     /**
-     * Stub implementation of fake news detection
-     * TODO: Replace with actual ML model integration
+     * Number of leading characters String.trim() removes
      */
-    private static DetectionResult performDetection(String newsText) {
-        Random rand = new Random();
-        
-        // Simple heuristic-based detection (for demonstration)
-        String lowerText = newsText.toLowerCase();
-        
-        // Check for common fake news indicators
-        String[] fakeIndicators = {
-            "breaking:", "shocking", "you won't believe", "doctors hate",
-            "secret", "conspiracy", "they don't want you to know",
-            "miracle cure", "instant", "guaranteed"
-        };
-        
-        String[] realIndicators = {
-            "according to", "research shows", "study found",
-            "expert says", "data indicates", "report states"
-        };
-        
-        int fakeScore = 0;
-        int realScore = 0;
+    static int leadingWhitespace(String text) {
+        int i = 0;
+        while (i < text.length() && text.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Detection with the result cache and near-duplicate index in front:
+     * texts that only differ in case or whitespace share one cached verdict,
+     * and light rewrites of a recent article reuse its verdict. The text is
+     * the trimmed one; segment offsets are shifted by the leading whitespace
+     * that was trimmed off, so they point into the text the client sent.
+     *
+     * The classifier generation is read before anything else. A swap installs
+     * the classifier before bumping the generation, so the text is scored by
+     * that generation's classifier or a newer one, and an entry that matches
+     * the current generation never holds a verdict from an older classifier.
+     */
+    private static DetectionResult detect(String newsText, int leading) {
+        long generation = classifierGeneration.get();
+        ContentHash key = ContentHash.of(newsText);
+        if (resultCache != null) {
+            DetectionResult cached = resultCache.get(key);
+            if (cached != null && cached.generation == generation && cached.fitsText(newsText)) {
+                return cached.forText(newsText).shiftedBy(leading);
+            }
+        }
         
-        for (String indicator : fakeIndicators) {
-            if (lowerText.contains(indicator)) {
-                fakeScore++;
+        String id = key.toHex();
+        DetectionResult result;
+        // A near-duplicate's segment offsets would point into another text, so long texts skip the index
+        boolean segmented = segmenter != null && segmenter.applies(newsText);
+        int[] signature = nearDuplicates != null && !segmented ? NearDuplicateIndex.signature(newsText) : null;
+        NearDuplicateIndex.Match<DetectionResult> match = signature != null ? nearDuplicates.find(signature) : null;
+        boolean reused = match != null && match.value.generation == generation;
+        if (reused) {
+            result = match.value.asDuplicate(newsText, id, match.id);
+        } else {
+            result = performDetection(newsText).withId(id);
+            if (segmented) {
+                result.scoredText = DetectionResult.digest(newsText);
             }
         }
+        result.generation = generation;
         
-        for (String indicator : realIndicators) {
-            if (lowerText.contains(indicator)) {
-                realScore++;
+        // A verdict from a classifier that was swapped out meanwhile is not kept
+        if (classifierGeneration.get() == generation) {
+            if (signature != null && !reused) {
+                nearDuplicates.add(signature, id, result);
+            }
+            if (resultCache != null) {
+                resultCache.put(key, result);
             }
         }
+        return result.shiftedBy(leading);
+    }
+
+    /**
+     * Scores one batch item on the batch pool and logs it; the body was read
+     * and parsed for the batch as a whole, so only detection is timed here
+     */
+    private static DetectionResult detectBatchItem(BatchItem item, long requestId, int index) {
+        long started = System.nanoTime();
+        DetectionResult result = detect(item.text, item.leading);
+        long detectNanos = System.nanoTime() - started;
+        metrics.recordStage(ServerMetrics.Stage.DETECT, detectNanos);
+        if (requestLog != null) {
+            requestLog.log("/detect/batch", requestId, index, result, -1, -1, detectNanos, -1);
+        }
+        return result;
+    }
+
+    /**
+     * Fake news detection using the configured classifier
+     */
+    static DetectionResult performDetection(String newsText) {
+        Classifier scoring = classifier;
+        SegmentScorer.Scored segments = null;
+        double fakeProbability;
+        if (segmenter != null && segmenter.applies(newsText)) {
+            segments = segmenter.score(newsText, scoring);
+            fakeProbability = segments.fakeProbability;
+        } else {
+            // Normalized once here; the classifier reads tokens from the same buffer
+            fakeProbability = scoring.fakeProbability(TextNormalizer.normalize(newsText));
+        }
         
         // Determine prediction
-        String prediction;
-        double confidence;
+        String prediction = fakeProbability > 0.5 ? "Fake" : "Real";
+        double confidence = Math.max(fakeProbability, 1.0 - fakeProbability);
         String analysis;
         
-        if (fakeScore > realScore) {
-            prediction = "Fake";
-            confidence = 0.6 + (rand.nextDouble() * 0.3); // 0.6-0.9
+        if (confidence < 0.5 + INCONCLUSIVE_MARGIN) {
+            analysis = "Insufficient indicators detected, prediction based on general patterns";
+        } else if ("Fake".equals(prediction)) {
             analysis = "Text contains indicators commonly found in fake news articles";
-        } else if (realScore > fakeScore) {
-            prediction = "Real";
-            confidence = 0.6 + (rand.nextDouble() * 0.3); // 0.6-0.9
-            analysis = "Text shows characteristics of legitimate news reporting";
         } else {
-            prediction = rand.nextBoolean() ? "Real" : "Fake";
-            confidence = 0.5 + (rand.nextDouble() * 0.3); // 0.5-0.8
-            analysis = "Insufficient indicators detected, prediction based on general patterns";
+            analysis = "Text shows characteristics of legitimate news reporting";
+        }
+        
+        if (segments != null) {
+            analysis += " (" + segments.suspiciousCount + " of " + segments.segmentCount + " segments lean fake)";
         }
         
-        return new DetectionResult(prediction, confidence, analysis, newsText.length());
+        DetectionResult result = new DetectionResult(prediction, confidence, analysis, newsText.length());
+        if (segments != null) {
+            result.withSegments(segments.segmentCount, segments.suspiciousCount, segments.top);
+        }
+        return result;
+    }
+
+    /**
+     * Helper method to pull the "text" field out of a JSON request body.
+     * The body is streamed through JsonReader, so the article is copied once
+     * with its whitespace intact and other fields are skipped without being
+     * materialized. Returns null when there is no text field.
+     */
+    static String extractTextField(Reader body) throws IOException {
+        try (JsonReader json = new JsonReader(body)) {
+            String text = null;
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("text".equals(json.nextName()) && text == null && json.peek() != JsonToken.NULL) {
+                    text = json.nextString();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            return text;
+        }
     }
 
     /**
-     * Helper method to read request body
+     * Helper method to wrap the request body so it cannot exceed maxBytes.
+     * A declared Content-Length over the limit is refused before reading.
+     * Compressed bodies are inflated first, so the limit applies to the
+     * decoded size and a small gzip bomb cannot expand without bound.
      */
-    private static String readRequestBody(HttpExchange exchange) throws IOException {
-        StringBuilder body = new StringBuilder();
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(exchange.getRequestBody(), "UTF-8"))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                body.append(line);
+    private static LimitedInputStream limitedBody(HttpExchange exchange, long maxBytes) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxBytes) {
+                    throw new PayloadTooLargeException(maxBytes);
+                }
+            } catch (NumberFormatException e) {
+                // Let the stream limit catch it
             }
         }
-        return body.toString();
+        return new LimitedInputStream(
+            HttpCompression.decode(exchange.getRequestBody(), exchange.getRequestHeaders()), maxBytes);
+    }
+
+    private static class PayloadTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        PayloadTooLargeException(long maxBytes) {
+            super("Request body exceeds the maximum of " + maxBytes + " bytes");
+        }
     }
 
+    /**
+     * Input stream that fails once more than maxBytes have been read, and
+     * keeps track of the time spent waiting on the underlying stream
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long remaining;
+        private long readNanos;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long started = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - started;
+            if (b != -1 && --remaining < 0) {
+                throw new PayloadTooLargeException(maxBytes);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long started = System.nanoTime();
+            int n = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - started;
+            if (n > 0 && (remaining -= n) < 0) {
+                throw new PayloadTooLargeException(maxBytes);
+            }
+            return n;
+        }
+
+        long readNanos() {
+            return readNanos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // Header values shared by every response; Headers only reads them
+    private static final List<String> JSON_CONTENT_TYPE = List.of("application/json");
+    private static final List<String> NDJSON_CONTENT_TYPE = List.of("application/x-ndjson");
+    private static final List<String> METRICS_CONTENT_TYPE = List.of(ServerMetrics.CONTENT_TYPE);
+    private static final List<String> VARY_ACCEPT_ENCODING = List.of("Accept-Encoding");
+    private static final List<String> CORS_ALLOW_ORIGIN = List.of("*");
+    private static final List<String> CORS_ALLOW_METHODS = List.of("GET, POST, OPTIONS");
+    private static final List<String> CORS_ALLOW_HEADERS = List.of("Content-Type");
+
+    // Pre-encoded /health fragments
+    private static final byte[] HEALTH_PREFIX = Utf8JsonWriter.literal(
+        "{\"status\":\"healthy\",\"timestamp\":");
+    private static final byte[] HEALTH_CLASSIFIER = Utf8JsonWriter.literal(
+        ",\"service\":\"Fake News Detection API\",\"classifier\":");
+    private static final byte[] HEALTH_CACHE_SIZE = Utf8JsonWriter.literal(",\"cache\":{\"size\":");
+    private static final byte[] HEALTH_CACHE_HITS = Utf8JsonWriter.literal(",\"hits\":");
+    private static final byte[] HEALTH_CACHE_MISSES = Utf8JsonWriter.literal(",\"misses\":");
+    private static final byte[] HEALTH_CACHE_HIT_RATE = Utf8JsonWriter.literal(",\"hitRate\":");
+    private static final byte[] HEALTH_CACHE_EVICTIONS = Utf8JsonWriter.literal(",\"evictions\":");
+    private static final byte[] HEALTH_CACHE_EXPIRATIONS = Utf8JsonWriter.literal(",\"expirations\":");
+    private static final byte[] HEALTH_DEDUP_SIZE = Utf8JsonWriter.literal(",\"nearDuplicates\":{\"size\":");
+    private static final byte[] HEALTH_DEDUP_LOOKUPS = Utf8JsonWriter.literal(",\"lookups\":");
+    private static final byte[] HEALTH_DEDUP_DUPLICATES = Utf8JsonWriter.literal(",\"duplicates\":");
+    private static final byte[] HEALTH_RATE_CLIENTS = Utf8JsonWriter.literal(",\"rateLimit\":{\"clients\":");
+    private static final byte[] HEALTH_RATE_LIMITED = Utf8JsonWriter.literal(",\"limited\":");
+    private static final byte[] HEALTH_CONCURRENCY_LIMIT = Utf8JsonWriter.literal(",\"concurrency\":{\"limit\":");
+    private static final byte[] HEALTH_CONCURRENCY_IN_FLIGHT = Utf8JsonWriter.literal(",\"inFlight\":");
+    private static final byte[] HEALTH_CONCURRENCY_LIMITED = Utf8JsonWriter.literal(",\"limited\":");
+
+    private static final byte[] RELOAD_PREFIX = Utf8JsonWriter.literal("{\"status\":\"reloaded\",\"classifier\":");
+
+    // Error bodies are encoded once per distinct status and message
+    private static final byte[] ERROR_PREFIX = Utf8JsonWriter.literal("{\"error\":");
+    private static final byte[] ERROR_STATUS = Utf8JsonWriter.literal(",\"status\":");
+    private static final int MAX_CACHED_ERROR_BODIES = 256;
+    private static final Map<String, byte[]> errorBodies = new ConcurrentHashMap<>();
+
     /**
      * Helper method to add CORS headers
      */
     private static void addCorsHeaders(HttpExchange exchange) {
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+        exchange.getResponseHeaders().put("Access-Control-Allow-Origin", CORS_ALLOW_ORIGIN);
+        exchange.getResponseHeaders().put("Access-Control-Allow-Methods", CORS_ALLOW_METHODS);
+        exchange.getResponseHeaders().put("Access-Control-Allow-Headers", CORS_ALLOW_HEADERS);
+    }
+
+    /**
+     * Helper method to send a complete response body, compressed when it is
+     * at least compressMinBytes long and the client accepts gzip or deflate
+     */
+    private static void sendResponse(HttpExchange exchange, int statusCode, List<String> contentType,
+                                     byte[] body, int length) throws IOException {
+        exchange.getResponseHeaders().put("Content-Type", contentType);
+        if (compressMinBytes >= 0 && length >= compressMinBytes) {
+            exchange.getResponseHeaders().put("Vary", VARY_ACCEPT_ENCODING);
+            String encoding = HttpCompression.negotiate(exchange.getRequestHeaders());
+            if (encoding != null) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+                try (OutputStream out = HttpCompression.encode(compressed, encoding, compressionLevel, false)) {
+                    out.write(body, 0, length);
+                }
+                exchange.getResponseHeaders().put("Content-Encoding", List.of(encoding));
+                exchange.sendResponseHeaders(statusCode, compressed.size());
+                try (OutputStream os = exchange.getResponseBody()) {
+                    compressed.writeTo(os);
+                }
+                return;
+            }
+        }
+        exchange.sendResponseHeaders(statusCode, length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body, 0, length);
+        }
     }
 
     /**
@@ -229,28 +1041,51 @@ public class FakeNewsAPI {
      */
     private static void sendErrorResponse(HttpExchange exchange, int statusCode, String message) 
             throws IOException {
-        JsonObject error = new JsonObject();
-        error.addProperty("error", message);
-        error.addProperty("status", statusCode);
-        
-        String response = gson.toJson(error);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.length());
+        byte[] response = errorBody(statusCode, message);
+        exchange.getResponseHeaders().put("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(statusCode, response.length);
         
         try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes("UTF-8"));
+            os.write(response);
+        }
+    }
+
+    /**
+     * {"error": message, "status": statusCode} as UTF-8
+     */
+    private static byte[] errorBody(int statusCode, String message) {
+        String key = statusCode + ":" + message;
+        byte[] body = errorBodies.get(key);
+        if (body == null) {
+            // Not the pooled writer: this can run while a batch response is being encoded
+            Utf8JsonWriter json = new Utf8JsonWriter();
+            json.raw(ERROR_PREFIX).string(message).raw(ERROR_STATUS).number(statusCode).raw('}');
+            body = json.toByteArray();
+            if (errorBodies.size() < MAX_CACHED_ERROR_BODIES) {
+                errorBodies.put(key, body);
+            }
         }
+        return body;
     }
 
     /**
      * Data class for detection results
      */
     static class DetectionResult {
+        private String id;
         private String prediction;
         private double confidence;
         private String analysis;
         private int textLength;
         private String timestamp;
+        private String duplicateOf;
+        private Integer segmentCount;
+        private Integer suspiciousSegments;
+        private List<SegmentScorer.Segment> segments;
+        // SHA-256 of the exact text the segments were cut from; not part of the JSON
+        private transient byte[] scoredText;
+        // Classifier generation the verdict was scored under; not part of the JSON
+        private transient long generation;
 
         public DetectionResult(String prediction, double confidence, String analysis, int textLength) {
             this.prediction = prediction;
@@ -260,11 +1095,145 @@ public class FakeNewsAPI {
             this.timestamp = new Date().toString();
         }
 
+        /**
+         * Same verdict, stamped for a new request with the given text
+         */
+        DetectionResult forText(String text) {
+            DetectionResult copy = new DetectionResult(prediction, confidence, analysis, text.length());
+            copy.id = id;
+            copy.duplicateOf = duplicateOf;
+            copy.segmentCount = segmentCount;
+            copy.suspiciousSegments = suspiciousSegments;
+            copy.segments = segments;
+            copy.scoredText = scoredText;
+            return copy;
+        }
+
+        /**
+         * Whether this verdict can be served for the text. Segment offsets are
+         * only valid for the exact text that was scored: the cache key folds
+         * case, width and whitespace, so a text that shares the key but not
+         * the characters is scored again.
+         */
+        boolean fitsText(String text) {
+            return segments == null || (scoredText != null && MessageDigest.isEqual(scoredText, digest(text)));
+        }
+
+        static byte[] digest(String text) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        /**
+         * This verdict with its segment offsets moved by offset chars; the
+         * cached result is left as it is
+         */
+        DetectionResult shiftedBy(int offset) {
+            if (segments == null || offset == 0) {
+                return this;
+            }
+            DetectionResult copy = new DetectionResult(prediction, confidence, analysis, textLength);
+            copy.id = id;
+            copy.timestamp = timestamp;
+            copy.duplicateOf = duplicateOf;
+            copy.segmentCount = segmentCount;
+            copy.suspiciousSegments = suspiciousSegments;
+            List<SegmentScorer.Segment> shifted = new ArrayList<>(segments.size());
+            for (SegmentScorer.Segment segment : segments) {
+                shifted.add(segment.shiftedBy(offset));
+            }
+            copy.segments = shifted;
+            return copy;
+        }
+
+        /**
+         * This verdict reused for a near-duplicate of the article it was computed for
+         */
+        DetectionResult asDuplicate(String text, String newId, String originalId) {
+            DetectionResult copy = new DetectionResult(prediction, confidence, analysis, text.length());
+            copy.id = newId;
+            copy.duplicateOf = originalId;
+            return copy;
+        }
+
+        /**
+         * Attaches the segment breakdown; only called before the result is shared
+         */
+        DetectionResult withSegments(int count, int suspicious, List<SegmentScorer.Segment> top) {
+            this.segmentCount = count;
+            this.suspiciousSegments = suspicious;
+            this.segments = top;
+            return this;
+        }
+
+        /**
+         * Sets the content id; only called before the result is shared
+         */
+        DetectionResult withId(String id) {
+            this.id = id;
+            return this;
+        }
+
+        private static final byte[] ID = Utf8JsonWriter.literal("\"id\":");
+        private static final byte[] PREDICTION = Utf8JsonWriter.literal("\"prediction\":");
+        private static final byte[] CONFIDENCE = Utf8JsonWriter.literal(",\"confidence\":");
+        private static final byte[] ANALYSIS = Utf8JsonWriter.literal(",\"analysis\":");
+        private static final byte[] TEXT_LENGTH = Utf8JsonWriter.literal(",\"textLength\":");
+        private static final byte[] TIMESTAMP = Utf8JsonWriter.literal(",\"timestamp\":");
+        private static final byte[] DUPLICATE_OF = Utf8JsonWriter.literal(",\"duplicateOf\":");
+        private static final byte[] SEGMENT_COUNT = Utf8JsonWriter.literal(",\"segmentCount\":");
+        private static final byte[] SUSPICIOUS_SEGMENTS = Utf8JsonWriter.literal(",\"suspiciousSegments\":");
+        private static final byte[] SEGMENTS = Utf8JsonWriter.literal(",\"segments\":[");
+
+        /**
+         * Writes the same JSON Gson produces for this object: fields in
+         * declaration order, nulls left out
+         */
+        void writeJson(Utf8JsonWriter json) {
+            json.raw('{');
+            if (id != null) {
+                json.raw(ID).string(id).raw(',');
+            }
+            json.raw(PREDICTION).string(prediction);
+            json.raw(CONFIDENCE).number(confidence);
+            json.raw(ANALYSIS).string(analysis);
+            json.raw(TEXT_LENGTH).number(textLength);
+            json.raw(TIMESTAMP).string(timestamp);
+            if (duplicateOf != null) {
+                json.raw(DUPLICATE_OF).string(duplicateOf);
+            }
+            if (segmentCount != null) {
+                json.raw(SEGMENT_COUNT).number(segmentCount);
+            }
+            if (suspiciousSegments != null) {
+                json.raw(SUSPICIOUS_SEGMENTS).number(suspiciousSegments);
+            }
+            if (segments != null) {
+                json.raw(SEGMENTS);
+                for (int i = 0; i < segments.size(); i++) {
+                    if (i > 0) {
+                        json.raw(',');
+                    }
+                    segments.get(i).writeJson(json);
+                }
+                json.raw(']');
+            }
+            json.raw('}');
+        }
+
         // Getters for JSON serialization
+        public String getId() { return id; }
         public String getPrediction() { return prediction; }
         public double getConfidence() { return confidence; }
         public String getAnalysis() { return analysis; }
         public int getTextLength() { return textLength; }
         public String getTimestamp() { return timestamp; }
+        public String getDuplicateOf() { return duplicateOf; }
+        public Integer getSegmentCount() { return segmentCount; }
+        public Integer getSuspiciousSegments() { return suspiciousSegments; }
+        public List<SegmentScorer.Segment> getSegments() { return segments; }
     }
-}
\ No newline at end of file
+}
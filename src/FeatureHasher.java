@@ -0,0 +1,72 @@
+/**
+ * Hashes the tokens of a text, unigrams and optionally bigrams, into a
+ * fixed number of feature buckets
+ *
+ * Tokens come from TextNormalizer and are hashed straight out of its buffer,
+ * so no token strings are ever created. The trainer and the runtime
+ * classifier share this class, which keeps their features identical.
+ */
+final class FeatureHasher {
+
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int BIGRAM_SEED = 0x9E3779B9;
+
+    private final int bits;
+    private final boolean bigrams;
+
+    FeatureHasher(int bits, boolean bigrams) {
+        if (bits < 1 || bits > 28) {
+            throw new IllegalArgumentException("Feature bits must be between 1 and 28, got " + bits);
+        }
+        this.bits = bits;
+        this.bigrams = bigrams;
+    }
+
+    int bits() {
+        return bits;
+    }
+
+    boolean bigrams() {
+        return bigrams;
+    }
+
+    int buckets() {
+        return 1 << bits;
+    }
+
+    /**
+     * Appends the feature buckets of the text to the vector. Text that is not
+     * normalized yet is normalized into this thread's TextNormalizer buffer.
+     */
+    void hash(CharSequence text, SparseVector out) {
+        TextNormalizer.Normalized normalized = TextNormalizer.normalize(text);
+        char[] chars = normalized.bounded();
+        int shift = 32 - bits;
+        int previous = 0;
+
+        for (int t = 0, n = normalized.tokenCount(); t < n; t++) {
+            int h = FNV_OFFSET;
+            // Sequence offsets are one less than buffer offsets
+            for (int i = normalized.tokenStart(t) + 1, end = normalized.tokenEnd(t) + 1; i < end; i++) {
+                h = (h ^ chars[i]) * FNV_PRIME;
+            }
+            int token = mix(h);
+            out.add(token >>> shift);
+            if (bigrams && t > 0) {
+                out.add(mix(previous * 31 + token + BIGRAM_SEED) >>> shift);
+            }
+            previous = token;
+        }
+    }
+
+    // Murmur3 finalizer; spreads FNV's weak low bits before bucketing
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,331 @@
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted keyword heuristic, used when no trained model is configured
+ *
+ * Finds every indicator in a single Aho-Corasick pass and adds up their
+ * weights, fake indicators pushing the score up and real ones down. Each
+ * indicator counts log2(1 + hits) times, so repeating a phrase helps
+ * less and less, and counts (1 + lead) times as much when its first hit
+ * is in the opening LEAD_CHARS characters, where headlines and ledes sit.
+ * A logistic calibration layer, sigmoid(slope * score + intercept), turns
+ * the score into a probability. The result is deterministic, and once
+ * calibrated with CalibrateLexicon it can be thresholded. Indicators and
+ * text are both run through TextNormalizer and matched on whole words, so
+ * punctuation, case and spacing do not change which indicators are found.
+ * A phrase that ends in a colon, like "breaking:", is a headline prefix:
+ * it only counts, once, when the text starts with it.
+ *
+ * The indicator lists are built in or loaded from a JSON lexicon file.
+ * Phrases are plain strings (default weight) or objects with a weight;
+ * every other field is optional:
+ * <pre>
+ *   {"fake": ["shocking", {"phrase": "miracle cure", "weight": 1.4}],
+ *    "real": ["according to"],
+ *    "bias": 0.0, "lead": 0.5,
+ *    "calibration": {"slope": 1.0, "intercept": 0.0}}
+ * </pre>
+ * Either way they are compiled once, when the classifier is created.
+ */
+final class HeuristicClassifier implements Classifier {
+
+    private static final String[] FAKE_INDICATORS = {
+        "breaking:", "shocking", "you won't believe", "doctors hate",
+        "secret", "conspiracy", "they don't want you to know",
+        "miracle cure", "instant", "guaranteed"
+    };
+
+    private static final String[] REAL_INDICATORS = {
+        "according to", "research shows", "study found",
+        "expert says", "data indicates", "report states"
+    };
+
+    // One indicator of difference gives ~0.67, three give ~0.89
+    static final double DEFAULT_WEIGHT = 0.7;
+
+    // Roughly a headline plus the first paragraph of normalized text
+    static final int LEAD_CHARS = 400;
+
+    private final IndicatorMatcher indicators;
+    private final String[] phrases;
+    private final int[] prefixIds; // phrases that only count at the start of the text
+    private final double[] weights; // signed: fake > 0, real < 0
+    private final double bias;
+    private final double lead;
+    private final double slope;
+    private final double intercept;
+    private final String source;
+
+    HeuristicClassifier() {
+        this(builtInPhrases(), builtInWeights(), 0, 0, 1, 0, null);
+    }
+
+    HeuristicClassifier(List<String> phrases, double[] weights, double bias, double lead,
+                        double slope, double intercept, String source) {
+        if (phrases.size() != weights.length) {
+            throw new IllegalArgumentException(phrases.size() + " phrases but " + weights.length + " weights");
+        }
+        List<String> bounded = new ArrayList<>(phrases.size());
+        List<Integer> prefixes = new ArrayList<>();
+        Map<String, String> seen = new HashMap<>();
+        for (String phrase : phrases) {
+            if (isPrefix(phrase)) {
+                prefixes.add(bounded.size());
+            }
+            String normalized = boundedPhrase(phrase);
+            String previous = seen.putIfAbsent(normalized, phrase);
+            if (previous != null) {
+                throw new IllegalArgumentException("Indicator phrases '" + previous + "' and '" + phrase
+                    + "' are the same once normalized");
+            }
+            bounded.add(normalized);
+        }
+        this.indicators = IndicatorMatcher.compile(bounded);
+        this.phrases = phrases.toArray(new String[0]);
+        this.prefixIds = prefixes.stream().mapToInt(Integer::intValue).toArray();
+        this.weights = weights.clone();
+        this.bias = bias;
+        this.lead = lead;
+        this.slope = slope;
+        this.intercept = intercept;
+        this.source = source;
+    }
+
+    private static List<String> builtInPhrases() {
+        List<String> phrases = new ArrayList<>(List.of(FAKE_INDICATORS));
+        phrases.addAll(List.of(REAL_INDICATORS));
+        return phrases;
+    }
+
+    private static double[] builtInWeights() {
+        double[] weights = new double[FAKE_INDICATORS.length + REAL_INDICATORS.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = i < FAKE_INDICATORS.length ? DEFAULT_WEIGHT : -DEFAULT_WEIGHT;
+        }
+        return weights;
+    }
+
+    /**
+     * Whether the phrase is a headline prefix, written with a trailing colon
+     */
+    private static boolean isPrefix(String phrase) {
+        return phrase.strip().endsWith(":");
+    }
+
+    /**
+     * The normalized phrase between spaces, so it only matches whole words.
+     */
+    private static String boundedPhrase(String phrase) {
+        return " " + TextNormalizer.normalize(phrase) + " ";
+    }
+
+    /**
+     * Loads and compiles a JSON lexicon (see the class comment for the format).
+     */
+    static HeuristicClassifier load(Path file) throws IOException {
+        List<String> phrases = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        double bias = 0;
+        double lead = 0;
+        double slope = 1;
+        double intercept = 0;
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             JsonReader json = new JsonReader(in)) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                switch (name) {
+                    case "fake":
+                    case "real":
+                        readPhrases(json, "fake".equals(name) ? 1 : -1, phrases, weights, file);
+                        break;
+                    case "bias":
+                        bias = json.nextDouble();
+                        break;
+                    case "lead":
+                        lead = json.nextDouble();
+                        break;
+                    case "calibration":
+                        json.beginObject();
+                        while (json.hasNext()) {
+                            String field = json.nextName();
+                            if ("slope".equals(field)) {
+                                slope = json.nextDouble();
+                            } else if ("intercept".equals(field)) {
+                                intercept = json.nextDouble();
+                            } else {
+                                json.skipValue();
+                            }
+                        }
+                        json.endObject();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid lexicon " + file + ": " + e.getMessage(), e);
+        }
+        if (phrases.isEmpty()) {
+            throw new IOException("Lexicon " + file + " has no indicators");
+        }
+        double[] signed = new double[weights.size()];
+        for (int i = 0; i < signed.length; i++) {
+            signed[i] = weights.get(i);
+        }
+        try {
+            return new HeuristicClassifier(phrases, signed, bias, lead, slope, intercept,
+                file.getFileName().toString());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid lexicon " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void readPhrases(JsonReader json, int sign, List<String> phrases, List<Double> weights,
+                                    Path file) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            String phrase = null;
+            double weight = DEFAULT_WEIGHT;
+            if (json.peek() == JsonToken.BEGIN_OBJECT) {
+                json.beginObject();
+                while (json.hasNext()) {
+                    String field = json.nextName();
+                    if ("phrase".equals(field)) {
+                        phrase = json.nextString();
+                    } else if ("weight".equals(field)) {
+                        weight = json.nextDouble();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+            } else {
+                phrase = json.nextString();
+            }
+            if (phrase == null || TextNormalizer.normalize(phrase).length() == 0) {
+                throw new IOException("Indicator '" + phrase + "' in " + file + " has no letters or digits");
+            }
+            phrases.add(phrase);
+            weights.add(sign * weight);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Writes the lexicon in the format load() reads, replacing the file atomically.
+     */
+    void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.setIndent("  ");
+            json.beginObject();
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                json.name(sign > 0 ? "fake" : "real").beginArray();
+                for (int id = 0; id < phrases.length; id++) {
+                    if ((weights[id] >= 0) == (sign > 0)) {
+                        json.beginObject().name("phrase").value(phrases[id])
+                            .name("weight").value(Math.abs(weights[id])).endObject();
+                    }
+                }
+                json.endArray();
+            }
+            json.name("bias").value(bias);
+            json.name("lead").value(lead);
+            json.name("calibration").beginObject()
+                .name("slope").value(slope).name("intercept").value(intercept).endObject();
+            json.endObject();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Contribution of one matched indicator per unit of weight.
+     */
+    static double feature(int hits, int firstOffset, double lead) {
+        double frequency = Math.log(1 + hits) / Math.log(2);
+        return firstOffset < LEAD_CHARS ? frequency * (1 + lead) : frequency;
+    }
+
+    /**
+     * Finds the indicators in the text; offsets are into the normalized text.
+     * Headline prefixes are only kept as a single hit at the start.
+     */
+    IndicatorMatcher.Matches scan(CharSequence text) {
+        TextNormalizer.Normalized normalized = TextNormalizer.normalize(text);
+        // The bounded buffer starts with a space, so a phrase's offset is that of its first word
+        IndicatorMatcher.Matches matches = indicators.scan(normalized.bounded(), 0, normalized.length() + 2);
+        for (int id : prefixIds) {
+            matches.retainOnly(id, 0);
+        }
+        return matches;
+    }
+
+    /**
+     * Uncalibrated score: bias plus the weighted indicator features.
+     */
+    double score(IndicatorMatcher.Matches matches) {
+        double score = bias;
+        for (int id = 0; id < weights.length; id++) {
+            if (matches.matched(id)) {
+                score += weights[id] * feature(matches.count(id), matches.firstOffset(id), lead);
+            }
+        }
+        return score;
+    }
+
+    @Override
+    public double fakeProbability(CharSequence text) {
+        return 1.0 / (1.0 + Math.exp(-(slope * score(scan(text)) + intercept)));
+    }
+
+    int size() {
+        return phrases.length;
+    }
+
+    String phrase(int id) {
+        return phrases[id];
+    }
+
+    double weight(int id) {
+        return weights[id];
+    }
+
+    double bias() {
+        return bias;
+    }
+
+    double lead() {
+        return lead;
+    }
+
+    double slope() {
+        return slope;
+    }
+
+    double intercept() {
+        return intercept;
+    }
+
+    @Override
+    public String name() {
+        return source == null ? "heuristic" : "heuristic:" + source + " (" + phrases.length + " indicators)";
+    }
+}
@@ -0,0 +1,133 @@
+import com.sun.net.httpserver.Headers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Content-Encoding support for request and response bodies
+ *
+ * Request bodies sent with gzip or deflate are inflated on the fly.
+ * Responses are compressed with the best encoding the client accepts,
+ * using a fast compression level, since JSON shrinks well even at level 1.
+ * Only gzip and deflate (zlib) are supported; both come with the JDK.
+ */
+final class HttpCompression {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private HttpCompression() {
+    }
+
+    /**
+     * Request body encoding not supported by this server, answered with 415.
+     */
+    static class UnsupportedContentEncodingException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedContentEncodingException(String encoding) {
+            super("Unsupported Content-Encoding '" + encoding + "'. Use gzip, deflate or identity.");
+        }
+    }
+
+    /**
+     * Wraps the raw request body so it reads decoded bytes.
+     */
+    static InputStream decode(InputStream body, Headers requestHeaders) throws IOException {
+        String encoding = requestHeaders.getFirst("Content-Encoding");
+        if (encoding == null) {
+            return body;
+        }
+        switch (encoding.trim().toLowerCase()) {
+            case "":
+            case "identity":
+                return body;
+            case GZIP:
+            case "x-gzip":
+                return new GZIPInputStream(body, BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(body);
+            default:
+                throw new UnsupportedContentEncodingException(encoding);
+        }
+    }
+
+    /**
+     * Picks gzip or deflate from Accept-Encoding by quality value, preferring
+     * gzip on ties. Returns null when the client accepts neither.
+     */
+    static String negotiate(Headers requestHeaders) {
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String header : requestHeaders.getOrDefault("Accept-Encoding", List.of())) {
+            for (String part : header.split(",")) {
+                String[] params = part.split(";");
+                String coding = params[0].trim().toLowerCase();
+                double quality = 1;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(param.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+                if (GZIP.equals(coding) || "x-gzip".equals(coding)) {
+                    gzip = quality;
+                } else if (DEFLATE.equals(coding)) {
+                    deflate = quality;
+                } else if ("*".equals(coding)) {
+                    wildcard = quality;
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = wildcard;
+        }
+        if (deflate < 0) {
+            deflate = wildcard;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    /**
+     * Compressing stream over the response body. With syncFlush, flush()
+     * pushes everything written so far to the client, for streamed responses.
+     */
+    static OutputStream encode(OutputStream out, String encoding, int level, boolean syncFlush) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE, syncFlush) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE, syncFlush) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // Only the default deflater is released by DeflaterOutputStream itself
+                    deflater.end();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,352 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled Aho-Corasick automaton for the indicator phrases used by
+ * FakeNewsAPI.performDetection.
+ *
+ * The text is scanned exactly once regardless of how many indicators are
+ * registered. Case folding is baked into the character-class table, so no
+ * lowercased copy of the article is allocated and every character costs two
+ * array lookups. Instances are immutable and safe to share between threads.
+ */
+public final class IndicatorMatcher {
+
+    private static final int ROOT = 0;
+    private static final ThreadLocal<char[]> CHUNK = ThreadLocal.withInitial(() -> new char[8192]);
+
+    private final String[] patterns;
+    private final int[] patternLengths;
+
+    // Character -> class id; class 0 is "not used by any pattern"
+    private final char[] charClass;
+    private final int classCount;
+
+    // Fully resolved transitions indexed by state * classCount + class. Targets
+    // are stored premultiplied by classCount and bit-inverted when the target
+    // state emits at least one pattern, so the scan loop never multiplies.
+    private final int[] delta;
+
+    private final int[] patternAt;   // pattern ending exactly at a state, or -1
+    private final int[] firstOutput; // the state itself or nearest suffix state that ends a pattern, or -1
+    private final int[] outputLink;  // nearest proper suffix state that ends a pattern, or -1
+
+    private IndicatorMatcher(String[] patterns, char[] charClass, int classCount, int[] delta,
+                             int[] patternAt, int[] outputLink) {
+        this.patterns = patterns;
+        this.charClass = charClass;
+        this.classCount = classCount;
+        this.patternAt = patternAt;
+        this.outputLink = outputLink;
+
+        this.patternLengths = new int[patterns.length];
+        for (int id = 0; id < patterns.length; id++) {
+            patternLengths[id] = patterns[id].length();
+        }
+
+        this.firstOutput = new int[patternAt.length];
+        for (int s = 0; s < patternAt.length; s++) {
+            firstOutput[s] = patternAt[s] >= 0 ? s : outputLink[s];
+        }
+
+        this.delta = new int[delta.length];
+        for (int i = 0; i < delta.length; i++) {
+            int target = delta[i];
+            int base = target * classCount;
+            this.delta[i] = firstOutput[target] >= 0 ? ~base : base;
+        }
+    }
+
+    /**
+     * Compiles the given phrases into a matcher. Pattern ids are the indexes
+     * into the supplied list. Phrases that are equal once case is folded
+     * are rejected, since only one of their ids could ever be reported.
+     */
+    public static IndicatorMatcher compile(List<String> phrases) {
+        String[] patterns = phrases.toArray(new String[0]);
+
+        // Assign a class to every folded character that appears in a pattern
+        char[] charClass = new char[Character.MAX_VALUE + 1];
+        int classCount = 1;
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Indicator phrases must not be empty");
+            }
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                if (charClass[c] == 0) {
+                    if (classCount == Character.MAX_VALUE) {
+                        throw new IllegalArgumentException("Too many distinct characters in indicator phrases");
+                    }
+                    charClass[c] = (char) classCount++;
+                }
+            }
+        }
+        // Let every character that folds onto a pattern character share its class
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char folded = fold((char) c);
+            if (folded != c && charClass[folded] != 0) {
+                charClass[c] = charClass[folded];
+            }
+        }
+
+        // Build the trie
+        List<Map<Integer, Integer>> children = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        children.add(new HashMap<>());
+        ends.add(-1);
+
+        for (int id = 0; id < patterns.length; id++) {
+            String pattern = patterns[id];
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                int cls = charClass[fold(pattern.charAt(i))];
+                Integer next = children.get(state).get(cls);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<>());
+                    ends.add(-1);
+                    children.get(state).put(cls, next);
+                }
+                state = next;
+            }
+            if (ends.get(state) >= 0) {
+                throw new IllegalArgumentException("Duplicate indicator phrase '" + pattern + "' (ids "
+                    + ends.get(state) + " and " + id + ")");
+            }
+            ends.set(state, id);
+        }
+
+        int stateCount = children.size();
+        long tableSize = (long) stateCount * classCount;
+        if (tableSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Indicator set too large to compile: " + stateCount + " states");
+        }
+
+        int[] patternAt = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            patternAt[s] = ends.get(s);
+        }
+
+        // Breadth-first pass resolving failure transitions into the table
+        int[] delta = new int[(int) tableSize];
+        int[] failure = new int[stateCount];
+        int[] outputLink = new int[stateCount];
+        Arrays.fill(outputLink, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+
+        for (Map.Entry<Integer, Integer> edge : children.get(ROOT).entrySet()) {
+            delta[edge.getKey()] = edge.getValue();
+            queue.add(edge.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int base = state * classCount;
+            int failBase = failure[state] * classCount;
+            for (int cls = 0; cls < classCount; cls++) {
+                delta[base + cls] = delta[failBase + cls];
+            }
+            for (Map.Entry<Integer, Integer> edge : children.get(state).entrySet()) {
+                int child = edge.getValue();
+                int fs = delta[failBase + edge.getKey()];
+                failure[child] = fs;
+                outputLink[child] = patternAt[fs] >= 0 ? fs : outputLink[fs];
+                delta[base + edge.getKey()] = child;
+                queue.add(child);
+            }
+        }
+
+        return new IndicatorMatcher(patterns, charClass, classCount, delta, patternAt, outputLink);
+    }
+
+    /**
+     * Number of registered indicator phrases.
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    public String pattern(int id) {
+        return patterns[id];
+    }
+
+    /**
+     * Scans the text once and returns hit counts and start offsets for every
+     * indicator. Matching is case-insensitive and does not respect word
+     * boundaries, mirroring the previous String.contains behaviour.
+     */
+    public Matches scan(CharSequence text) {
+        Matches matches = new Matches(patterns.length);
+        int n = text.length();
+        if (text instanceof String) {
+            // Bulk-copy through a small reused buffer; far cheaper per character than charAt
+            String str = (String) text;
+            char[] chunk = CHUNK.get();
+            int base = ROOT;
+            for (int start = 0; start < n; start += chunk.length) {
+                int end = Math.min(n, start + chunk.length);
+                str.getChars(start, end, chunk, 0);
+                base = scan(chunk, 0, end - start, start, base, matches);
+            }
+        } else {
+            int base = ROOT;
+            for (int i = 0; i < n; i++) {
+                base = advance(base, text.charAt(i), i, matches);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Scans a slice of a character array. Reported offsets are relative to {@code offset}.
+     */
+    public Matches scan(char[] text, int offset, int length) {
+        Matches matches = new Matches(patterns.length);
+        scan(text, offset, length, -offset, ROOT, matches);
+        return matches;
+    }
+
+    private int scan(char[] text, int offset, int length, int position, int base, Matches matches) {
+        final char[] charClass = this.charClass;
+        final int[] delta = this.delta;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            base = delta[base + charClass[text[i]]];
+            if (base < 0) {
+                base = ~base;
+                emit(base, position + i, matches);
+            }
+        }
+        return base;
+    }
+
+    private int advance(int base, char c, int position, Matches matches) {
+        base = delta[base + charClass[c]];
+        if (base < 0) {
+            base = ~base;
+            emit(base, position, matches);
+        }
+        return base;
+    }
+
+    private void emit(int base, int position, Matches matches) {
+        int s = firstOutput[base / classCount];
+        while (s >= 0) {
+            int id = patternAt[s];
+            matches.record(id, position + 1 - patternLengths[id]);
+            s = outputLink[s];
+        }
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Per-indicator hit counts and start offsets produced by a single scan.
+     */
+    public static final class Matches {
+        private final int[] counts;
+        private final int[] firstOffsets;
+        private int[] hitIds = new int[16];
+        private int[] hitOffsets = new int[16];
+        private int hits;
+
+        Matches(int patternCount) {
+            this.counts = new int[patternCount];
+            this.firstOffsets = new int[patternCount];
+        }
+
+        private void record(int id, int offset) {
+            if (hits == hitIds.length) {
+                hitIds = Arrays.copyOf(hitIds, hits * 2);
+                hitOffsets = Arrays.copyOf(hitOffsets, hits * 2);
+            }
+            hitIds[hits] = id;
+            hitOffsets[hits] = offset;
+            hits++;
+            if (counts[id]++ == 0) {
+                firstOffsets[id] = offset;
+            }
+        }
+
+        /**
+         * Keeps the indicator's hit at the given offset, if it has one, and drops its other hits.
+         */
+        void retainOnly(int id, int offset) {
+            if (counts[id] == 0) {
+                return;
+            }
+            boolean kept = false;
+            int n = 0;
+            for (int i = 0; i < hits; i++) {
+                if (hitIds[i] == id) {
+                    if (kept || hitOffsets[i] != offset) {
+                        continue;
+                    }
+                    kept = true;
+                }
+                hitIds[n] = hitIds[i];
+                hitOffsets[n] = hitOffsets[i];
+                n++;
+            }
+            hits = n;
+            counts[id] = kept ? 1 : 0;
+        }
+
+        public int count(int id) {
+            return counts[id];
+        }
+
+        public boolean matched(int id) {
+            return counts[id] > 0;
+        }
+
+        /**
+         * Start offset of the indicator's first hit, or -1 if it did not match.
+         */
+        public int firstOffset(int id) {
+            return counts[id] > 0 ? firstOffsets[id] : -1;
+        }
+
+        /**
+         * Total number of hits across all indicators.
+         */
+        public int totalHits() {
+            return hits;
+        }
+
+        /**
+         * Number of distinct indicators in [fromId, toId) that matched at least once.
+         */
+        public int distinct(int fromId, int toId) {
+            int distinct = 0;
+            for (int id = fromId; id < toId; id++) {
+                if (counts[id] > 0) {
+                    distinct++;
+                }
+            }
+            return distinct;
+        }
+
+        /**
+         * Start offsets of every hit for the given indicator, in text order.
+         */
+        public int[] offsets(int id) {
+            int[] offsets = new int[counts[id]];
+            int n = 0;
+            for (int i = 0; i < hits; i++) {
+                if (hitIds[i] == id) {
+                    offsets[n++] = hitOffsets[i];
+                }
+            }
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets
+ *
+ * Bucket upper bounds follow a 1, 1.5, 2, 3, 4, 6, 8 ... microsecond
+ * series up to about 33 seconds, so every bucket is at most 50% wider than
+ * the one before it and the relative error stays bounded across six orders
+ * of magnitude. Each bucket is a LongAdder, so concurrent recorders never
+ * contend on a single counter. The last bucket catches everything slower.
+ */
+final class LatencyHistogram {
+
+    private static final long[] BOUNDS_NANOS = bounds(25);
+
+    private final LongAdder[] counts = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    private static long[] bounds(int octaves) {
+        long[] bounds = new long[octaves * 2 + 1];
+        for (int k = 0; k < octaves; k++) {
+            bounds[2 * k] = 1000L << k;
+            bounds[2 * k + 1] = 1500L << k;
+        }
+        bounds[octaves * 2] = 1000L << octaves;
+        return bounds;
+    }
+
+    void record(long nanos) {
+        int bucket = Arrays.binarySearch(BOUNDS_NANOS, nanos);
+        counts[bucket < 0 ? -bucket - 1 : bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Number of finite buckets; counts() has one more for the overflow bucket.
+     */
+    static int bucketCount() {
+        return BOUNDS_NANOS.length;
+    }
+
+    static long upperBoundNanos(int bucket) {
+        return BOUNDS_NANOS[bucket];
+    }
+
+    /**
+     * Per-bucket counts at roughly this instant; not cumulative.
+     */
+    long[] counts() {
+        long[] snapshot = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            snapshot[i] = counts[i].sum();
+        }
+        return snapshot;
+    }
+
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+}
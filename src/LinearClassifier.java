@@ -0,0 +1,157 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Hashed-feature TF-IDF logistic regression model
+ *
+ * Weights and IDF factors live in primitive float arrays indexed by feature
+ * bucket. Scoring an article tokenizes and hashes it into a per-thread
+ * SparseVector, so steady-state inference does not allocate.
+ *
+ * Model file layout (big-endian):
+ * <pre>
+ *   int    magic 'FNDM'
+ *   int    format version
+ *   int    feature bits
+ *   int    flags (bit 0: bigrams)
+ *   long   trained-at epoch millis
+ *   long   training documents
+ *   float  bias
+ *   float  idf[1 &lt;&lt; bits]
+ *   float  weights[1 &lt;&lt; bits]
+ * </pre>
+ */
+final class LinearClassifier implements Classifier {
+
+    static final int MAGIC = 0x464E444D; // "FNDM"
+    static final int FORMAT_VERSION = 1;
+    private static final int FLAG_BIGRAMS = 1;
+    private static final int HEADER_BYTES = 4 * 4 + 8 * 2 + 4;
+
+    private final FeatureHasher hasher;
+    private final float[] idf;
+    private final float[] weights;
+    private final float bias;
+    private final long trainedAt;
+    private final long documents;
+    private final String source;
+
+    private final ThreadLocal<SparseVector> scratch = ThreadLocal.withInitial(SparseVector::new);
+
+    LinearClassifier(FeatureHasher hasher, float[] idf, float[] weights, float bias,
+                     long trainedAt, long documents, String source) {
+        if (idf.length != hasher.buckets() || weights.length != hasher.buckets()) {
+            throw new IllegalArgumentException("Model arrays do not match " + hasher.buckets() + " buckets");
+        }
+        this.hasher = hasher;
+        this.idf = idf;
+        this.weights = weights;
+        this.bias = bias;
+        this.trainedAt = trainedAt;
+        this.documents = documents;
+        this.source = source;
+    }
+
+    /**
+     * Loads a model written by {@link #save(Path)}.
+     */
+    static LinearClassifier load(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a model file: " + file);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+        }
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a model file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported model format version " + version + " in " + file);
+        }
+        int bits = buffer.getInt();
+        int flags = buffer.getInt();
+        long trainedAt = buffer.getLong();
+        long documents = buffer.getLong();
+        float bias = buffer.getFloat();
+
+        FeatureHasher hasher = new FeatureHasher(bits, (flags & FLAG_BIGRAMS) != 0);
+        int buckets = hasher.buckets();
+        if (buffer.remaining() != buckets * 8L) {
+            throw new IOException("Truncated model file: " + file);
+        }
+        float[] idf = new float[buckets];
+        float[] weights = new float[buckets];
+        buffer.asFloatBuffer().get(idf);
+        buffer.position(buffer.position() + buckets * 4);
+        buffer.asFloatBuffer().get(weights);
+
+        return new LinearClassifier(hasher, idf, weights, bias, trainedAt, documents, file.getFileName().toString());
+    }
+
+    /**
+     * Writes the model, replacing the target file atomically.
+     */
+    void save(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(hasher.bits());
+            out.writeInt(hasher.bigrams() ? FLAG_BIGRAMS : 0);
+            out.writeLong(trainedAt);
+            out.writeLong(documents);
+            out.writeFloat(bias);
+            for (float value : idf) {
+                out.writeFloat(value);
+            }
+            for (float value : weights) {
+                out.writeFloat(value);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public double fakeProbability(CharSequence text) {
+        SparseVector vector = scratch.get();
+        vector.clear();
+        hasher.hash(text, vector);
+        vector.finish(idf);
+        return sigmoid(bias + vector.dot(weights));
+    }
+
+    static double sigmoid(double z) {
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+
+    @Override
+    public String name() {
+        return "linear:" + source + " (" + hasher.buckets() + " features, " + documents + " docs)";
+    }
+
+    FeatureHasher hasher() {
+        return hasher;
+    }
+
+    long trainedAt() {
+        return trainedAt;
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Line-oriented access to very large files through memory mapping
+ *
+ * A file is split into chunks that always end on a record boundary ('\n'),
+ * so each chunk can be mapped and decoded independently by a different
+ * thread. Nothing but the current chunk's mapping and one decoded line per
+ * thread is ever resident, regardless of the file size.
+ */
+final class MappedRecords {
+
+    private static final int SCAN_WINDOW = 64 * 1024;
+
+    private MappedRecords() {
+    }
+
+    /**
+     * A byte range of the file that starts and ends on a record boundary.
+     */
+    static final class Chunk {
+        final int index;
+        final long start;
+        final long length;
+
+        Chunk(int index, long start, long length) {
+            this.index = index;
+            this.start = start;
+            this.length = length;
+        }
+
+        MappedByteBuffer map(FileChannel channel) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+    }
+
+    /**
+     * Receives each non-empty line of a chunk. The CharBuffer is reused for
+     * the next line, so it must not be retained.
+     */
+    interface LineVisitor {
+        void line(long offset, CharBuffer line) throws IOException;
+    }
+
+    /**
+     * Splits the file into chunks of roughly targetBytes, extending each one
+     * to the end of the record it would otherwise cut in half.
+     */
+    static List<Chunk> split(FileChannel channel, long targetBytes) throws IOException {
+        if (targetBytes <= 0 || targetBytes > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Chunk size out of range: " + targetBytes);
+        }
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer window = ByteBuffer.allocate(SCAN_WINDOW);
+
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + targetBytes);
+            if (end < size) {
+                end = nextLineStart(channel, end, window);
+            }
+            if (end - start > Integer.MAX_VALUE) {
+                throw new IOException("Record at offset " + start + " exceeds 2 GB");
+            }
+            chunks.add(new Chunk(chunks.size(), start, end - start));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer window) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            window.clear();
+            int n = channel.read(window, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    /**
+     * Maps the chunk and decodes it line by line as UTF-8. Carriage returns
+     * before the newline are dropped and malformed bytes are replaced.
+     */
+    static void forEachLine(FileChannel channel, Chunk chunk, LineDecoder decoder, LineVisitor visitor)
+            throws IOException {
+        MappedByteBuffer buffer = chunk.map(channel);
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i == limit || buffer.get(i) == '\n') {
+                int lineEnd = i;
+                if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                if (lineEnd > lineStart) {
+                    visitor.line(chunk.start + lineStart, decoder.decode(buffer, lineStart, lineEnd));
+                }
+                lineStart = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Per-thread UTF-8 decoder with a growable output buffer.
+     */
+    static final class LineDecoder {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private CharBuffer chars = CharBuffer.allocate(4096);
+
+        CharBuffer decode(ByteBuffer source, int from, int to) throws CharacterCodingException {
+            ByteBuffer bytes = source.duplicate();
+            bytes.limit(to).position(from);
+            int needed = to - from;
+            if (chars.capacity() < needed) {
+                chars = CharBuffer.allocate(Math.max(needed, chars.capacity() * 2));
+            }
+            chars.clear();
+            decoder.reset();
+            CoderResult result = decoder.decode(bytes, chars, true);
+            if (result.isError()) {
+                result.throwException();
+            }
+            decoder.flush(chars);
+            chars.flip();
+            return chars;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MinHash + LSH index over recently scored articles
+ *
+ * Articles are reduced to word 3-gram shingles and summarized with a
+ * one-permutation MinHash signature: every shingle is hashed once and
+ * keeps the minimum per bin, and empty bins borrow from their neighbour.
+ * Signatures live in a flat int[] ring buffer. Each LSH band has a
+ * primitive open-addressed table from band hash to ring slot, so the
+ * index allocates nothing per article beyond the signature being built.
+ *
+ * A lookup collects the slots that share at least one band, estimates
+ * Jaccard similarity from the full signatures, and returns the best match
+ * above the threshold.
+ */
+final class NearDuplicateIndex<V> {
+
+    static final int SIGNATURE_SIZE = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS = SIGNATURE_SIZE / BANDS;
+    private static final int MIN_SHINGLES = 8;
+    private static final long EMPTY = 0;
+
+    private final int capacity;
+    private final double threshold;
+
+    // Ring buffer of entries
+    private final int[] signatures;
+    private final String[] ids;
+    private final Object[] values;
+    private int next;
+    private int size;
+
+    // Per band: open-addressed band hash -> slot, EMPTY key marks a free cell
+    private final int tableMask;
+    private final long[][] bandKeys;
+    private final int[][] bandSlots;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+
+    NearDuplicateIndex(int capacity, double threshold) {
+        this.capacity = capacity;
+        this.threshold = threshold;
+        this.signatures = new int[capacity * SIGNATURE_SIZE];
+        this.ids = new String[capacity];
+        this.values = new Object[capacity];
+
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+        this.tableMask = tableSize - 1;
+        this.bandKeys = new long[BANDS][tableSize];
+        this.bandSlots = new int[BANDS][tableSize];
+    }
+
+    /**
+     * A previously indexed article similar enough to the query.
+     */
+    static final class Match<V> {
+        final String id;
+        final V value;
+        final double similarity;
+
+        Match(String id, V value, double similarity) {
+            this.id = id;
+            this.value = value;
+            this.similarity = similarity;
+        }
+    }
+
+    /**
+     * Computes the signature of the text, or returns null when the text is
+     * too short for a meaningful comparison.
+     */
+    static int[] signature(CharSequence text) {
+        long[] mins = new long[SIGNATURE_SIZE];
+        Arrays.fill(mins, Long.MAX_VALUE);
+
+        long t1 = 0;
+        long t2 = 0;
+        int tokens = 0;
+        int shingles = 0;
+        long h = 0;
+        boolean inToken = false;
+
+        for (int i = 0, n = text.length(); i <= n; i++) {
+            char c = i < n ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                h = (h ^ fold(c)) * 0x100000001B3L;
+                inToken = true;
+            } else if (inToken) {
+                long t3 = fmix(h);
+                if (++tokens >= 3) {
+                    long shingle = fmix(t1 * 31 * 31 + t2 * 31 + t3);
+                    int bin = (int) (shingle >>> 58);
+                    long value = shingle & 0x03FFFFFFFFFFFFFFL;
+                    if (value < mins[bin]) {
+                        mins[bin] = value;
+                    }
+                    shingles++;
+                }
+                t1 = t2;
+                t2 = t3;
+                h = 0;
+                inToken = false;
+            }
+        }
+
+        if (shingles < MIN_SHINGLES) {
+            return null;
+        }
+
+        // Densify: empty bins take the next non-empty bin's value, salted by distance
+        int[] signature = new int[SIGNATURE_SIZE];
+        for (int bin = 0; bin < SIGNATURE_SIZE; bin++) {
+            int source = bin;
+            int distance = 0;
+            while (mins[source] == Long.MAX_VALUE) {
+                source = (source + 1) % SIGNATURE_SIZE;
+                distance++;
+            }
+            signature[bin] = (int) fmix(mins[source] + distance * 0x9E3779B97F4A7C15L);
+        }
+        return signature;
+    }
+
+    /**
+     * Best indexed match with estimated Jaccard similarity at or above the threshold.
+     */
+    Match<V> find(int[] signature) {
+        lookups.increment();
+        lock.readLock().lock();
+        try {
+            int bestSlot = -1;
+            double bestSimilarity = 0;
+            for (int band = 0; band < BANDS; band++) {
+                int slot = lookupBand(band, bandHash(signature, 0, band));
+                if (slot < 0 || slot == bestSlot) {
+                    continue;
+                }
+                double similarity = similarity(signature, slot);
+                if (similarity > bestSimilarity) {
+                    bestSimilarity = similarity;
+                    bestSlot = slot;
+                }
+            }
+            if (bestSlot < 0 || bestSimilarity < threshold) {
+                return null;
+            }
+            matches.increment();
+            @SuppressWarnings("unchecked")
+            V value = (V) values[bestSlot];
+            return new Match<>(ids[bestSlot], value, bestSimilarity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an article, evicting the oldest one once the ring is full.
+     */
+    void add(int[] signature, String id, V value) {
+        lock.writeLock().lock();
+        try {
+            int slot = next;
+            if (ids[slot] != null) {
+                for (int band = 0; band < BANDS; band++) {
+                    removeBand(band, bandHash(signatures, slot * SIGNATURE_SIZE, band), slot);
+                }
+            } else {
+                size++;
+            }
+            System.arraycopy(signature, 0, signatures, slot * SIGNATURE_SIZE, SIGNATURE_SIZE);
+            ids[slot] = id;
+            values[slot] = value;
+            for (int band = 0; band < BANDS; band++) {
+                insertBand(band, bandHash(signature, 0, band), slot);
+            }
+            next = (slot + 1) % capacity;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forgets every indexed article.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(ids, null);
+            Arrays.fill(values, null);
+            for (long[] keys : bandKeys) {
+                Arrays.fill(keys, EMPTY);
+            }
+            next = 0;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double similarity(int[] signature, int slot) {
+        int base = slot * SIGNATURE_SIZE;
+        int equal = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (signatures[base + i] == signature[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) SIGNATURE_SIZE;
+    }
+
+    private static long bandHash(int[] source, int offset, int band) {
+        long h = band * 0x9E3779B97F4A7C15L;
+        for (int row = 0; row < ROWS; row++) {
+            h = fmix(h ^ (source[offset + band * ROWS + row] & 0xFFFFFFFFL));
+        }
+        return h == EMPTY ? 1 : h;
+    }
+
+    private int lookupBand(int band, long key) {
+        long[] keys = bandKeys[band];
+        for (int i = (int) key & tableMask; keys[i] != EMPTY; i = (i + 1) & tableMask) {
+            if (keys[i] == key) {
+                return bandSlots[band][i];
+            }
+        }
+        return -1;
+    }
+
+    private void insertBand(int band, long key, int slot) {
+        long[] keys = bandKeys[band];
+        int i = (int) key & tableMask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & tableMask;
+        }
+        // An existing key now points at the newer article
+        keys[i] = key;
+        bandSlots[band][i] = slot;
+    }
+
+    /**
+     * Removes the key if it still points at the slot, using backward-shift
+     * deletion so probe chains stay intact without tombstones.
+     */
+    private void removeBand(int band, long key, int slot) {
+        long[] keys = bandKeys[band];
+        int[] slots = bandSlots[band];
+        int i = (int) key & tableMask;
+        while (keys[i] != key) {
+            if (keys[i] == EMPTY) {
+                return;
+            }
+            i = (i + 1) & tableMask;
+        }
+        if (slots[i] != slot) {
+            return;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & tableMask; keys[j] != EMPTY; j = (j + 1) & tableMask) {
+            int home = (int) keys[j] & tableMask;
+            // Move j into the hole if its home position is not in (hole, j]
+            if (((j - home) & tableMask) >= ((j - hole) & tableMask)) {
+                keys[hole] = keys[j];
+                slots[hole] = slots[j];
+                hole = j;
+            }
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long lookups() {
+        return lookups.sum();
+    }
+
+    long matches() {
+        return matches.sum();
+    }
+}
@@ -0,0 +1,384 @@
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HttpExchange for a request read by NioHttpServer
+ *
+ * The request body is already fully buffered. The response status line,
+ * headers and the first part of the body are collected in one byte array
+ * and handed to the connection's event loop in a single buffer, so small
+ * responses go out in one write. Larger bodies are handed over as the
+ * buffer fills, with chunked framing when no length was given.
+ */
+final class NioExchange extends HttpExchange {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final NioHttpServer.Connection connection;
+    private final HttpContext context;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final boolean keepAlive;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private InputStream requestBody;
+    private final ResponseBody responseBody = new ResponseBody();
+    private OutputStream responseStream = responseBody;
+    private int responseCode = -1;
+
+    NioExchange(NioHttpServer.Connection connection, HttpContext context, String method, String target,
+                String protocol, Headers requestHeaders, byte[] body, int bodyLength, boolean keepAlive) {
+        this.connection = connection;
+        this.context = context;
+        this.method = method;
+        this.uri = URI.create(target);
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body, 0, bodyLength);
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Runs the handler chain on the calling thread and completes the response.
+     */
+    void handle(Filter.Chain chain) {
+        try {
+            if (chain == null) {
+                sendResponseHeaders(404, -1);
+            } else {
+                chain.doFilter(this);
+            }
+            if (responseCode == -1) {
+                // The handler never answered; HttpServer would drop the connection too
+                sendResponseHeaders(500, -1);
+            }
+            responseBody.close();
+        } catch (Throwable e) {
+            if (responseCode == -1) {
+                try {
+                    sendResponseHeaders(500, -1);
+                    return;
+                } catch (IOException ignored) {
+                    // Connection is gone
+                }
+            }
+            responseBody.abort();
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        try {
+            responseStream.close();
+        } catch (IOException e) {
+            responseBody.abort();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseStream;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode != -1) {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+
+        boolean noBody = responseLength == -1 || rCode == 204 || rCode == 304 || "HEAD".equals(method);
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(reason(rCode)).append("\r\n");
+        head.append("Date: ").append(httpDate()).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (noBody) {
+            if (rCode != 204 && rCode != 304) {
+                head.append("Content-Length: 0\r\n");
+            }
+        } else if (responseLength > 0) {
+            head.append("Content-Length: ").append(responseLength).append("\r\n");
+        } else {
+            head.append("Transfer-Encoding: chunked\r\n");
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+
+        responseBody.start(head.toString().getBytes(StandardCharsets.ISO_8859_1),
+            noBody ? 0 : responseLength, !noBody && responseLength == 0);
+        if (noBody) {
+            responseBody.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseStream = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * Response body buffer in front of the connection's output queue.
+     */
+    private final class ResponseBody extends OutputStream {
+        private byte[] buffer;
+        private int count;
+        private int bodyStart;
+        private long remaining;
+        private boolean fixedLength;
+        private boolean chunked;
+        private boolean started;
+        private boolean closed;
+
+        void start(byte[] head, long length, boolean chunked) {
+            this.buffer = Arrays.copyOf(head, Math.max(BUFFER_SIZE, head.length));
+            this.count = head.length;
+            this.bodyStart = head.length;
+            this.fixedLength = length > 0;
+            this.remaining = length;
+            this.chunked = chunked;
+            this.started = true;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            if (!started) {
+                throw new IOException("response headers not sent yet");
+            }
+            if (closed) {
+                throw new IOException("stream is closed");
+            }
+            if (fixedLength && length > remaining) {
+                throw new IOException("too many bytes to write to stream");
+            }
+            if (!fixedLength && !chunked && length > 0) {
+                throw new IOException("response has no body");
+            }
+            remaining -= length;
+            if (count + length > buffer.length) {
+                handOff();
+                if (length >= BUFFER_SIZE) {
+                    // Large writes skip the buffer; the caller may reuse its array, so copy once
+                    connection.enqueue(frame(b, offset, length, 0));
+                    return;
+                }
+            }
+            System.arraycopy(b, offset, buffer, count, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (started && !closed) {
+                handOff();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed || !started) {
+                return;
+            }
+            closed = true;
+            boolean truncated = fixedLength && remaining > 0;
+            if (chunked) {
+                byte[] last = LAST_CHUNK;
+                handOff();
+                connection.enqueue(ByteBuffer.wrap(last));
+            } else {
+                handOff();
+            }
+            // A short fixed-length body leaves the client waiting; closing tells it
+            connection.finish(!keepAlive || truncated);
+        }
+
+        /**
+         * Something went wrong mid-response; the connection cannot be reused.
+         */
+        void abort() {
+            if (!closed) {
+                closed = true;
+                connection.finish(true);
+            }
+        }
+
+        /**
+         * Passes the buffered bytes to the connection and starts a new buffer.
+         */
+        private void handOff() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            ByteBuffer out = chunked && count > bodyStart
+                ? frame(buffer, bodyStart, count - bodyStart, bodyStart)
+                : ByteBuffer.wrap(buffer, 0, count);
+            buffer = new byte[BUFFER_SIZE];
+            count = 0;
+            bodyStart = 0;
+            connection.enqueue(out);
+        }
+
+        /**
+         * Copies body bytes, chunk-framed if needed, after `prefix` bytes of
+         * the current buffer (the response head on the first hand-off).
+         */
+        private ByteBuffer frame(byte[] b, int offset, int length, int prefix) {
+            if (!chunked) {
+                return ByteBuffer.wrap(Arrays.copyOfRange(b, offset, offset + length));
+            }
+            byte[] size = (Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            byte[] framed = new byte[prefix + size.length + length + 2];
+            System.arraycopy(buffer, 0, framed, 0, prefix);
+            System.arraycopy(size, 0, framed, prefix, size.length);
+            System.arraycopy(b, offset, framed, prefix + size.length, length);
+            framed[framed.length - 2] = '\r';
+            framed[framed.length - 1] = '\n';
+            return ByteBuffer.wrap(framed);
+        }
+    }
+
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static volatile long dateSecond;
+    private static volatile String dateValue;
+
+    /**
+     * RFC 1123 date, formatted at most once per second.
+     */
+    private static String httpDate() {
+        long second = System.currentTimeMillis() / 1000;
+        String value = dateValue;
+        if (value == null || second != dateSecond) {
+            value = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            dateValue = value;
+            dateSecond = second;
+        }
+        return value;
+    }
+
+    static String reason(int status) {
+        switch (status) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 415: return "Unsupported Media Type";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            default: return "Status";
+        }
+    }
+}
@@ -0,0 +1,788 @@
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Selector-based HTTP/1.1 front end, an alternative to HttpServer
+ *
+ * An acceptor thread hands new connections round-robin to a fixed set of
+ * event loops, normally one per core. Each loop owns its connections: it
+ * reads and parses requests, buffers the body, and writes responses with
+ * non-blocking I/O. Complete requests run on the same Executor as with
+ * HttpServer, through the same contexts, filters and HttpHandlers, via
+ * NioExchange. Responses are queued back to the owning loop.
+ *
+ * Connections are kept alive unless the client asks otherwise, and
+ * pipelined requests are answered in order: while one request is being
+ * handled the loop stops reading from that connection.
+ *
+ * Each context may have its own body limit, checked against the declared
+ * Content-Length as soon as the headers are parsed. Bodies are buffered in
+ * an array that grows as bytes arrive, so a client declaring a large body
+ * costs memory only for what it actually sends.
+ */
+final class NioHttpServer {
+
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final int INITIAL_BODY_BYTES = 8 * 1024;
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private final InetSocketAddress address;
+    private final int backlog;
+    private final Executor executor;
+    private final long maxBodyBytes;
+    private final EventLoop[] loops;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    NioHttpServer(InetSocketAddress address, int backlog, int loops, Executor executor, long maxBodyBytes)
+            throws IOException {
+        this.address = address;
+        this.backlog = backlog;
+        this.executor = executor;
+        this.maxBodyBytes = Math.min(maxBodyBytes, Integer.MAX_VALUE - 8);
+        this.loops = new EventLoop[Math.max(1, loops)];
+        for (int i = 0; i < this.loops.length; i++) {
+            this.loops[i] = new EventLoop(i);
+        }
+    }
+
+    /**
+     * Registers a handler for a path prefix; the longest matching prefix wins,
+     * as with HttpServer.
+     */
+    HttpContext createContext(String path, HttpHandler handler) {
+        return createContext(path, handler, maxBodyBytes);
+    }
+
+    /**
+     * Registers a handler whose requests may carry bodies of up to maxBodyBytes.
+     */
+    HttpContext createContext(String path, HttpHandler handler, long maxBodyBytes) {
+        Context context = new Context(path, handler, Math.min(maxBodyBytes, Integer.MAX_VALUE - 8));
+        contexts.add(context);
+        return context;
+    }
+
+    /**
+     * Body limit for a request target: its context's, or the server's when no context matches.
+     */
+    private long bodyLimit(Context context) {
+        return context != null ? context.maxBodyBytes : maxBodyBytes;
+    }
+
+    void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, backlog);
+        running = true;
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+        acceptor = new Thread(this::accept, "nio-acceptor");
+        acceptor.start();
+    }
+
+    void stop() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    int loopCount() {
+        return loops.length;
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                EventLoop loop = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                loop.accepted.add(channel);
+                loop.selector.wakeup();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Context findContext(String path) {
+        Context best = null;
+        for (Context context : contexts) {
+            if (path.startsWith(context.path)
+                    && (best == null || context.path.length() > best.path.length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One selector thread and the connections it owns.
+     */
+    private final class EventLoop implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Connection> writable = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-loop-" + index);
+        }
+
+        @Override
+        public void run() {
+            long lastIdleCheck = System.nanoTime();
+            while (running) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MILLIS);
+                    registerAccepted();
+                    flushWritable();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        if (!key.isValid()) {
+                            connection.close();
+                            continue;
+                        }
+                        if (key.isWritable()) {
+                            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                            connection.flush();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                    }
+                    // Responses produced on this thread while handling the keys
+                    flushWritable();
+
+                    long now = System.nanoTime();
+                    if (now - lastIdleCheck > TimeUnit.SECONDS.toNanos(1)) {
+                        closeIdle(now);
+                        lastIdleCheck = now;
+                    }
+                } catch (IOException e) {
+                    System.err.println("❌ Event loop error: " + e.getMessage());
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Shutting down
+            }
+        }
+
+        private void registerAccepted() {
+            SocketChannel channel;
+            while ((channel = accepted.poll()) != null) {
+                try {
+                    Connection connection = new Connection(this, channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // Never registered
+                    }
+                }
+            }
+        }
+
+        private void flushWritable() {
+            Connection connection;
+            while ((connection = writable.poll()) != null) {
+                connection.writeScheduled.set(false);
+                connection.flush();
+            }
+        }
+
+        private void closeIdle(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection.state != State.HANDLING && now - connection.lastActive > IDLE_TIMEOUT_NANOS) {
+                    connection.close();
+                }
+            }
+        }
+
+        void scheduleWrite(Connection connection) {
+            if (connection.writeScheduled.compareAndSet(false, true)) {
+                writable.add(connection);
+                if (Thread.currentThread() != thread) {
+                    selector.wakeup();
+                }
+            }
+        }
+    }
+
+    private enum State { HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, HANDLING }
+
+    // Queue markers: response finished, keep or close the connection
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+    private static final ByteBuffer END_AND_CLOSE = ByteBuffer.allocate(0);
+
+    private static final long HIGH_WATER_BYTES = 1024 * 1024;
+
+    /**
+     * A client connection. Reading, parsing and socket writes happen on the
+     * owning loop; handler threads only append to the output queue.
+     */
+    final class Connection {
+        private final EventLoop loop;
+        private final SocketChannel channel;
+        private final InetSocketAddress remoteAddress;
+        private final InetSocketAddress localAddress;
+        private SelectionKey key;
+
+        private byte[] in = new byte[8 * 1024];
+        private int inStart;
+        private int inEnd;
+        private int headerScan;
+
+        private State state = State.HEADERS;
+        private long lastActive = System.nanoTime();
+        private volatile boolean closed;
+
+        // Request being read
+        private String method;
+        private String target;
+        private String protocol;
+        private Headers headers;
+        private boolean keepAlive;
+        private Context context;
+        private long bodyLimit;
+        private byte[] body;
+        private int bodyLength;
+        // Declared Content-Length; the body array grows towards it as bytes arrive
+        private int expectedLength;
+        private long chunkRemaining;
+
+        private final ConcurrentLinkedQueue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        private final AtomicLong queuedBytes = new AtomicLong();
+        final AtomicBoolean writeScheduled = new AtomicBoolean();
+
+        Connection(EventLoop loop, SocketChannel channel) throws IOException {
+            this.loop = loop;
+            this.channel = channel;
+            this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+            this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        }
+
+        InetSocketAddress remoteAddress() {
+            return remoteAddress;
+        }
+
+        InetSocketAddress localAddress() {
+            return localAddress;
+        }
+
+        private void onReadable() {
+            lastActive = System.nanoTime();
+            try {
+                int n;
+                if (state == State.BODY && inStart == inEnd) {
+                    // Large bodies are read straight into the body array
+                    growBody(expectedLength);
+                    n = channel.read(ByteBuffer.wrap(body, bodyLength, body.length - bodyLength));
+                    if (n > 0) {
+                        bodyLength += n;
+                    }
+                } else {
+                    makeRoom();
+                    n = channel.read(ByteBuffer.wrap(in, inEnd, in.length - inEnd));
+                    if (n > 0) {
+                        inEnd += n;
+                    }
+                }
+                if (n < 0) {
+                    close();
+                    return;
+                }
+                parse();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * Makes room for more body bytes, doubling the array up to needed
+         * bytes; never allocates beyond what the request may still send.
+         */
+        private void growBody(long needed) {
+            if (bodyLength < body.length || body.length >= needed) {
+                return;
+            }
+            body = Arrays.copyOf(body, (int) Math.min(needed, Math.max(body.length * 2L, INITIAL_BODY_BYTES)));
+        }
+
+        private void makeRoom() {
+            if (inEnd < in.length) {
+                return;
+            }
+            if (inStart > 0) {
+                System.arraycopy(in, inStart, in, 0, inEnd - inStart);
+                headerScan -= inStart;
+                inEnd -= inStart;
+                inStart = 0;
+            } else {
+                in = Arrays.copyOf(in, in.length * 2);
+            }
+        }
+
+        /**
+         * Advances the request state machine over the buffered bytes and
+         * dispatches the request once it is complete.
+         */
+        private void parse() throws IOException {
+            while (!closed) {
+                switch (state) {
+                    case HEADERS:
+                        if (!parseHeaders()) {
+                            return;
+                        }
+                        break;
+                    case BODY: {
+                        while (inStart < inEnd && bodyLength < expectedLength) {
+                            growBody(expectedLength);
+                            int take = Math.min(inEnd - inStart, body.length - bodyLength);
+                            System.arraycopy(in, inStart, body, bodyLength, take);
+                            inStart += take;
+                            bodyLength += take;
+                        }
+                        if (bodyLength < expectedLength) {
+                            return;
+                        }
+                        dispatch();
+                        return;
+                    }
+                    case CHUNK_SIZE: {
+                        int eol = indexOfCrlf(inStart);
+                        if (eol < 0) {
+                            return;
+                        }
+                        String line = new String(in, inStart, eol - inStart, StandardCharsets.ISO_8859_1);
+                        inStart = eol + 2;
+                        int ext = line.indexOf(';');
+                        try {
+                            chunkRemaining = Long.parseLong((ext >= 0 ? line.substring(0, ext) : line).trim(), 16);
+                        } catch (NumberFormatException e) {
+                            reject(400, "Invalid chunk size");
+                            return;
+                        }
+                        if (chunkRemaining == 0) {
+                            state = State.TRAILERS;
+                        } else if (bodyLength + chunkRemaining > bodyLimit) {
+                            reject(413, "Request body exceeds the maximum of " + bodyLimit + " bytes");
+                            return;
+                        } else {
+                            state = State.CHUNK_DATA;
+                        }
+                        break;
+                    }
+                    case CHUNK_DATA: {
+                        // The chunk size is only a claim too; grow with the data, not ahead of it
+                        while (inStart < inEnd && chunkRemaining > 0) {
+                            growBody(bodyLength + chunkRemaining);
+                            int take = (int) Math.min(Math.min(inEnd - inStart, chunkRemaining), body.length - bodyLength);
+                            System.arraycopy(in, inStart, body, bodyLength, take);
+                            inStart += take;
+                            bodyLength += take;
+                            chunkRemaining -= take;
+                        }
+                        if (chunkRemaining > 0) {
+                            return;
+                        }
+                        state = State.CHUNK_END;
+                        break;
+                    }
+                    case CHUNK_END:
+                        if (inEnd - inStart < 2) {
+                            return;
+                        }
+                        // Anything else means the chunk size was wrong, and the next size line would be misread
+                        if (in[inStart] != '\r' || in[inStart + 1] != '\n') {
+                            reject(400, "Chunk data not followed by CRLF");
+                            return;
+                        }
+                        inStart += 2;
+                        state = State.CHUNK_SIZE;
+                        break;
+                    case TRAILERS: {
+                        int eol = indexOfCrlf(inStart);
+                        if (eol < 0) {
+                            return;
+                        }
+                        boolean last = eol == inStart;
+                        inStart = eol + 2;
+                        if (last) {
+                            dispatch();
+                            return;
+                        }
+                        break;
+                    }
+                    case HANDLING:
+                        return;
+                }
+            }
+        }
+
+        private boolean parseHeaders() throws IOException {
+            int end = -1;
+            for (int i = Math.max(inStart, headerScan); i + 3 < inEnd; i++) {
+                if (in[i] == '\r' && in[i + 1] == '\n' && in[i + 2] == '\r' && in[i + 3] == '\n') {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0) {
+                headerScan = Math.max(inStart, inEnd - 3);
+                if (inEnd - inStart > MAX_HEADER_BYTES) {
+                    reject(431, "Request headers too large");
+                }
+                return false;
+            }
+
+            String[] lines = new String(in, inStart, end - inStart, StandardCharsets.ISO_8859_1).split("\r\n");
+            inStart = end + 4;
+            headerScan = inStart;
+
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                reject(400, "Malformed request line");
+                return false;
+            }
+            method = requestLine[0];
+            target = requestLine[1];
+            protocol = requestLine[2];
+            headers = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    reject(400, "Malformed header");
+                    return false;
+                }
+                headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+
+            String connection = headers.getFirst("Connection");
+            keepAlive = "HTTP/1.1".equals(protocol)
+                ? !"close".equalsIgnoreCase(connection)
+                : "keep-alive".equalsIgnoreCase(connection);
+
+            int query = target.indexOf('?');
+            context = findContext(query >= 0 ? target.substring(0, query) : target);
+            bodyLimit = bodyLimit(context);
+
+            String transferEncoding = headers.getFirst("Transfer-Encoding");
+            String contentLength = headers.getFirst("Content-Length");
+            bodyLength = 0;
+            if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked")) {
+                body = new byte[INITIAL_BODY_BYTES];
+                state = State.CHUNK_SIZE;
+            } else {
+                long length;
+                try {
+                    length = contentLength != null ? Long.parseLong(contentLength.trim()) : 0;
+                } catch (NumberFormatException e) {
+                    reject(400, "Invalid Content-Length");
+                    return false;
+                }
+                if (length < 0 || length > bodyLimit) {
+                    reject(413, "Request body exceeds the maximum of " + bodyLimit + " bytes");
+                    return false;
+                }
+                expectedLength = (int) length;
+                body = new byte[(int) Math.min(length, INITIAL_BODY_BYTES)];
+                state = State.BODY;
+            }
+
+            if ("100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+                enqueue(ByteBuffer.wrap(CONTINUE));
+            }
+            return true;
+        }
+
+        private int indexOfCrlf(int from) {
+            for (int i = from; i + 1 < inEnd; i++) {
+                if (in[i] == '\r' && in[i + 1] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void dispatch() {
+            state = State.HANDLING;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+
+            Context context = this.context;
+            NioExchange exchange;
+            try {
+                exchange = new NioExchange(this, context, method, target, protocol, headers,
+                    body, bodyLength, keepAlive);
+            } catch (IllegalArgumentException e) {
+                reject(400, "Malformed request target");
+                return;
+            }
+            body = null;
+            headers = null;
+            this.context = null;
+            if (context == null) {
+                executor.execute(() -> exchange.handle(null));
+            } else {
+                executor.execute(() -> exchange.handle(new Filter.Chain(context.getFilters(), context.getHandler())));
+            }
+        }
+
+        /**
+         * Answers a request that never reached a handler and closes the connection.
+         */
+        private void reject(int status, String message) {
+            state = State.HANDLING;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            byte[] json = ("{\"error\":\"" + message + "\",\"status\":" + status + "}")
+                .getBytes(StandardCharsets.UTF_8);
+            String head = "HTTP/1.1 " + status + " " + NioExchange.reason(status) + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + json.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+            byte[] head0 = head.getBytes(StandardCharsets.ISO_8859_1);
+            byte[] response = Arrays.copyOf(head0, head0.length + json.length);
+            System.arraycopy(json, 0, response, head0.length, json.length);
+            out.add(ByteBuffer.wrap(response));
+            queuedBytes.addAndGet(response.length);
+            out.add(END_AND_CLOSE);
+            flush();
+        }
+
+        /**
+         * Queues response bytes; called by handler threads. Blocks while the
+         * client is far behind, unless called on the loop thread itself.
+         */
+        void enqueue(ByteBuffer buffer) throws IOException {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            out.add(buffer);
+            long queued = queuedBytes.addAndGet(buffer.remaining());
+            loop.scheduleWrite(this);
+            if (queued > HIGH_WATER_BYTES && Thread.currentThread() != loop.thread) {
+                synchronized (this) {
+                    while (queuedBytes.get() > HIGH_WATER_BYTES && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while writing response");
+                        }
+                    }
+                }
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+
+        /**
+         * Marks the end of the current response.
+         */
+        void finish(boolean close) {
+            out.add(close ? END_AND_CLOSE : END);
+            loop.scheduleWrite(this);
+        }
+
+        /**
+         * Writes queued buffers until the socket would block; loop thread only.
+         */
+        private void flush() {
+            if (closed) {
+                return;
+            }
+            try {
+                ByteBuffer buffer;
+                while ((buffer = out.peek()) != null) {
+                    if (buffer == END || buffer == END_AND_CLOSE) {
+                        out.poll();
+                        if (buffer == END_AND_CLOSE) {
+                            close();
+                            return;
+                        }
+                        nextRequest();
+                        if (closed || state == State.HANDLING) {
+                            return;
+                        }
+                        continue;
+                    }
+                    int written = channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        drained(written);
+                        return;
+                    }
+                    out.poll();
+                    drained(written);
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void drained(int bytes) {
+            lastActive = System.nanoTime();
+            long before = queuedBytes.getAndAdd(-bytes);
+            if (before > HIGH_WATER_BYTES && before - bytes <= HIGH_WATER_BYTES) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        private void nextRequest() throws IOException {
+            state = State.HEADERS;
+            method = null;
+            target = null;
+            if (inStart == inEnd) {
+                inStart = 0;
+                inEnd = 0;
+                headerScan = 0;
+                if (in.length > 64 * 1024) {
+                    in = new byte[8 * 1024];
+                }
+            }
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+            // A pipelined request may already be buffered
+            parse();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Context registered on this server; getServer() has no HttpServer to return.
+     */
+    private static final class Context extends HttpContext {
+        private final String path;
+        private final long maxBodyBytes;
+        private HttpHandler handler;
+        private Authenticator authenticator;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final List<Filter> filters = new ArrayList<>();
+
+        Context(String path, HttpHandler handler, long maxBodyBytes) {
+            this.path = path;
+            this.maxBodyBytes = maxBodyBytes;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            Authenticator previous = authenticator;
+            authenticator = auth;
+            return previous;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+    }
+}
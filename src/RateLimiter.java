@@ -0,0 +1,81 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-client token buckets for request rate limiting
+ *
+ * Each client gets a bucket of up to burst tokens that refills at rate
+ * tokens per second; a request takes one token or is refused with the
+ * time until the next one. A bucket is stored as a single AtomicLong, the
+ * time at which it will be full again (the generic cell rate algorithm),
+ * so refilling and taking a token is one compareAndSet with no lock and no
+ * timer. A bucket whose full time has passed holds nothing a fresh bucket
+ * would not, so idle clients are swept from the map without changing any
+ * decision, and the map only holds clients seen within the last burst.
+ */
+final class RateLimiter {
+
+    private static final long SWEEP_INTERVAL_NANOS = 10_000_000_000L;
+
+    private final long tokenNanos;
+    private final long burstNanos;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+
+    RateLimiter(double perSecond, int burst) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate-limit and rate-burst must be positive");
+        }
+        this.tokenNanos = Math.max(1, (long) (1e9 / perSecond));
+        this.burstNanos = tokenNanos * burst;
+    }
+
+    /**
+     * Takes a token from the client's bucket. Returns 0 if the request may
+     * proceed, otherwise the nanoseconds until a token will be available.
+     */
+    long acquire(String client, long now) {
+        AtomicLong fullAt = buckets.get(client);
+        if (fullAt == null) {
+            fullAt = buckets.computeIfAbsent(client, key -> new AtomicLong(now));
+        }
+        long wait;
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + tokenNanos;
+            wait = next - burstNanos - now;
+            if (wait > 0 || fullAt.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        if (wait > 0) {
+            limited.increment();
+        } else {
+            allowed.increment();
+        }
+
+        long swept = lastSweep.get();
+        if (now - swept > SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(swept, now)) {
+            // A request racing with the sweep may take its token from a removed bucket;
+            // the bucket was full, so the client gains at most that one token
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+        }
+        return Math.max(0, wait);
+    }
+
+    int clients() {
+        return buckets.size();
+    }
+
+    long allowed() {
+        return allowed.sum();
+    }
+
+    long limited() {
+        return limited.sum();
+    }
+}
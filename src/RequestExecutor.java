@@ -0,0 +1,155 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pluggable execution model for the HttpServer
+ *
+ * Requests run on a bounded platform pool, on one virtual thread each, or
+ * directly on the HttpServer dispatcher thread. When the pool and its queue
+ * are full the exchange is not dropped: it runs on the dispatcher thread with
+ * the rejected flag set, and the admission wrapper answers it with a 503.
+ */
+final class RequestExecutor implements Executor {
+
+    private static final ThreadLocal<Boolean> REJECTED = new ThreadLocal<>();
+
+    private final String mode;
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private RequestExecutor(String mode, ExecutorService delegate, Semaphore permits) {
+        this.mode = mode;
+        this.delegate = delegate;
+        this.permits = permits;
+    }
+
+    static RequestExecutor create(ServerConfig config) {
+        int threads = Math.max(1, config.threads());
+        int queueDepth = Math.max(0, config.queueDepth());
+
+        switch (config.executor()) {
+            case "dispatcher":
+                return new RequestExecutor("dispatcher", null, null);
+            case "virtual":
+                ExecutorService virtual = newVirtualThreadExecutor();
+                if (virtual != null) {
+                    // Virtual threads are cheap, so only the number in flight is bounded
+                    return new RequestExecutor("virtual", virtual, new Semaphore(threads + queueDepth));
+                }
+                System.err.println("⚠️  Virtual threads need Java 21+, falling back to a platform pool");
+                return platform(threads, queueDepth);
+            case "platform":
+                return platform(threads, queueDepth);
+            default:
+                throw new IllegalArgumentException("Unknown executor '" + config.executor()
+                    + "'. Use platform, virtual or dispatcher.");
+        }
+    }
+
+    private static RequestExecutor platform(int threads, int queueDepth) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            queueDepth > 0 ? new ArrayBlockingQueue<>(queueDepth) : new SynchronousQueue<>(),
+            namedThreads("detect-worker-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return new RequestExecutor("platform", pool, null);
+    }
+
+    /**
+     * Looked up reflectively so the server still compiles and runs on Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (delegate == null) {
+            task.run();
+            return;
+        }
+
+        if (permits != null && !permits.tryAcquire()) {
+            runRejected(task);
+            return;
+        }
+
+        try {
+            if (permits != null) {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } else {
+                delegate.execute(task);
+            }
+        } catch (RejectedExecutionException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            runRejected(task);
+        }
+    }
+
+    private void runRejected(Runnable task) {
+        rejectedCount.incrementAndGet();
+        REJECTED.set(Boolean.TRUE);
+        try {
+            task.run();
+        } finally {
+            REJECTED.remove();
+        }
+    }
+
+    /**
+     * True while the current thread is running an exchange that did not fit
+     * into the pool or its queue.
+     */
+    static boolean isRejected() {
+        return REJECTED.get() != null;
+    }
+
+    String mode() {
+        return mode;
+    }
+
+    long rejectedCount() {
+        return rejectedCount.get();
+    }
+
+    void shutdown() {
+        if (delegate != null) {
+            delegate.shutdown();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured request log
+ *
+ * Handlers fill a preallocated slot of a lock-free multi-producer ring
+ * buffer and return; a single background thread drains the ring in
+ * batches and writes one JSON object per line. Files rotate by size:
+ * requests.jsonl is renamed to requests.1.jsonl, the previous .1 to .2,
+ * and so on up to the configured number of files.
+ *
+ * Logging never blocks a handler. When the writer falls behind and the
+ * ring is full, new records are dropped and counted instead.
+ */
+final class RequestLog {
+
+    private static final int BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * One log record. Fields are plain; the volatile sequence write
+     * publishes them to the writer thread.
+     */
+    private static final class Slot {
+        volatile long sequence = -1;
+        long timestamp;
+        long requestId;
+        int item;
+        String endpoint;
+        String textHash;
+        String prediction;
+        double confidence;
+        int textLength;
+        String duplicateOf;
+        long readNanos;
+        long parseNanos;
+        long detectNanos;
+        long serializeNanos;
+    }
+
+    RequestLog(Path directory, int capacity, long maxFileBytes, int maxFiles) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        Files.createDirectories(directory);
+
+        this.writerThread = new Thread(this::drain, "request-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    long nextRequestId() {
+        return requestIds.incrementAndGet();
+    }
+
+    /**
+     * Queues a record for a scored article. Stage timings below zero were
+     * not measured for this request and are left out of the line.
+     * Returns false if the record was dropped.
+     */
+    boolean log(String endpoint, long requestId, int item, FakeNewsAPI.DetectionResult result,
+                long readNanos, long parseNanos, long detectNanos, long serializeNanos) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length || closed) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & mask];
+        slot.timestamp = System.currentTimeMillis();
+        slot.requestId = requestId;
+        slot.item = item;
+        slot.endpoint = endpoint;
+        slot.textHash = result.getId();
+        slot.prediction = result.getPrediction();
+        slot.confidence = result.getConfidence();
+        slot.textLength = result.getTextLength();
+        slot.duplicateOf = result.getDuplicateOf();
+        slot.readNanos = readNanos;
+        slot.parseNanos = parseNanos;
+        slot.detectNanos = detectNanos;
+        slot.serializeNanos = serializeNanos;
+        slot.sequence = sequence;
+        return true;
+    }
+
+    private void drain() {
+        StringBuilder line = new StringBuilder(512);
+        Writer out = null;
+        long fileBytes = 0;
+        long next = 0;
+        boolean failing = false;
+        while (true) {
+            int batch = 0;
+            try {
+                while (batch < BATCH) {
+                    Slot slot = slots[(int) next & mask];
+                    if (slot.sequence != next) {
+                        break;
+                    }
+                    line.setLength(0);
+                    format(slot, line);
+                    // Release the slot before the write so producers are not held up by I/O
+                    consumed = ++next;
+                    batch++;
+
+                    if (out == null || fileBytes >= maxFileBytes) {
+                        if (out != null) {
+                            out.close();
+                            rotate();
+                        }
+                        out = open();
+                        fileBytes = Files.size(directory.resolve(fileName(0)));
+                    }
+                    out.append(line);
+                    // Lines are ASCII apart from rare non-ASCII ids, so chars approximate bytes
+                    fileBytes += line.length();
+                    written.increment();
+                }
+                if (batch == 0 && out != null) {
+                    out.flush();
+                }
+                failing = false;
+            } catch (IOException e) {
+                if (!failing) {
+                    System.err.println("❌ Request log write failed: " + e.getMessage());
+                    failing = true;
+                }
+                dropped.increment();
+                out = closeQuietly(out);
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+
+            if (batch == 0) {
+                if (closed && claimed.get() == next) {
+                    closeQuietly(out);
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        line.append("{\"ts\":\"").append(Instant.ofEpochMilli(slot.timestamp)).append('"');
+        line.append(",\"requestId\":").append(slot.requestId);
+        if (slot.item >= 0) {
+            line.append(",\"item\":").append(slot.item);
+        }
+        line.append(",\"endpoint\":\"").append(slot.endpoint).append('"');
+        if (slot.textHash != null) {
+            line.append(",\"textHash\":\"").append(slot.textHash).append('"');
+        }
+        line.append(",\"prediction\":\"").append(slot.prediction).append('"');
+        line.append(",\"confidence\":").append(slot.confidence);
+        line.append(",\"textLength\":").append(slot.textLength);
+        if (slot.duplicateOf != null) {
+            line.append(",\"duplicateOf\":\"").append(slot.duplicateOf).append('"');
+        }
+        appendMicros(line, "readUs", slot.readNanos);
+        appendMicros(line, "parseUs", slot.parseNanos);
+        appendMicros(line, "detectUs", slot.detectNanos);
+        appendMicros(line, "serializeUs", slot.serializeNanos);
+        line.append("}\n");
+    }
+
+    private static void appendMicros(StringBuilder line, String name, long nanos) {
+        if (nanos >= 0) {
+            line.append(",\"").append(name).append("\":").append(nanos / 1000);
+        }
+    }
+
+    private Writer open() throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(directory.resolve(fileName(0)), StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(directory.resolve(fileName(maxFiles - 1)));
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            Path source = directory.resolve(fileName(i));
+            if (Files.exists(source)) {
+                Files.move(source, directory.resolve(fileName(i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static String fileName(int index) {
+        return index == 0 ? "requests.jsonl" : "requests." + index + ".jsonl";
+    }
+
+    private static Writer closeQuietly(Writer out) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Already reported by the failed write
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stops accepting records and waits for the writer to flush what is queued.
+     */
+    void close() {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    long written() {
+        return written.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+}
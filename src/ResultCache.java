@@ -0,0 +1,130 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of detection results keyed by ContentHash
+ *
+ * Entries live in lock-striped, access-ordered LinkedHashMaps: each stripe
+ * evicts its least recently used entry once it is full, and entries older
+ * than the TTL are dropped when they are next looked up. Requests for
+ * different articles rarely touch the same stripe, so lookups scale with
+ * the number of cores.
+ */
+final class ResultCache<V> {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe<V>[] stripes;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    ResultCache(int maxEntries, long ttlSeconds) {
+        int perStripe = Math.max(1, (maxEntries + STRIPES - 1) / STRIPES);
+        @SuppressWarnings("unchecked")
+        Stripe<V>[] stripes = (Stripe<V>[]) new Stripe<?>[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe<>(perStripe);
+        }
+        this.stripes = stripes;
+        this.ttlNanos = ttlSeconds > 0 ? ttlSeconds * 1_000_000_000L : Long.MAX_VALUE;
+    }
+
+    V get(ContentHash key) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            Entry<V> entry = stripe.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (System.nanoTime() - entry.createdNanos > ttlNanos) {
+                stripe.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    void put(ContentHash key, V value) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, new Entry<>(value, System.nanoTime()));
+            if (stripe.size() > stripe.capacity) {
+                Iterator<ContentHash> eldest = stripe.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry, e.g. after the classifier that produced them was replaced.
+     */
+    void clear() {
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private Stripe<V> stripeFor(ContentHash key) {
+        return stripes[(int) (key.high >>> 60)];
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    long expirations() {
+        return expirations.sum();
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long createdNanos;
+
+        Entry(V value, long createdNanos) {
+            this.value = value;
+            this.createdNanos = createdNanos;
+        }
+    }
+
+    private static final class Stripe<V> extends LinkedHashMap<ContentHash, Entry<V>> {
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+
+        Stripe(int capacity) {
+            super(Math.min(capacity, 1024) * 2, 0.75f, true);
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores long articles as windows of paragraphs or sentences, in parallel
+ *
+ * A text of at least minChars is cut into windows of about segmentChars,
+ * preferably at a paragraph break, else at the end of a sentence, else at
+ * whitespace, so no window starts or ends mid-word unless a single word is
+ * longer than half a window. The windows are scored on the shared fork-join
+ * pool, all with the same classifier. The document's probability is the
+ * length-weighted mean of the windows' log-odds, so every part of the
+ * article votes by its share of the text. The most suspicious windows are
+ * returned with their offsets into the original text.
+ */
+final class SegmentScorer {
+
+    private static final int EXCERPT_CHARS = 160;
+
+    // Below this many windows per task the work is not worth splitting further
+    private static final int SEGMENTS_PER_TASK = 2;
+
+    private static final double MIN_PROBABILITY = 1e-6;
+
+    private final int minChars;
+    private final int segmentChars;
+    private final int top;
+    private final ForkJoinPool pool;
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder segments = new LongAdder();
+
+    SegmentScorer(int minChars, int segmentChars, int top, ForkJoinPool pool) {
+        if (segmentChars < 2 || top < 0) {
+            throw new IllegalArgumentException("segment-chars must be at least 2 and segment-top not negative");
+        }
+        this.minChars = minChars;
+        this.segmentChars = segmentChars;
+        this.top = top;
+        this.pool = pool;
+    }
+
+    /**
+     * Whether the text is long enough to be scored in segments.
+     */
+    boolean applies(String text) {
+        return minChars > 0 && text.length() >= minChars;
+    }
+
+    /**
+     * Splits and scores the text; the classifier is passed in so that a
+     * reload halfway through cannot mix two classifiers in one verdict.
+     */
+    Scored score(String text, Classifier classifier) {
+        int[] bounds = split(text, segmentChars);
+        int count = bounds.length / 2;
+        double[] probabilities = new double[count];
+        ScoreTask task = new ScoreTask(text, classifier, bounds, probabilities, 0, count);
+        if (ForkJoinTask.getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+
+        double logOdds = 0;
+        long chars = 0;
+        int suspicious = 0;
+        for (int i = 0; i < count; i++) {
+            int length = bounds[2 * i + 1] - bounds[2 * i];
+            double p = Math.min(Math.max(probabilities[i], MIN_PROBABILITY), 1 - MIN_PROBABILITY);
+            logOdds += length * Math.log(p / (1 - p));
+            chars += length;
+            if (probabilities[i] > 0.5) {
+                suspicious++;
+            }
+        }
+        double probability = chars == 0 ? 0.5 : 1.0 / (1.0 + Math.exp(-logOdds / chars));
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(probabilities[b], probabilities[a]));
+        List<Segment> topSegments = new ArrayList<>(Math.min(top, count));
+        for (int i = 0; i < Math.min(top, count); i++) {
+            int index = order[i];
+            int start = bounds[2 * index];
+            int end = bounds[2 * index + 1];
+            int cut = Math.min(end, start + EXCERPT_CHARS);
+            // Never between the halves of a surrogate pair, which would leave a lone surrogate in the JSON
+            if (cut < end && Character.isLowSurrogate(text.charAt(cut))) {
+                cut--;
+            }
+            topSegments.add(new Segment(start, end, probabilities[index], text.substring(start, cut)));
+        }
+
+        documents.increment();
+        segments.add(count);
+        return new Scored(probability, count, suspicious, topSegments);
+    }
+
+    /**
+     * Window bounds as start, end pairs of offsets into the text, covering
+     * everything but the whitespace between windows.
+     */
+    static int[] split(String text, int segmentChars) {
+        int[] bounds = new int[16];
+        int count = 0;
+        int length = text.length();
+        int start = skipWhitespace(text, 0);
+        while (start < length) {
+            int end = start + segmentChars >= length ? length : breakBefore(text, start, start + segmentChars);
+            int trimmed = end;
+            while (trimmed > start && Character.isWhitespace(text.charAt(trimmed - 1))) {
+                trimmed--;
+            }
+            if (count + 2 > bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[count++] = start;
+            bounds[count++] = trimmed;
+            start = skipWhitespace(text, end);
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Best place to end a window that must end by limit: just after the
+     * last paragraph break, sentence end or whitespace in its second half.
+     */
+    private static int breakBefore(String text, int start, int limit) {
+        int floor = start + (limit - start) / 2;
+        int sentence = -1;
+        int space = -1;
+        for (int i = limit; i > floor; i--) {
+            char c = text.charAt(i - 1);
+            if (c == '\n' && i >= 2 && text.charAt(i - 2) == '\n'
+                    || c == '\n' && i >= 3 && text.charAt(i - 2) == '\r' && text.charAt(i - 3) == '\n') {
+                return i;
+            }
+            if (sentence < 0 && Character.isWhitespace(c)) {
+                char before = text.charAt(i - 2);
+                if (before == '.' || before == '!' || before == '?') {
+                    sentence = i;
+                } else if (space < 0) {
+                    space = i;
+                }
+            }
+        }
+        if (sentence >= 0) {
+            return sentence;
+        }
+        if (space >= 0) {
+            return space;
+        }
+        // A single huge "word": cut it, but never between the halves of a surrogate pair
+        return Character.isLowSurrogate(text.charAt(limit)) ? limit - 1 : limit;
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        while (from < text.length() && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    long documents() {
+        return documents.sum();
+    }
+
+    long segments() {
+        return segments.sum();
+    }
+
+    /**
+     * Scores windows [from, to), splitting the range in half while it is large.
+     */
+    private static final class ScoreTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String text;
+        private final Classifier classifier;
+        private final int[] bounds;
+        private final double[] probabilities;
+        private final int from;
+        private final int to;
+
+        ScoreTask(String text, Classifier classifier, int[] bounds, double[] probabilities, int from, int to) {
+            this.text = text;
+            this.classifier = classifier;
+            this.bounds = bounds;
+            this.probabilities = probabilities;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEGMENTS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    String segment = text.substring(bounds[2 * i], bounds[2 * i + 1]);
+                    probabilities[i] = classifier.fakeProbability(TextNormalizer.normalize(segment));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ScoreTask(text, classifier, bounds, probabilities, from, middle),
+                new ScoreTask(text, classifier, bounds, probabilities, middle, to));
+        }
+    }
+
+    /**
+     * Document probability, window counts and the most suspicious windows.
+     */
+    static final class Scored {
+        final double fakeProbability;
+        final int segmentCount;
+        final int suspiciousCount;
+        final List<Segment> top;
+
+        Scored(double fakeProbability, int segmentCount, int suspiciousCount, List<Segment> top) {
+            this.fakeProbability = fakeProbability;
+            this.segmentCount = segmentCount;
+            this.suspiciousCount = suspiciousCount;
+            this.top = top;
+        }
+    }
+
+    /**
+     * One window of the article, as returned to clients.
+     */
+    static final class Segment {
+        private final int start;
+        private final int end;
+        private final double fakeProbability;
+        private final String excerpt;
+
+        Segment(int start, int end, double fakeProbability, String excerpt) {
+            this.start = start;
+            this.end = end;
+            this.fakeProbability = Math.round(fakeProbability * 100.0) / 100.0;
+            this.excerpt = excerpt;
+        }
+
+        /**
+         * The same segment in a text with offset more chars in front of it
+         */
+        Segment shiftedBy(int offset) {
+            return new Segment(start + offset, end + offset, fakeProbability, excerpt);
+        }
+
+        private static final byte[] START = Utf8JsonWriter.literal("{\"start\":");
+        private static final byte[] END = Utf8JsonWriter.literal(",\"end\":");
+        private static final byte[] FAKE_PROBABILITY = Utf8JsonWriter.literal(",\"fakeProbability\":");
+        private static final byte[] EXCERPT = Utf8JsonWriter.literal(",\"excerpt\":");
+
+        void writeJson(Utf8JsonWriter json) {
+            json.raw(START).number(start);
+            json.raw(END).number(end);
+            json.raw(FAKE_PROBABILITY).number(fakeProbability);
+            json.raw(EXCERPT).string(excerpt).raw('}');
+        }
+
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public double getFakeProbability() { return fakeProbability; }
+        public String getExcerpt() { return excerpt; }
+    }
+}
@@ -0,0 +1,319 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Server configuration for FakeNewsAPI
+ *
+ * Every option can be given as a command-line flag ({@code --threads=16} or
+ * {@code --threads 16}) or as a system property prefixed with
+ * {@code fakenews.} ({@code -Dfakenews.threads=16}). Flags win over
+ * properties, properties win over the built-in defaults.
+ */
+final class ServerConfig {
+
+    private static final String PROPERTY_PREFIX = "fakenews.";
+
+    private final Map<String, String> flags;
+
+    private ServerConfig(Map<String, String> flags) {
+        this.flags = flags;
+    }
+
+    /**
+     * Parses command-line flags. Bare words are ignored so callers can mix
+     * flags with positional arguments.
+     */
+    static ServerConfig fromArgs(String[] args) {
+        Map<String, String> flags = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+            String name = arg.substring(2);
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                flags.put(name.substring(0, eq), name.substring(eq + 1));
+            } else if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                flags.put(name, args[++i]);
+            } else {
+                flags.put(name, "true");
+            }
+        }
+        return new ServerConfig(flags);
+    }
+
+    String get(String name, String defaultValue) {
+        String value = flags.get(name);
+        if (value == null) {
+            value = System.getProperty(PROPERTY_PREFIX + name);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option '" + name + "' must be an integer, got: " + value);
+        }
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option '" + name + "' must be an integer, got: " + value);
+        }
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = get(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Option '" + name + "' must be a number, got: " + value);
+        }
+    }
+
+    boolean getBoolean(String name, boolean defaultValue) {
+        String value = get(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    // Typed accessors for the options used by the server
+
+    int port() {
+        return getInt("port", 8080);
+    }
+
+    /**
+     * HTTP front end: "httpserver" (com.sun.net.httpserver) or "nio"
+     * (selector event loops, see NioHttpServer).
+     */
+    String engine() {
+        return get("engine", "httpserver");
+    }
+
+    /**
+     * Event loop threads for the nio engine.
+     */
+    int nioLoops() {
+        return getInt("nio-loops", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * TCP accept backlog; 0 lets the platform pick its default.
+     */
+    int backlog() {
+        return getInt("backlog", 0);
+    }
+
+    /**
+     * Execution model: "platform" (bounded pool), "virtual" (thread per
+     * request) or "dispatcher" (run on the single HttpServer thread).
+     */
+    String executor() {
+        return get("executor", "platform");
+    }
+
+    int threads() {
+        return getInt("threads", Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Requests allowed to wait for a worker before new ones get a 503.
+     */
+    int queueDepth() {
+        return getInt("queue", 256);
+    }
+
+    /**
+     * Detection requests per second allowed per client; 0 disables rate limiting.
+     */
+    double rateLimit() {
+        return getDouble("rate-limit", 0);
+    }
+
+    /**
+     * Requests a client may send at once before the rate applies; defaults to one second's worth.
+     */
+    int rateBurst() {
+        return getInt("rate-burst", (int) Math.max(1, Math.ceil(rateLimit())));
+    }
+
+    /**
+     * Request header that identifies a client, such as X-Api-Key; empty keys clients by IP address.
+     */
+    String rateLimitHeader() {
+        return get("rate-limit-header", "");
+    }
+
+    /**
+     * Whether the number of concurrent detection requests is limited, adapting to latency.
+     */
+    boolean adaptiveConcurrency() {
+        return getBoolean("adaptive-concurrency", false);
+    }
+
+    int concurrencyMin() {
+        return getInt("concurrency-min", 1);
+    }
+
+    int concurrencyMax() {
+        return getInt("concurrency-max", threads() + queueDepth());
+    }
+
+    /**
+     * /detect latency above which the adaptive concurrency limit backs off.
+     */
+    long latencyTargetMillis() {
+        return getLong("latency-target-ms", 100);
+    }
+
+    /**
+     * Fork-join parallelism used to score the items of a batch.
+     */
+    int batchParallelism() {
+        return getInt("batch-parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Texts at least this long are scored in parallel segments; 0 scores every text whole.
+     */
+    int segmentMinChars() {
+        return getInt("segment-min-chars", 65_536);
+    }
+
+    /**
+     * Target segment length for long texts, in chars.
+     */
+    int segmentChars() {
+        return getInt("segment-chars", 4096);
+    }
+
+    /**
+     * Most suspicious segments returned for a long text.
+     */
+    int segmentTop() {
+        return getInt("segment-top", 5);
+    }
+
+    int batchMaxItems() {
+        return getInt("batch-max-items", 10_000);
+    }
+
+    /**
+     * Largest accepted /detect request body, in bytes.
+     */
+    long maxBodyBytes() {
+        return getLong("max-body-bytes", 10L * 1024 * 1024);
+    }
+
+    long batchMaxBodyBytes() {
+        return getLong("batch-max-body-bytes", 256L * 1024 * 1024);
+    }
+
+    /**
+     * Binary model file for the linear classifier; null keeps the heuristic.
+     */
+    String modelPath() {
+        return get("model", null);
+    }
+
+    /**
+     * JSON indicator lexicon for the heuristic classifier; null uses the built-in lists.
+     */
+    String lexiconPath() {
+        return get("lexicon", null);
+    }
+
+    /**
+     * Whether changes to the model or lexicon file are picked up without a restart.
+     */
+    boolean reloadWatch() {
+        return getBoolean("reload-watch", true);
+    }
+
+    /**
+     * JSONL or CSV dump to classify offline instead of starting the server; null serves HTTP.
+     */
+    String classifyInput() {
+        return get("classify", null);
+    }
+
+    /**
+     * Maximum cached detection results; 0 disables the cache.
+     */
+    int cacheSize() {
+        return getInt("cache-size", 10_000);
+    }
+
+    long cacheTtlSeconds() {
+        return getLong("cache-ttl-seconds", 3600);
+    }
+
+    /**
+     * Recent articles kept in the near-duplicate index; 0 disables it.
+     */
+    int dedupCapacity() {
+        return getInt("dedup-capacity", 20_000);
+    }
+
+    /**
+     * Minimum estimated Jaccard similarity for reusing an earlier verdict.
+     */
+    double dedupThreshold() {
+        return getDouble("dedup-threshold", 0.9);
+    }
+
+    /**
+     * Directory for the JSONL request log; empty disables request logging.
+     */
+    String logDir() {
+        return get("log-dir", "logs");
+    }
+
+    /**
+     * Records that may wait for the log writer before new ones are dropped.
+     */
+    int logBuffer() {
+        return getInt("log-buffer", 8192);
+    }
+
+    long logMaxMegabytes() {
+        return getLong("log-max-mb", 64);
+    }
+
+    /**
+     * Log files kept, including the one being written.
+     */
+    int logFiles() {
+        return getInt("log-files", 5);
+    }
+
+    /**
+     * Smallest response body worth compressing; negative disables response compression.
+     */
+    int compressMinBytes() {
+        return getInt("compress-min-bytes", 1024);
+    }
+
+    /**
+     * Deflate level for compressed responses, 1 (fastest) to 9 (smallest).
+     */
+    int compressionLevel() {
+        return getInt("compression-level", 1);
+    }
+}
@@ -0,0 +1,280 @@
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request metrics in Prometheus text exposition format
+ *
+ * A Filter on every context records per-endpoint latency, status codes,
+ * in-flight requests and body bytes; handlers add per-stage timings. All
+ * counters are LongAdders and histograms are LatencyHistograms, so
+ * recording never takes a lock. Rendering reads each counter once and may
+ * be slightly inconsistent across series while requests are in flight,
+ * which Prometheus tolerates.
+ *
+ * Connection reuse is inferred from the client address: neither engine
+ * exposes its connections, but a keep-alive connection keeps its remote
+ * port, while a new connection from the same client gets a fresh one.
+ */
+final class ServerMetrics {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Processing stages of a detection request.
+     */
+    enum Stage {
+        READ("read"),
+        PARSE("parse"),
+        DETECT("detect"),
+        SERIALIZE("serialize");
+
+        final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    // Last request time per client address; entries idle past the window are forgotten
+    private static final long CONNECTION_IDLE_NANOS = 60_000_000_000L;
+    private static final long SWEEP_INTERVAL_NANOS = 10_000_000_000L;
+    private final Map<InetSocketAddress, AtomicLong> connections = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder reusedRequests = new LongAdder();
+
+    ServerMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts the request as the first on a new connection or as a reuse of
+     * one seen within the idle window.
+     */
+    private void recordConnection(InetSocketAddress remote, long now) {
+        if (remote == null) {
+            return;
+        }
+        AtomicLong lastSeen = connections.get(remote);
+        if (lastSeen == null) {
+            lastSeen = connections.putIfAbsent(remote, new AtomicLong(now));
+        }
+        if (lastSeen == null || now - lastSeen.getAndSet(now) > CONNECTION_IDLE_NANOS) {
+            connectionsOpened.increment();
+        } else {
+            reusedRequests.increment();
+        }
+
+        long swept = lastSweep.get();
+        if (now - swept > SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(swept, now)) {
+            connections.values().removeIf(seen -> now - seen.get() > CONNECTION_IDLE_NANOS);
+        }
+    }
+
+    /**
+     * Filter that records every exchange on the context it is added to.
+     */
+    Filter filter() {
+        return new RecordingFilter();
+    }
+
+    private final class RecordingFilter extends Filter {
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            long started = System.nanoTime();
+            inFlight.increment();
+            recordConnection(exchange.getRemoteAddress(), started);
+            CountingInputStream in = new CountingInputStream(exchange.getRequestBody());
+            CountingOutputStream out = new CountingOutputStream(exchange.getResponseBody());
+            exchange.setStreams(in, out);
+            boolean failed = true;
+            try {
+                chain.doFilter(exchange);
+                failed = false;
+            } finally {
+                inFlight.decrement();
+                bytesIn.add(in.count);
+                bytesOut.add(out.count);
+                endpoints.computeIfAbsent(exchange.getHttpContext().getPath(), path -> new Endpoint())
+                    .record(exchange.getResponseCode(), System.nanoTime() - started, failed);
+            }
+        }
+
+        @Override
+        public String description() {
+            return "Records request metrics";
+        }
+    }
+
+    /**
+     * Writes the request metrics; callers append their own families after.
+     */
+    void render(StringBuilder out) {
+        Map<String, Endpoint> sorted = new TreeMap<>(endpoints);
+
+        header(out, "fakenews_requests_total", "counter", "Requests by endpoint and status code");
+        sorted.forEach((path, endpoint) -> new TreeMap<>(endpoint.byStatus).forEach((code, count) ->
+            out.append("fakenews_requests_total{endpoint=\"").append(path)
+                .append("\",code=\"").append(code < 0 ? "none" : String.valueOf(code)).append("\"} ")
+                .append(count.sum()).append('\n')));
+
+        header(out, "fakenews_request_errors_total", "counter",
+            "Requests answered with a 4xx/5xx status or aborted by an exception");
+        sorted.forEach((path, endpoint) ->
+            out.append("fakenews_request_errors_total{endpoint=\"").append(path).append("\"} ")
+                .append(endpoint.errors.sum()).append('\n'));
+
+        header(out, "fakenews_request_duration_seconds", "histogram", "Request latency by endpoint");
+        sorted.forEach((path, endpoint) ->
+            histogram(out, "fakenews_request_duration_seconds", "endpoint", path, endpoint.latency));
+
+        header(out, "fakenews_stage_duration_seconds", "histogram", "Time spent per request processing stage");
+        for (Stage stage : Stage.values()) {
+            histogram(out, "fakenews_stage_duration_seconds", "stage", stage.label, stages[stage.ordinal()]);
+        }
+
+        gauge(out, "fakenews_requests_in_flight", "Requests currently being handled", inFlight.sum());
+        counter(out, "fakenews_request_bytes_total", "Request body bytes read", bytesIn.sum());
+        counter(out, "fakenews_response_bytes_total", "Response body bytes written", bytesOut.sum());
+
+        long now = System.nanoTime();
+        long active = connections.values().stream().filter(seen -> now - seen.get() <= CONNECTION_IDLE_NANOS).count();
+        counter(out, "fakenews_connections_opened_total", "Client connections seen for the first time", connectionsOpened.sum());
+        counter(out, "fakenews_connection_reused_requests_total",
+            "Requests served on a connection that had already carried a request", reusedRequests.sum());
+        gauge(out, "fakenews_connections_active", "Client connections that sent a request within the last 60s", active);
+    }
+
+    static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, "counter", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, "gauge", help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, String label, String value,
+                                  LatencyHistogram histogram) {
+        long[] counts = histogram.counts();
+        long cumulative = 0;
+        for (int i = 0; i < LatencyHistogram.bucketCount(); i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket{").append(label).append("=\"").append(value)
+                .append("\",le=\"").append(LatencyHistogram.upperBoundNanos(i) / 1e9).append("\"} ")
+                .append(cumulative).append('\n');
+        }
+        cumulative += counts[counts.length - 1];
+        out.append(name).append("_bucket{").append(label).append("=\"").append(value)
+            .append("\",le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum{").append(label).append("=\"").append(value).append("\"} ")
+            .append(histogram.sumNanos() / 1e9).append('\n');
+        out.append(name).append("_count{").append(label).append("=\"").append(value).append("\"} ")
+            .append(cumulative).append('\n');
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<Integer, LongAdder> byStatus = new ConcurrentHashMap<>();
+        final LongAdder errors = new LongAdder();
+
+        void record(int status, long nanos, boolean failed) {
+            latency.record(nanos);
+            byStatus.computeIfAbsent(status, code -> new LongAdder()).increment();
+            if (failed || status < 0 || status >= 400) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * Counts bytes; only touched by the thread handling the exchange.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+}
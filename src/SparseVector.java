@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/**
+ * Reusable sparse feature vector for the linear classifier and trainer
+ *
+ * Feature buckets are appended raw, then finish() sorts them in place,
+ * collapses repeats into term frequencies, applies IDF weights and L2
+ * normalizes. The backing arrays only grow, so a vector kept per thread
+ * scores any number of articles without further allocation.
+ */
+final class SparseVector {
+
+    int[] indices = new int[256];
+    float[] values = new float[256];
+    int size;
+
+    void clear() {
+        size = 0;
+    }
+
+    void add(int bucket) {
+        if (size == indices.length) {
+            indices = Arrays.copyOf(indices, size * 2);
+        }
+        indices[size++] = bucket;
+    }
+
+    /**
+     * Turns the raw bucket list into unique indices with L2-normalized
+     * TF-IDF values. A null idf means every bucket weighs 1.
+     */
+    void finish(float[] idf) {
+        if (values.length < indices.length) {
+            values = new float[indices.length];
+        }
+        Arrays.sort(indices, 0, size);
+
+        int unique = 0;
+        double norm = 0;
+        for (int i = 0; i < size; ) {
+            int bucket = indices[i];
+            int j = i + 1;
+            while (j < size && indices[j] == bucket) {
+                j++;
+            }
+            float value = (j - i) * (idf != null ? idf[bucket] : 1f);
+            indices[unique] = bucket;
+            values[unique] = value;
+            norm += (double) value * value;
+            unique++;
+            i = j;
+        }
+        size = unique;
+
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < size; i++) {
+                values[i] *= scale;
+            }
+        }
+    }
+
+    double dot(float[] weights) {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i] * weights[indices[i]];
+        }
+        return sum;
+    }
+}
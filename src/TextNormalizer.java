@@ -0,0 +1,222 @@
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Single-pass text normalization shared by every detection component
+ *
+ * An article is reduced to its tokens: NFKC-normalized, case-folded runs
+ * of letters and digits, joined by single spaces. Punctuation, symbols and
+ * whitespace of any kind only separate tokens, so "SHOCKING!!!",
+ * "shocking" and "Ｓｈｏｃｋｉｎｇ" all become "shocking". Token bounds are
+ * recorded while the text is written, so consumers never re-tokenize.
+ *
+ * The result lives in a per-thread buffer that is overwritten by the next
+ * normalize() call on the same thread; it must be used before then and
+ * never shared. ASCII text is normalized in place without allocating.
+ * Text with other characters goes through java.text.Normalizer first,
+ * which does allocate.
+ */
+final class TextNormalizer {
+
+    // A buffer that grew for one huge article is not kept for the next small one
+    private static final int RETAINED_CHARS = 1 << 20;
+
+    private static final ThreadLocal<Normalized> BUFFER = ThreadLocal.withInitial(Normalized::new);
+
+    // ASCII char -> folded token char, or 0 for a separator
+    private static final char[] ASCII = new char[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII[c] = Character.isLetterOrDigit(c) ? (char) fold(c) : 0;
+        }
+    }
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Normalizes the text into this thread's buffer. Already normalized text
+     * is returned unchanged.
+     */
+    static Normalized normalize(CharSequence text) {
+        if (text instanceof Normalized) {
+            return (Normalized) text;
+        }
+        Normalized out = BUFFER.get();
+        String string = text.toString();
+        if (!out.write(string, false)) {
+            out.write(Normalizer.normalize(string, Normalizer.Form.NFKC), true);
+        }
+        return out;
+    }
+
+    private static int fold(int c) {
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? c + 32 : c;
+        }
+        // Upper then lower maps case variants like the final sigma onto one form
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Normalized text as a CharSequence over a reusable buffer.
+     *
+     * The buffer holds a space before and after the text, so a phrase can be
+     * matched on whole words as " phrase " against {@link #bounded()}.
+     */
+    static final class Normalized implements CharSequence {
+        private char[] chars = new char[4096];
+        private int length;
+        private int[] tokenStarts = new int[512];
+        private int[] tokenEnds = new int[512];
+        private int tokenCount;
+
+        /**
+         * Writes the normalized form of the text. Returns false, leaving the
+         * buffer unspecified, on the first non-ASCII character when the text
+         * has not been through NFKC yet.
+         *
+         * The text is copied into the buffer at offset 1 and rewritten in
+         * place: a code point never writes more chars than it was read from,
+         * and every separator replaces at least one char, so the write
+         * position never passes the read position.
+         */
+        private boolean write(String text, boolean nfkc) {
+            int n = text.length();
+            reserve(n + 2);
+            char[] buf = chars;
+            text.getChars(0, n, buf, 1);
+            buf[0] = ' ';
+            int[] starts = tokenStarts;
+            int[] ends = tokenEnds;
+            int tokens = 0;
+            int p = 1;
+            boolean inToken = false;
+            for (int i = 1, end = n + 1; i < end; ) {
+                char c = buf[i];
+                if (c < 128) {
+                    // Fast path: one table lookup per ASCII char
+                    char folded = ASCII[c];
+                    i++;
+                    if (folded != 0) {
+                        if (!inToken) {
+                            if (tokens == starts.length) {
+                                starts = tokenStarts = Arrays.copyOf(starts, tokens * 2);
+                                ends = tokenEnds = Arrays.copyOf(ends, tokens * 2);
+                            }
+                            starts[tokens] = p - 1;
+                            inToken = true;
+                        }
+                        buf[p++] = folded;
+                    } else if (inToken) {
+                        ends[tokens++] = p - 1;
+                        buf[p++] = ' ';
+                        inToken = false;
+                    }
+                    continue;
+                }
+                if (!nfkc) {
+                    return false;
+                }
+                int cp = c;
+                int width = 1;
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(buf[i + 1])) {
+                    cp = Character.toCodePoint(c, buf[i + 1]);
+                    width = 2;
+                }
+                i += width;
+                if (!Character.isLetterOrDigit(cp)) {
+                    if (inToken) {
+                        ends[tokens++] = p - 1;
+                        buf[p++] = ' ';
+                        inToken = false;
+                    }
+                    continue;
+                }
+                if (!inToken) {
+                    if (tokens == starts.length) {
+                        starts = tokenStarts = Arrays.copyOf(starts, tokens * 2);
+                        ends = tokenEnds = Arrays.copyOf(ends, tokens * 2);
+                    }
+                    starts[tokens] = p - 1;
+                    inToken = true;
+                }
+                int folded = fold(cp);
+                p += Character.toChars(Character.charCount(folded) > width ? cp : folded, buf, p);
+            }
+            if (inToken) {
+                ends[tokens++] = p - 1;
+                buf[p++] = ' ';
+            }
+            tokenCount = tokens;
+            // Text is [1, p - 1); the space that ended the last token is the right boundary
+            length = Math.max(0, p - 2);
+            if (p == 1) {
+                buf[1] = ' ';
+            }
+            return true;
+        }
+
+        private void reserve(int needed) {
+            if (chars.length < needed) {
+                chars = Arrays.copyOf(chars, Math.max(needed, chars.length * 2));
+            } else if (chars.length > RETAINED_CHARS && needed <= RETAINED_CHARS / 4) {
+                chars = new char[RETAINED_CHARS / 4];
+                if (tokenStarts.length > RETAINED_CHARS / 8) {
+                    tokenStarts = new int[512];
+                    tokenEnds = new int[512];
+                }
+            }
+        }
+
+        /**
+         * Backing array: the text occupies [1, length() + 1), with a space at
+         * index 0 and at length() + 1. Valid until the next normalize() call.
+         */
+        char[] bounded() {
+            return chars;
+        }
+
+        int tokenCount() {
+            return tokenCount;
+        }
+
+        /**
+         * Offset of the token's first character in this sequence.
+         */
+        int tokenStart(int token) {
+            return tokenStarts[token];
+        }
+
+        /**
+         * Offset just past the token's last character in this sequence.
+         */
+        int tokenEnd(int token) {
+            return tokenEnds[token];
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return chars[index + 1];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 1, length);
+        }
+    }
+}
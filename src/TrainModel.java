@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline trainer for the LinearClassifier model used by FakeNewsAPI
+ *
+ * Streams a labeled JSONL or CSV corpus through memory-mapped chunks, so the
+ * corpus never has to fit in the heap. One pass collects document
+ * frequencies for the IDF table. Each epoch then runs lock-free parallel
+ * SGD (Hogwild) over the shared float[] weights. A deterministic slice of
+ * the corpus is held out for evaluation.
+ *
+ * Usage:
+ *   java -cp "classes;lib/*" TrainModel --input corpus.jsonl --out model.bin
+ *        [--format jsonl|csv] [--bits 20] [--bigrams true] [--epochs 3]
+ *        [--learning-rate 0.5] [--l2 0.000001] [--holdout 0.1]
+ *        [--threads N] [--chunk-mb 64]
+ */
+public class TrainModel {
+
+    private final FileChannel channel;
+    private final List<MappedRecords.Chunk> chunks;
+    private final String format;
+    private final FeatureHasher hasher;
+    private final double holdout;
+    private final int threads;
+    private final long corpusBytes;
+
+    private float[] idf;
+    private final float[] weights;
+    private final float[] bias = new float[1];
+
+    private long trainingDocuments;
+
+    TrainModel(FileChannel channel, List<MappedRecords.Chunk> chunks, String format,
+               FeatureHasher hasher, double holdout, int threads) throws IOException {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.format = format;
+        this.hasher = hasher;
+        this.holdout = holdout;
+        this.threads = threads;
+        this.corpusBytes = channel.size();
+        this.weights = new float[hasher.buckets()];
+    }
+
+    public static void main(String[] args) throws Exception {
+        ServerConfig options = ServerConfig.fromArgs(args);
+        String input = options.get("input", null);
+        if (input == null) {
+            System.err.println("Usage: TrainModel --input corpus.jsonl|corpus.csv --out model.bin [options]");
+            System.exit(1);
+        }
+        Path inputPath = Paths.get(input);
+        Path outputPath = Paths.get(options.get("out", "model.bin"));
+        String format = options.get("format", input.toLowerCase().endsWith(".csv") ? "csv" : "jsonl");
+        FeatureHasher hasher = new FeatureHasher(options.getInt("bits", 20), options.getBoolean("bigrams", true));
+        int epochs = options.getInt("epochs", 3);
+        double learningRate = options.getDouble("learning-rate", 0.5);
+        double l2 = options.getDouble("l2", 1e-6);
+        double holdout = options.getDouble("holdout", 0.1);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        long chunkBytes = options.getLong("chunk-mb", 64) * 1024 * 1024;
+
+        try (FileChannel channel = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            List<MappedRecords.Chunk> chunks = MappedRecords.split(channel, chunkBytes);
+            System.out.printf("📚 Corpus: %s (%s, %.1f MB, %d chunks, %d threads)%n",
+                inputPath, format, channel.size() / 1e6, chunks.size(), threads);
+
+            TrainModel trainer = new TrainModel(channel, chunks, format, hasher, holdout, threads);
+            trainer.computeIdf();
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                trainer.trainEpoch(epoch, learningRate / (1 + epoch), l2);
+                trainer.evaluate("epoch " + (epoch + 1));
+            }
+
+            LinearClassifier model = trainer.toModel(outputPath.getFileName().toString());
+            model.save(outputPath);
+            System.out.printf("💾 Model written to %s (format v%d, %d features)%n",
+                outputPath, LinearClassifier.FORMAT_VERSION, hasher.buckets());
+        }
+    }
+
+    /**
+     * First pass: document frequency per bucket, merged from per-thread arrays.
+     */
+    void computeIdf() throws Exception {
+        int[][] perThreadDf = new int[threads][];
+        LongAdder documents = new LongAdder();
+        LongAdder rejected = new LongAdder();
+
+        Pass pass = runPass("idf", worker -> {
+            int[] df = perThreadDf[worker.id] != null ? perThreadDf[worker.id] : new int[hasher.buckets()];
+            perThreadDf[worker.id] = df;
+            return (offset, record, vector) -> {
+                if (record.label == CorpusRecord.UNLABELED) {
+                    rejected.increment();
+                    return;
+                }
+                vector.finish(null);
+                for (int i = 0; i < vector.size; i++) {
+                    df[vector.indices[i]]++;
+                }
+                documents.increment();
+            };
+        }, rejected);
+
+        int[] df = new int[hasher.buckets()];
+        for (int[] local : perThreadDf) {
+            if (local != null) {
+                for (int i = 0; i < df.length; i++) {
+                    df[i] += local[i];
+                }
+            }
+        }
+
+        long n = documents.sum();
+        if (n == 0) {
+            throw new IOException("No labeled records found in corpus");
+        }
+        idf = new float[hasher.buckets()];
+        for (int i = 0; i < idf.length; i++) {
+            idf[i] = (float) (Math.log((1.0 + n) / (1.0 + df[i])) + 1.0);
+        }
+        pass.report(n);
+    }
+
+    /**
+     * One epoch of Hogwild SGD on logistic loss with L2 decay. Threads update
+     * the shared weights without locking; collisions are rare with hashed
+     * sparse features and only add a little noise.
+     */
+    void trainEpoch(int epoch, double learningRate, double l2) throws Exception {
+        LongAdder documents = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        float rate = (float) learningRate;
+        float decay = (float) (learningRate * l2);
+
+        Pass pass = runPass("epoch " + (epoch + 1), worker -> (offset, record, vector) -> {
+            if (record.label == CorpusRecord.UNLABELED) {
+                rejected.increment();
+                return;
+            }
+            if (isHoldout(offset)) {
+                return;
+            }
+            vector.finish(idf);
+            double p = LinearClassifier.sigmoid(bias[0] + vector.dot(weights));
+            float step = (float) ((record.label - p) * rate);
+            for (int i = 0; i < vector.size; i++) {
+                int index = vector.indices[i];
+                weights[index] += step * vector.values[i] - decay * weights[index];
+            }
+            bias[0] += step;
+            documents.increment();
+        }, rejected);
+
+        trainingDocuments = documents.sum();
+        pass.report(trainingDocuments);
+    }
+
+    /**
+     * Accuracy and log loss on the held-out slice.
+     */
+    void evaluate(String label) throws Exception {
+        LongAdder documents = new LongAdder();
+        LongAdder correct = new LongAdder();
+        DoubleAdder logLoss = new DoubleAdder();
+
+        runPass("eval", worker -> (offset, record, vector) -> {
+            if (record.label == CorpusRecord.UNLABELED || !isHoldout(offset)) {
+                return;
+            }
+            vector.finish(idf);
+            double p = LinearClassifier.sigmoid(bias[0] + vector.dot(weights));
+            if ((p >= 0.5 ? 1 : 0) == record.label) {
+                correct.increment();
+            }
+            double clipped = Math.min(Math.max(p, 1e-7), 1 - 1e-7);
+            logLoss.add(record.label == 1 ? -Math.log(clipped) : -Math.log(1 - clipped));
+            documents.increment();
+        }, new LongAdder());
+
+        long n = documents.sum();
+        if (n == 0) {
+            System.out.printf("🎯 %s: no held-out records%n", label);
+            return;
+        }
+        System.out.printf("🎯 %s: held-out accuracy %.4f, log loss %.4f (%d docs)%n",
+            label, correct.sum() / (double) n, logLoss.sum() / n, n);
+    }
+
+    LinearClassifier toModel(String source) {
+        return new LinearClassifier(hasher, idf, weights, bias[0], System.currentTimeMillis(),
+            trainingDocuments, source);
+    }
+
+    private boolean isHoldout(long offset) {
+        // Records are assigned by a hash of their byte offset, so the split is stable across passes
+        long h = offset * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (h & 0xFFFF) < holdout * 0x10000;
+    }
+
+    /**
+     * Per-record callback; the vector already holds the raw hashed features.
+     */
+    private interface RecordHandler {
+        void handle(long offset, CorpusRecord record, SparseVector vector);
+    }
+
+    private interface HandlerFactory {
+        RecordHandler create(Worker worker);
+    }
+
+    private static final class Worker {
+        final int id;
+        final MappedRecords.LineDecoder decoder = new MappedRecords.LineDecoder();
+        final CorpusRecord record = new CorpusRecord();
+        final SparseVector vector = new SparseVector();
+
+        Worker(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Runs one parallel pass over every chunk. Threads pull chunks from a
+     * shared counter, so a slow chunk never idles the rest of the pool.
+     */
+    private Pass runPass(String name, HandlerFactory factory, LongAdder rejected) throws Exception {
+        Pass pass = new Pass(name, rejected);
+        AtomicInteger nextChunk = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                Worker worker = new Worker(t);
+                RecordHandler handler = factory.create(worker);
+                futures[t] = pool.submit(() -> {
+                    int index;
+                    while ((index = nextChunk.getAndIncrement()) < chunks.size()) {
+                        MappedRecords.forEachLine(channel, chunks.get(index), worker.decoder, (offset, line) -> {
+                            if (!worker.record.parse(line, format)) {
+                                rejected.increment();
+                                return;
+                            }
+                            worker.vector.clear();
+                            hasher.hash(worker.record.text, worker.vector);
+                            handler.handle(offset, worker.record, worker.vector);
+                        });
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return pass;
+    }
+
+    /**
+     * Timing and throughput reporting for one pass.
+     */
+    private final class Pass {
+        private final String name;
+        private final LongAdder rejected;
+        private final long startNanos = System.nanoTime();
+
+        Pass(String name, LongAdder rejected) {
+            this.name = name;
+            this.rejected = rejected;
+        }
+
+        void report(long documents) {
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            System.out.printf("⏱️  %s: %d docs in %.1fs (%.0f docs/s, %.1f MB/s, %d skipped)%n",
+                name, documents, seconds, documents / seconds, corpusBytes / 1e6 / seconds, rejected.sum());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight into a reusable UTF-8 byte buffer
+ *
+ * Responses used to be built as a String by Gson and then encoded into a
+ * second byte array. This writer encodes chars as it escapes them, so the
+ * payload exists once and its length is the exact byte count for
+ * Content-Length. Constant fragments such as field names are encoded once
+ * with {@link #literal(String)} and copied in with {@link #raw(byte[])}.
+ *
+ * Each thread reuses one writer; buffers that grew for a large response are
+ * dropped on release instead of being kept alive.
+ */
+final class Utf8JsonWriter {
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<Utf8JsonWriter> POOL = ThreadLocal.withInitial(Utf8JsonWriter::new);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = literal("null");
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    /**
+     * The calling thread's writer, emptied. Pair with {@link #release()}.
+     */
+    static Utf8JsonWriter acquire() {
+        Utf8JsonWriter writer = POOL.get();
+        writer.length = 0;
+        return writer;
+    }
+
+    void release() {
+        length = 0;
+        if (bytes.length > RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Pre-encodes a constant fragment.
+     */
+    static byte[] literal(String fragment) {
+        return fragment.getBytes(StandardCharsets.UTF_8);
+    }
+
+    Utf8JsonWriter raw(byte[] fragment) {
+        ensure(fragment.length);
+        System.arraycopy(fragment, 0, bytes, length, fragment.length);
+        length += fragment.length;
+        return this;
+    }
+
+    Utf8JsonWriter raw(char c) {
+        ensure(1);
+        bytes[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * A quoted, escaped JSON string, or null.
+     */
+    Utf8JsonWriter string(String value) {
+        if (value == null) {
+            return raw(NULL);
+        }
+        int n = value.length();
+        // Worst case is a 6-byte escape per char; grow in one step
+        ensure(n * 6 + 2);
+        byte[] b = bytes;
+        int p = length;
+        b[p++] = '"';
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    b[p++] = (byte) c;
+                } else {
+                    p = escape(b, p, c);
+                }
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == '\u2028' || c == '\u2029') {
+                // Valid JSON, but line terminators in JavaScript
+                p = escape(b, p, c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                b[p++] = (byte) (0xF0 | (cp >> 18));
+                b[p++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[p++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced the same way String.getBytes does
+                b[p++] = '?';
+            } else {
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[p++] = '"';
+        length = p;
+        return this;
+    }
+
+    private static int escape(byte[] b, int p, char c) {
+        b[p++] = '\\';
+        switch (c) {
+            case '"': b[p++] = '"'; return p;
+            case '\\': b[p++] = '\\'; return p;
+            case '\n': b[p++] = 'n'; return p;
+            case '\r': b[p++] = 'r'; return p;
+            case '\t': b[p++] = 't'; return p;
+            case '\b': b[p++] = 'b'; return p;
+            case '\f': b[p++] = 'f'; return p;
+            default:
+                b[p++] = 'u';
+                b[p++] = HEX[(c >> 12) & 0xF];
+                b[p++] = HEX[(c >> 8) & 0xF];
+                b[p++] = HEX[(c >> 4) & 0xF];
+                b[p++] = HEX[c & 0xF];
+                return p;
+        }
+    }
+
+    Utf8JsonWriter number(long value) {
+        if (value == Long.MIN_VALUE) {
+            return raw(literal(Long.toString(value)));
+        }
+        ensure(20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int p = length + digits - 1; p >= length; p--) {
+            bytes[p] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Same text as Double.toString, which is what Gson writes.
+     */
+    Utf8JsonWriter number(double value) {
+        String text = Double.toString(value);
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            bytes[length++] = (byte) text.charAt(i);
+        }
+        return this;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Backing array; the first length() bytes are valid until the next write.
+     */
+    byte[] buffer() {
+        return bytes;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * Writes the buffered bytes and empties the buffer, for streamed responses.
+     */
+    void flushTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+        length = 0;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.javacodereviewer;
+
+import com.javacodereviewer.model.ProjectReviewReport;
+import com.javacodereviewer.model.ProjectReviewReport.FileReview;
+import com.javacodereviewer.service.AIReviewService;
+import com.javacodereviewer.service.BulkReviewService;
+import com.javacodereviewer.service.ChunkedReviewService;
+import com.javacodereviewer.service.CodeReviewer;
+import com.javacodereviewer.service.ExportService;
+import com.javacodereviewer.service.IncrementalReviewService;
+import com.javacodereviewer.service.ReviewCache;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Headless bulk review of a source tree, without the JavaFX UI
+ *
+ * Each file's section is appended to the report as soon as its review
+ * finishes, so a long run can be followed with tail and a run that is
+ * interrupted still leaves the files reviewed so far. Reviews are cached
+ * on disk, so re-running over an unchanged tree only calls the provider for
+ * files that changed; with --incremental only the changed methods of those
+ * files are sent. Files over --chunk-tokens are otherwise reviewed in
+ * parallel chunks, each costing one request from the budget.
+ *
+ * Usage:
+ *   java -cp ... com.javacodereviewer.BulkReviewCli <directory>
+ *        [--provider "OpenAI GPT-4"] [--concurrency 8] [--budget 1000] [--out project-review.txt]
+ *        [--cache ~/.javacodereviewer/review-cache] [--cache-mb 64] [--no-cache] [--incremental]
+ *        [--chunk-tokens 4000] [--overlap-tokens 200]
+ */
+public class BulkReviewCli {
+
+    public static void main(String[] args) throws Exception {
+        Path root = null;
+        String provider = "OpenAI GPT-4";
+        int concurrency = BulkReviewService.DEFAULT_MAX_CONCURRENT;
+        int budget = BulkReviewService.DEFAULT_REQUEST_BUDGET;
+        Path output = Paths.get("project-review.txt");
+        Path cacheDirectory = null;
+        long cacheBytes = ReviewCache.DEFAULT_MAX_BYTES;
+        boolean useCache = true;
+        boolean incremental = false;
+        int chunkTokens = ChunkedReviewService.DEFAULT_CHUNK_TOKENS;
+        int overlapTokens = ChunkedReviewService.DEFAULT_OVERLAP_TOKENS;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--no-cache")) {
+                useCache = false;
+                continue;
+            }
+            if (arg.equals("--incremental")) {
+                incremental = true;
+                continue;
+            }
+            if (arg.startsWith("--") && i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            switch (arg) {
+                case "--provider":
+                    provider = args[++i];
+                    break;
+                case "--concurrency":
+                    concurrency = Integer.parseInt(args[++i]);
+                    break;
+                case "--budget":
+                    budget = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "--cache":
+                    cacheDirectory = Paths.get(args[++i]);
+                    break;
+                case "--cache-mb":
+                    cacheBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+                    break;
+                case "--chunk-tokens":
+                    chunkTokens = Integer.parseInt(args[++i]);
+                    break;
+                case "--overlap-tokens":
+                    overlapTokens = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (arg.startsWith("--") || root != null) {
+                        usage("Unexpected argument: " + arg);
+                    }
+                    root = Paths.get(arg);
+            }
+        }
+        if (root == null || !Files.isDirectory(root)) {
+            usage("Please give the directory to review");
+        }
+
+        ExportService exportService = new ExportService();
+        ReviewCache cache = null;
+        if (useCache) {
+            try {
+                cache = cacheDirectory != null ? ReviewCache.open(cacheDirectory, cacheBytes) : ReviewCache.openDefault(cacheBytes);
+            } catch (IOException e) {
+                // Typically the reviewer window has the cache open; the run works without it, only uncached
+                System.err.println("Review cache disabled: " + e.getMessage());
+            }
+        }
+        AIReviewService reviewService = new AIReviewService(cache);
+        CodeReviewer reviewer = incremental ? new IncrementalReviewService(reviewService, cache)
+                : new ChunkedReviewService(reviewService, cache, chunkTokens, overlapTokens);
+        BulkReviewService bulkService = new BulkReviewService(reviewer, concurrency, budget);
+
+        long started = System.nanoTime();
+        try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            // The header needs the file count, so it is written with the first finished file
+            boolean[] headerWritten = {false};
+            BulkReviewService.Listener listener = (review, report) -> {
+                synchronized (out) {
+                    try {
+                        if (!headerWritten[0]) {
+                            out.write(exportService.formatProjectHeader(report));
+                            headerWritten[0] = true;
+                        }
+                        out.write(exportService.formatFileReview(report, review));
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                // Outside the lock, so a slow console does not hold up the lanes writing the report
+                System.out.printf("[%d/%d] %s: %s%n", report.getCompletedFiles(), report.getTotalFiles(),
+                        report.getRoot().relativize(review.getFile()), describe(review));
+            };
+
+            CompletableFuture<ProjectReviewReport> run = bulkService.reviewProject(root, provider, listener);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> run.cancel(true)));
+            ProjectReviewReport report = run.join();
+
+            synchronized (out) {
+                if (!headerWritten[0]) {
+                    out.write(exportService.formatProjectHeader(report));
+                }
+                out.write(exportService.formatProjectSummary(report));
+            }
+            System.out.printf("Reviewed %d of %d files (%d failed, %d skipped) in %.1fs: %d errors, %d warnings, %d suggestions%n",
+                    report.getReviewedFiles(), report.getTotalFiles(), report.getFailedFiles(), report.getSkippedFiles(),
+                    (System.nanoTime() - started) / 1e9, report.getTotalErrors(), report.getTotalWarnings(),
+                    report.getTotalSuggestions());
+            System.out.println("Report written to " + output.toAbsolutePath());
+        }
+        // OkHttp's dispatcher and connection pool threads would otherwise keep the JVM alive for a while
+        System.exit(0);
+    }
+
+    private static String describe(FileReview review) {
+        if (review.getResult() == null) {
+            return review.getStatus() + " (" + review.getMessage() + ")";
+        }
+        return review.getResult().getErrors().size() + " errors, "
+                + review.getResult().getWarnings().size() + " warnings, "
+                + review.getResult().getSuggestions().size() + " suggestions";
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: BulkReviewCli <directory> [--provider NAME] [--concurrency N] [--budget N] [--out FILE]"
+                + " [--cache DIR] [--cache-mb N] [--no-cache] [--incremental] [--chunk-tokens N] [--overlap-tokens N]");
+        System.exit(1);
+    }
+}
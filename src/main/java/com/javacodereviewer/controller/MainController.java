@@ -1,16 +1,23 @@
 package com.javacodereviewer.controller;
 
 import com.javacodereviewer.model.CodeReviewResult;
+import com.javacodereviewer.model.ProjectReviewReport;
+import com.javacodereviewer.model.ProjectReviewReport.FileReview;
 import com.javacodereviewer.service.AIReviewService;
+import com.javacodereviewer.service.BulkReviewService;
+import com.javacodereviewer.service.ChunkedReviewService;
+import com.javacodereviewer.service.CodeReviewer;
 import com.javacodereviewer.service.ExportService;
+import com.javacodereviewer.service.IncrementalReviewService;
+import com.javacodereviewer.service.ReviewCache;
 import com.javacodereviewer.util.UIUtils;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
-import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -20,6 +27,8 @@ import java.net.URL;
 import java.nio.file.Files;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Main controller for the Java Code Reviewer application
@@ -31,20 +40,31 @@ public class MainController implements Initializable {
     @FXML private Button reviewButton;
     @FXML private Button loadFileButton;
     @FXML private Button clearButton;
+    @FXML private Button reviewProjectButton;
     @FXML private Button exportButton;
     @FXML private Button settingsButton;
     @FXML private ComboBox<String> apiProviderCombo;
+    @FXML private CheckBox incrementalCheckBox;
     @FXML private Label statusLabel;
     @FXML private ProgressBar progressBar;
 
     private AIReviewService reviewService;
+    private IncrementalReviewService incrementalReviewService;
+    private ChunkedReviewService chunkedReviewService;
     private ExportService exportService;
     private CodeReviewResult lastReviewResult;
+    private CompletableFuture<CodeReviewResult> currentReview;
+    private ProjectReviewReport lastProjectReport;
+    private CompletableFuture<ProjectReviewReport> currentProjectReview;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         // Initialize services
-        reviewService = new AIReviewService();
+        ReviewCache cache = openReviewCache();
+        reviewService = new AIReviewService(cache);
+        incrementalReviewService = new IncrementalReviewService(reviewService, cache);
+        chunkedReviewService = new ChunkedReviewService(reviewService, cache,
+            ChunkedReviewService.DEFAULT_CHUNK_TOKENS, ChunkedReviewService.DEFAULT_OVERLAP_TOKENS);
         exportService = new ExportService();
         
         // Setup API provider combo box
@@ -59,6 +79,26 @@ public class MainController implements Initializable {
         updateUIState(false);
     }
 
+    /**
+     * With "Changed parts only" ticked, only the methods changed since the last review are sent;
+     * otherwise files too large for one request are reviewed in parallel chunks
+     */
+    private CodeReviewer selectedReviewer() {
+        return incrementalCheckBox.isSelected() ? incrementalReviewService : chunkedReviewService;
+    }
+
+    /**
+     * Opens the on-disk review cache; the application still works without it, just slower on repeat reviews
+     */
+    private static ReviewCache openReviewCache() {
+        try {
+            return ReviewCache.openDefault();
+        } catch (IOException e) {
+            System.err.println("Review cache disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
     @FXML
     private void loadFile() {
         FileChooser fileChooser = new FileChooser();
@@ -86,11 +126,18 @@ public class MainController implements Initializable {
         codeInputArea.clear();
         resultsContainer.getChildren().clear();
         lastReviewResult = null;
+        lastProjectReport = null;
         statusLabel.setText("Code cleared");
     }
 
     @FXML
     private void reviewCode() {
+        // While a review is running the button cancels it
+        if (currentReview != null) {
+            currentReview.cancel(true);
+            return;
+        }
+        
         String code = codeInputArea.getText().trim();
         if (code.isEmpty()) {
             showError("No Code", "Please enter or load Java code to review.");
@@ -103,36 +150,121 @@ public class MainController implements Initializable {
             return;
         }
 
-        // Start review in background thread
-        Task<CodeReviewResult> reviewTask = new Task<CodeReviewResult>() {
-            @Override
-            protected CodeReviewResult call() throws Exception {
-                updateMessage("Analyzing code...");
-                return reviewService.reviewCode(code, selectedProvider);
-            }
-        };
-
-        reviewTask.setOnSucceeded(event -> {
-            lastReviewResult = reviewTask.getValue();
-            displayResults(lastReviewResult);
-            updateUIState(false);
-            statusLabel.setText("Review completed successfully");
-        });
-
-        reviewTask.setOnFailed(event -> {
+        // The review runs on the HTTP client's dispatcher; results come back on the FX thread
+        CompletableFuture<CodeReviewResult> review = selectedReviewer().reviewCodeAsync(code, selectedProvider);
+        currentReview = review;
+        updateUIState(true);
+        statusLabel.setText("Analyzing code...");
+        
+        review.whenComplete((result, error) -> Platform.runLater(() -> {
+            currentReview = null;
             updateUIState(false);
-            Throwable exception = reviewTask.getException();
-            showError("Review Failed", "Error during code review: " + exception.getMessage());
-        });
+            if (review.isCancelled()) {
+                statusLabel.setText("Review cancelled");
+            } else if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                statusLabel.setText("Review failed");
+                showError("Review Failed", "Error during code review: " + cause.getMessage());
+            } else {
+                lastReviewResult = result;
+                lastProjectReport = null;
+                displayResults(result);
+                statusLabel.setText("Review completed successfully");
+            }
+        }));
+    }
 
+    @FXML
+    private void reviewProject() {
+        // While a project review is running the button cancels it
+        if (currentProjectReview != null) {
+            currentProjectReview.cancel(true);
+            return;
+        }
+        
+        String selectedProvider = apiProviderCombo.getSelectionModel().getSelectedItem();
+        if (selectedProvider == null) {
+            showError("No API Provider", "Please select an AI provider.");
+            return;
+        }
+        
+        DirectoryChooser directoryChooser = new DirectoryChooser();
+        directoryChooser.setTitle("Select Project Directory");
+        Stage stage = (Stage) reviewProjectButton.getScene().getWindow();
+        File directory = directoryChooser.showDialog(stage);
+        if (directory == null) {
+            return;
+        }
+        
+        resultsContainer.getChildren().clear();
+        Label header = new Label("Project Review: " + directory.getName());
+        header.setStyle("-fx-font-weight: bold; -fx-font-size: 16px; -fx-text-fill: #2c3e50;");
+        resultsContainer.getChildren().add(header);
+        
+        // Each file is listed as soon as its review finishes
+        CompletableFuture<ProjectReviewReport> projectReview;
+        try {
+            BulkReviewService bulkReviewService = new BulkReviewService(selectedReviewer(),
+                BulkReviewService.DEFAULT_MAX_CONCURRENT, BulkReviewService.DEFAULT_REQUEST_BUDGET);
+            projectReview = bulkReviewService.reviewProject(directory.toPath(), selectedProvider,
+                (review, report) -> Platform.runLater(() -> showFileReview(review, report)));
+        } catch (IOException e) {
+            showError("Project Review Failed", "Could not scan directory: " + e.getMessage());
+            return;
+        }
+        currentProjectReview = projectReview;
+        lastProjectReport = null;
         updateUIState(true);
-        Thread reviewThread = new Thread(reviewTask);
-        reviewThread.setDaemon(true);
-        reviewThread.start();
+        progressBar.setProgress(0);
+        statusLabel.setText("Reviewing project " + directory.getName() + "...");
+        
+        projectReview.whenComplete((report, error) -> Platform.runLater(() -> {
+            currentProjectReview = null;
+            updateUIState(false);
+            progressBar.setProgress(-1);
+            if (projectReview.isCancelled()) {
+                statusLabel.setText("Project review cancelled");
+            } else if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                statusLabel.setText("Project review failed");
+                showError("Project Review Failed", "Error during project review: " + cause.getMessage());
+            } else {
+                lastProjectReport = report;
+                lastReviewResult = null;
+                exportButton.setDisable(false);
+                statusLabel.setText(String.format("Project reviewed: %d files, %d failed, %d skipped",
+                    report.getReviewedFiles(), report.getFailedFiles(), report.getSkippedFiles()));
+            }
+        }));
+    }
+    
+    private void showFileReview(FileReview review, ProjectReviewReport report) {
+        String path = report.getRoot().relativize(review.getFile()).toString();
+        Label fileLabel;
+        if (review.getResult() != null) {
+            CodeReviewResult result = review.getResult();
+            fileLabel = new Label(String.format("%s %s: %d errors, %d warnings, %d suggestions",
+                result.getErrors().isEmpty() ? "✅" : "❌", path, result.getErrors().size(),
+                result.getWarnings().size(), result.getSuggestions().size()));
+        } else {
+            fileLabel = new Label("⚠️ " + path + ": " + review.getMessage());
+        }
+        fileLabel.setWrapText(true);
+        fileLabel.setStyle("-fx-padding: 2px 0px 2px 10px;");
+        resultsContainer.getChildren().add(fileLabel);
+        
+        progressBar.setProgress(report.getCompletedFiles() / (double) Math.max(1, report.getTotalFiles()));
+        statusLabel.setText(String.format("Reviewed %d of %d files", report.getCompletedFiles(), report.getTotalFiles()));
     }
 
     @FXML
     private void exportReport() {
+        if (lastProjectReport != null) {
+            exportProjectReport();
+            return;
+        }
         if (lastReviewResult == null) {
             showError("No Results", "Please review code first before exporting.");
             return;
@@ -158,6 +290,26 @@ public class MainController implements Initializable {
         }
     }
 
+    private void exportProjectReport() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Project Review Report");
+        fileChooser.getExtensionFilters().add(
+            new FileChooser.ExtensionFilter("Text Files", "*.txt")
+        );
+
+        Stage stage = (Stage) exportButton.getScene().getWindow();
+        File selectedFile = fileChooser.showSaveDialog(stage);
+
+        if (selectedFile != null) {
+            try {
+                exportService.exportProjectReport(lastProjectReport, selectedFile);
+                statusLabel.setText("Project report exported to: " + selectedFile.getName());
+            } catch (IOException e) {
+                showError("Export Failed", "Could not export report: " + e.getMessage());
+            }
+        }
+    }
+
     @FXML
     private void openSettings() {
         // TODO: Implement settings dialog
@@ -209,16 +361,21 @@ public class MainController implements Initializable {
     }
 
     private void updateUIState(boolean isReviewing) {
-        reviewButton.setDisable(isReviewing);
+        boolean projectReviewing = currentProjectReview != null;
+        boolean fileReviewing = isReviewing && !projectReviewing;
         loadFileButton.setDisable(isReviewing);
-        exportButton.setDisable(isReviewing || lastReviewResult == null);
+        incrementalCheckBox.setDisable(isReviewing);
+        reviewButton.setDisable(projectReviewing);
+        reviewProjectButton.setDisable(fileReviewing);
+        exportButton.setDisable(isReviewing || (lastReviewResult == null && lastProjectReport == null));
         progressBar.setVisible(isReviewing);
         
-        if (isReviewing) {
-            reviewButton.setText("Reviewing...");
+        if (fileReviewing) {
+            reviewButton.setText("Cancel Review");
         } else {
             reviewButton.setText("Review Code");
         }
+        reviewProjectButton.setText(projectReviewing ? "Cancel Project Review" : "Review Project");
     }
 
     private void showError(String title, String message) {
@@ -0,0 +1,145 @@
+package com.javacodereviewer.model;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model class aggregating the per-file results of a bulk project review
+ *
+ * Files are added from several threads as their reviews finish, so every
+ * method is synchronized.
+ */
+public class ProjectReviewReport {
+
+    /**
+     * How the review of one file ended
+     */
+    public enum Status {
+        REVIEWED,
+        FAILED,
+        SKIPPED
+    }
+
+    /**
+     * Outcome for one file: its review, or the reason there is none
+     */
+    public static class FileReview {
+        private final Path file;
+        private final Status status;
+        private final CodeReviewResult result;
+        private final String message;
+
+        public FileReview(Path file, Status status, CodeReviewResult result, String message) {
+            this.file = file;
+            this.status = status;
+            this.result = result;
+            this.message = message;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public CodeReviewResult getResult() {
+            return result;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final Path root;
+    private final String apiProvider;
+    private final int totalFiles;
+    private final LocalDateTime startTime;
+    private final List<FileReview> files = new ArrayList<>();
+    private int reviewed;
+    private int failed;
+    private int skipped;
+    private int errors;
+    private int warnings;
+    private int suggestions;
+
+    public ProjectReviewReport(Path root, String apiProvider, int totalFiles) {
+        this.root = root;
+        this.apiProvider = apiProvider;
+        this.totalFiles = totalFiles;
+        this.startTime = LocalDateTime.now();
+    }
+
+    public synchronized void add(FileReview review) {
+        files.add(review);
+        switch (review.getStatus()) {
+            case REVIEWED:
+                reviewed++;
+                errors += review.getResult().getErrors().size();
+                warnings += review.getResult().getWarnings().size();
+                suggestions += review.getResult().getSuggestions().size();
+                break;
+            case FAILED:
+                failed++;
+                break;
+            case SKIPPED:
+                skipped++;
+                break;
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public String getApiProvider() {
+        return apiProvider;
+    }
+
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Files finished so far, in the order they finished
+     */
+    public synchronized List<FileReview> getFiles() {
+        return new ArrayList<>(files);
+    }
+
+    public synchronized int getCompletedFiles() {
+        return files.size();
+    }
+
+    public synchronized int getReviewedFiles() {
+        return reviewed;
+    }
+
+    public synchronized int getFailedFiles() {
+        return failed;
+    }
+
+    public synchronized int getSkippedFiles() {
+        return skipped;
+    }
+
+    public synchronized int getTotalErrors() {
+        return errors;
+    }
+
+    public synchronized int getTotalWarnings() {
+        return warnings;
+    }
+
+    public synchronized int getTotalSuggestions() {
+        return suggestions;
+    }
+}
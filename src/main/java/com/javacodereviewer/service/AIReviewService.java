@@ -7,61 +7,257 @@ import com.javacodereviewer.model.CodeReviewResult;
 import okhttp3.*;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Service class for integrating with AI APIs for code review
+ * 
+ * Reviews run on OkHttp's asynchronous dispatcher: the caller gets a
+ * CompletableFuture right away and no thread of its own waits for the
+ * provider. Calls beyond the dispatcher's limits wait in its queue without
+ * holding a thread, and on Java 21+ the active ones run on virtual threads.
+ * 
+ * With a ReviewCache, code already reviewed by the same provider with the
+ * same prompt is answered from disk without calling the provider.
  */
-public class AIReviewService {
+public class AIReviewService implements CodeReviewer {
     
     private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
     private static final String HUGGINGFACE_API_URL = "https://api-inference.huggingface.co/models/codellama/CodeLlama-7b-Instruct-hf";
     
+    /** Time allowed for a whole review call, from connecting to reading the last byte */
+    public static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(90);
+    
+    // OkHttp runs at most 5 calls per host by default, and every review goes to the same host
+    private static final int MAX_REQUESTS = 64;
+    private static final int MAX_REQUESTS_PER_HOST = 32;
+    
+    /** Longest answer requested from OpenAI; the prompt has to fit in the model's context next to it */
+    public static final int MAX_RESPONSE_TOKENS = 2000;
+    
+    /** Version of the review prompt; bump it whenever buildPrompt changes so cached reviews are not reused */
+    public static final int PROMPT_VERSION = 1;
+    
+    static final String UNPARSED_RESPONSE_WARNING =
+            "Could not parse structured response from AI. Raw response provided above.";
+    
     private final OkHttpClient httpClient;
     private final Gson gson;
+    private final ReviewCache cache;
+    private final String openAIUrl;
+    private final Function<String, String> apiKeys;
     
     public AIReviewService() {
-        this.httpClient = new OkHttpClient.Builder()
+        this(null);
+    }
+    
+    /**
+     * Creates a service that answers repeat reviews from the cache, or calls the provider every time if it is null
+     */
+    public AIReviewService(ReviewCache cache) {
+        this(cache, new OkHttpClient.Builder()
+                .dispatcher(newDispatcher())
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+                .build(), OPENAI_API_URL, AIReviewService::getAPIKey);
+    }
+    
+    /**
+     * Creates a service that sends OpenAI reviews to the given URL with the
+     * given client, looking up API keys by provider name; tests point it at
+     * a local server
+     */
+    AIReviewService(ReviewCache cache, OkHttpClient httpClient, String openAIUrl, Function<String, String> apiKeys) {
+        this.httpClient = httpClient;
         this.gson = new Gson();
+        this.cache = cache;
+        this.openAIUrl = openAIUrl;
+        this.apiKeys = apiKeys;
+    }
+    
+    private static Dispatcher newDispatcher() {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        Dispatcher dispatcher = virtualThreads != null ? new Dispatcher(virtualThreads) : new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        return dispatcher;
+    }
+    
+    /**
+     * Looked up reflectively so the application still runs on Java 17
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
     }
     
     /**
-     * Reviews Java code using the specified AI provider
+     * Reviews Java code using the specified AI provider, blocking until the review is done
      */
     public CodeReviewResult reviewCode(String code, String provider) throws Exception {
-        String response = callAIAPI(code, provider);
-        return parseAIResponse(response, provider, code);
+        CompletableFuture<CodeReviewResult> review = reviewCodeAsync(code, provider);
+        try {
+            return review.get();
+        } catch (InterruptedException e) {
+            review.cancel(true);
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
     }
     
-    private String callAIAPI(String code, String provider) throws IOException {
-        String apiKey = getAPIKey(provider);
-        if (apiKey == null || apiKey.trim().isEmpty()) {
-            throw new RuntimeException("API key not configured for " + provider + ". Please set it in settings.");
+    /**
+     * Reviews Java code without blocking, within the default deadline
+     */
+    @Override
+    public CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider) {
+        return reviewCodeAsync(code, provider, DEFAULT_DEADLINE);
+    }
+    
+    /**
+     * Reviews Java code without blocking. The returned future completes on an
+     * OkHttp thread. Cancelling it cancels the HTTP call, and a call still
+     * running when the deadline passes fails with an IOException.
+     */
+    public CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider, Duration deadline) {
+        CodeReviewResult cached = cachedReview(code, provider);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
         
-        switch (provider) {
-            case "OpenAI GPT-4":
-                return callOpenAI(code, apiKey);
-            case "Hugging Face Code Llama":
-                return callHuggingFace(code, apiKey);
-            case "Anthropic Claude":
-                return callClaude(code, apiKey);
-            default:
-                throw new IllegalArgumentException("Unsupported AI provider: " + provider);
-        }
+        CompletableFuture<CodeReviewResult> review = sendAsync(buildPrompt(code), code, provider, deadline);
+        review.thenAccept(result -> store(code, provider, result));
+        return review;
     }
     
-    private String callOpenAI(String code, String apiKey) throws IOException {
-        String prompt = buildPrompt(code);
+    /**
+     * Sends a review prompt to the provider, for services that build their
+     * own prompts around parts of the code. The answer is parsed like a
+     * normal review with the given code as its original code and is not
+     * cached; cancelling and the deadline work as for reviewCodeAsync.
+     */
+    CompletableFuture<CodeReviewResult> sendAsync(String prompt, String code, String provider, Duration deadline) {
+        CompletableFuture<CodeReviewResult> review = new CompletableFuture<>();
         
+        Request request;
+        ResponseReader reader;
+        try {
+            String apiKey = apiKeys.apply(provider);
+            if (apiKey == null || apiKey.trim().isEmpty()) {
+                throw new RuntimeException("API key not configured for " + provider + ". Please set it in settings.");
+            }
+            
+            switch (provider) {
+                case "OpenAI GPT-4":
+                    request = buildOpenAIRequest(prompt, apiKey);
+                    reader = this::readOpenAIResponse;
+                    break;
+                case "Hugging Face Code Llama":
+                    request = buildHuggingFaceRequest(prompt, apiKey);
+                    reader = this::readHuggingFaceResponse;
+                    break;
+                case "Anthropic Claude":
+                    review.complete(parseAIResponse(callClaude(prompt, apiKey), provider, code));
+                    return review;
+                default:
+                    throw new IllegalArgumentException("Unsupported AI provider: " + provider);
+            }
+        } catch (IOException | RuntimeException e) {
+            review.completeExceptionally(e);
+            return review;
+        }
+        
+        Call call = httpClient.newCall(request);
+        call.timeout().timeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        review.whenComplete((result, error) -> {
+            if (review.isCancelled()) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                // OkHttp cancels the call itself when the deadline passes, so only the future tells the two apart
+                if (e instanceof InterruptedIOException && !review.isCancelled()) {
+                    review.completeExceptionally(new IOException(provider + " review timed out after "
+                            + deadline.toSeconds() + " seconds", e));
+                } else {
+                    review.completeExceptionally(e);
+                }
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    review.complete(parseAIResponse(reader.read(response), provider, code));
+                } catch (IOException | RuntimeException e) {
+                    review.completeExceptionally(e);
+                }
+            }
+        });
+        return review;
+    }
+    
+    /**
+     * The cached review of this code by this provider, or null if there is none or no cache
+     */
+    @Override
+    public CodeReviewResult cachedReview(String code, String provider) {
+        return cache != null ? cache.get(code, provider) : null;
+    }
+    
+    /**
+     * Caches a structured review; a raw answer that could not be parsed is
+     * not kept, so the next review of the same code asks again
+     */
+    private void store(String code, String provider, CodeReviewResult result) {
+        if (cache == null || !isStructured(result)) {
+            return;
+        }
+        try {
+            cache.put(code, provider, result);
+        } catch (IOException e) {
+            // The review itself succeeded; losing its cache entry only costs a repeat call
+            System.err.println("Could not cache review: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Whether the provider's answer was parsed into findings rather than kept as raw text
+     */
+    static boolean isStructured(CodeReviewResult result) {
+        return !result.getWarnings().contains(UNPARSED_RESPONSE_WARNING);
+    }
+    
+    /**
+     * Extracts the model's answer from a provider response
+     */
+    private interface ResponseReader {
+        String read(Response response) throws IOException;
+    }
+    
+    private Request buildOpenAIRequest(String prompt, String apiKey) {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("model", "gpt-4");
         requestBody.addProperty("temperature", 0.3);
-        requestBody.addProperty("max_tokens", 2000);
+        requestBody.addProperty("max_tokens", MAX_RESPONSE_TOKENS);
         
         JsonObject message = new JsonObject();
         message.addProperty("role", "user");
@@ -73,63 +269,61 @@ public class AIReviewService {
             MediaType.get("application/json; charset=utf-8")
         );
         
-        Request request = new Request.Builder()
-                .url(OPENAI_API_URL)
+        return new Request.Builder()
+                .url(openAIUrl)
                 .addHeader("Authorization", "Bearer " + apiKey)
                 .addHeader("Content-Type", "application/json")
                 .post(body)
                 .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("OpenAI API call failed: " + response.code() + " " + response.message());
-            }
-            
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
-            return jsonResponse.getAsJsonArray("choices")
-                    .get(0).getAsJsonObject()
-                    .getAsJsonObject("message")
-                    .get("content").getAsString();
-        }
     }
     
-    private String callHuggingFace(String code, String apiKey) throws IOException {
-        String prompt = buildPrompt(code);
+    private String readOpenAIResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("OpenAI API call failed: " + response.code() + " " + response.message());
+        }
         
+        String responseBody = response.body().string();
+        JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
+        return jsonResponse.getAsJsonArray("choices")
+                .get(0).getAsJsonObject()
+                .getAsJsonObject("message")
+                .get("content").getAsString();
+    }
+    
+    private Request buildHuggingFaceRequest(String prompt, String apiKey) {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("inputs", prompt);
-        requestBody.addProperty("parameters", gson.toJson(new JsonObject() {{
-            addProperty("max_new_tokens", 1000);
-            addProperty("temperature", 0.3);
-            addProperty("return_full_text", false);
-        }}));
+        JsonObject parameters = new JsonObject();
+        parameters.addProperty("max_new_tokens", 1000);
+        parameters.addProperty("temperature", 0.3);
+        parameters.addProperty("return_full_text", false);
+        requestBody.add("parameters", parameters);
         
         RequestBody body = RequestBody.create(
             requestBody.toString(),
             MediaType.get("application/json; charset=utf-8")
         );
         
-        Request request = new Request.Builder()
+        return new Request.Builder()
                 .url(HUGGINGFACE_API_URL)
                 .addHeader("Authorization", "Bearer " + apiKey)
                 .addHeader("Content-Type", "application/json")
                 .post(body)
                 .build();
-        
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("Hugging Face API call failed: " + response.code() + " " + response.message());
-            }
-            
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
-            return jsonResponse.getAsJsonArray("generated_text")
-                    .get(0).getAsString();
+    }
+    
+    private String readHuggingFaceResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Hugging Face API call failed: " + response.code() + " " + response.message());
         }
+        
+        String responseBody = response.body().string();
+        JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
+        return jsonResponse.getAsJsonArray("generated_text")
+                .get(0).getAsString();
     }
     
-    private String callClaude(String code, String apiKey) throws IOException {
+    private String callClaude(String prompt, String apiKey) throws IOException {
         // Claude API implementation would go here
         // For now, return a mock response
         return "Claude API integration not yet implemented. Please use OpenAI or Hugging Face.";
@@ -200,13 +394,13 @@ public class AIReviewService {
         } catch (Exception e) {
             // If JSON parsing fails, treat the entire response as summary
             result.setSummary("AI Response (Raw):\n" + response);
-            result.addWarning("Could not parse structured response from AI. Raw response provided above.");
+            result.addWarning(UNPARSED_RESPONSE_WARNING);
         }
         
         return result;
     }
     
-    private String getAPIKey(String provider) {
+    private static String getAPIKey(String provider) {
         // In a real application, these would be loaded from configuration
         // For now, return environment variables or placeholder values
         switch (provider) {
@@ -0,0 +1,238 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+import com.javacodereviewer.model.ProjectReviewReport;
+import com.javacodereviewer.model.ProjectReviewReport.FileReview;
+import com.javacodereviewer.model.ProjectReviewReport.Status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service class for reviewing every Java file under a directory
+ *
+ * Files are reviewed through a CodeReviewer's asynchronous API by a fixed
+ * number of lanes: each lane starts one review and starts its next file when
+ * that review completes, so no thread waits for a provider. A file reviewed
+ * in several requests, such as a large file sent in chunks, takes a permit
+ * per request from a pool of maxConcurrent shared by the whole run, so at
+ * most maxConcurrent calls are in flight whatever the files' sizes. Each
+ * file costs the reviewer's requests for
+ * it from the budget, unless the reviewer already has its review cached;
+ * a file that no longer fits in the budget is reported as skipped. Every
+ * file is passed to the listener as soon as it finishes.
+ */
+public class BulkReviewService {
+
+    public static final int DEFAULT_MAX_CONCURRENT = 8;
+    public static final int DEFAULT_REQUEST_BUDGET = 1000;
+
+    // Build output, dependencies and VCS metadata are not worth a request
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of("target", "build", "out", "bin", "node_modules");
+
+    /**
+     * Receives each file as it finishes; called on the thread that completed
+     * the review, so UI code must hand it over to its own thread
+     */
+    public interface Listener {
+        void onFileReviewed(FileReview review, ProjectReviewReport report);
+    }
+
+    private final CodeReviewer reviewService;
+    private final int maxConcurrent;
+    private final int requestBudget;
+
+    public BulkReviewService(CodeReviewer reviewService, int maxConcurrent, int requestBudget) {
+        if (maxConcurrent < 1 || requestBudget < 0) {
+            throw new IllegalArgumentException("Concurrency must be at least 1 and the request budget not negative");
+        }
+        this.reviewService = reviewService;
+        this.maxConcurrent = maxConcurrent;
+        this.requestBudget = requestBudget;
+    }
+
+    /**
+     * Lists the .java files under the root, sorted, leaving out hidden and build directories
+     */
+    public static List<Path> findJavaFiles(Path root) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                String name = dir.getFileName() != null ? dir.getFileName().toString() : "";
+                if (!dir.equals(root) && (name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".java")) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Reviews every Java file under the root. The returned future completes
+     * with the full report once every file has finished; cancelling it stops
+     * starting new reviews and cancels the ones in flight.
+     */
+    public CompletableFuture<ProjectReviewReport> reviewProject(Path root, String provider, Listener listener)
+            throws IOException {
+        List<Path> files = findJavaFiles(root);
+        Run run = new Run(root, files, provider, listener);
+        if (files.isEmpty()) {
+            run.completion.complete(run.report);
+            return run.completion;
+        }
+        run.completion.whenComplete((report, error) -> {
+            if (run.completion.isCancelled()) {
+                // Waiting requests first, so the permits freed by cancelled reviews do not send them
+                run.permits.close();
+                run.inFlight.forEach(review -> review.cancel(true));
+            }
+        });
+        for (int lane = 0; lane < Math.min(maxConcurrent, files.size()); lane++) {
+            runLane(run);
+        }
+        return run.completion;
+    }
+
+    /**
+     * Reviews files one after another until none are left. Reviews that
+     * complete immediately are handled in the loop rather than by recursion,
+     * so a provider failing every call cannot grow the stack.
+     */
+    private void runLane(Run run) {
+        while (!run.completion.isDone()) {
+            int index = run.nextFile.getAndIncrement();
+            if (index >= run.files.size()) {
+                return;
+            }
+            Path file = run.files.get(index);
+
+            String code;
+            try {
+                code = Files.readString(file).trim();
+            } catch (IOException | UncheckedIOException e) {
+                finish(run, new FileReview(file, Status.FAILED, null, "Could not read file: " + e.getMessage()));
+                continue;
+            }
+            if (code.isEmpty()) {
+                finish(run, new FileReview(file, Status.SKIPPED, null, "Empty file"));
+                continue;
+            }
+
+            // A cached review costs no request, so re-scans of an unchanged tree never run out of budget
+            CodeReviewResult cached = reviewService.cachedReview(code, run.provider);
+            if (cached != null) {
+                finish(run, new FileReview(file, Status.REVIEWED, cached, null));
+                continue;
+            }
+            if (!spend(run.budget, reviewService.requestCount(code))) {
+                finish(run, new FileReview(file, Status.SKIPPED, null, "Request budget exhausted"));
+                continue;
+            }
+
+            CompletableFuture<CodeReviewResult> review = reviewService.reviewCodeAsync(code, run.provider, run.permits);
+
+            if (!review.isDone()) {
+                run.inFlight.add(review);
+                if (run.completion.isCancelled()) {
+                    // Cancelled between the loop check and registering this review
+                    review.cancel(true);
+                }
+                review.whenComplete((result, error) -> {
+                    run.inFlight.remove(review);
+                    finish(run, toFileReview(file, review));
+                    runLane(run);
+                });
+                return;
+            }
+            finish(run, toFileReview(file, review));
+        }
+    }
+
+    /**
+     * Takes the requests from the budget if there are enough left
+     */
+    private static boolean spend(AtomicInteger budget, int requests) {
+        int left;
+        do {
+            left = budget.get();
+            if (left < requests) {
+                return false;
+            }
+        } while (!budget.compareAndSet(left, left - requests));
+        return true;
+    }
+
+    private static FileReview toFileReview(Path file, CompletableFuture<CodeReviewResult> review) {
+        try {
+            return new FileReview(file, Status.REVIEWED, review.join(), null);
+        } catch (CancellationException e) {
+            return new FileReview(file, Status.SKIPPED, null, "Cancelled");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return new FileReview(file, Status.FAILED, null, cause.getMessage());
+        }
+    }
+
+    private void finish(Run run, FileReview review) {
+        run.report.add(review);
+        if (run.listener != null) {
+            try {
+                run.listener.onFileReviewed(review, run.report);
+            } catch (RuntimeException e) {
+                // A failing listener must not stall the other lanes
+                System.err.println("Bulk review listener failed for " + review.getFile() + ": " + e.getMessage());
+            }
+        }
+        if (run.finished.incrementAndGet() == run.files.size()) {
+            run.completion.complete(run.report);
+        }
+    }
+
+    /**
+     * State of one project review, shared by its lanes
+     */
+    private class Run {
+        final List<Path> files;
+        final String provider;
+        final Listener listener;
+        final ProjectReviewReport report;
+        final CompletableFuture<ProjectReviewReport> completion = new CompletableFuture<>();
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicInteger budget = new AtomicInteger(requestBudget);
+        final RequestPermits permits = new RequestPermits(maxConcurrent);
+        final Set<CompletableFuture<CodeReviewResult>> inFlight = ConcurrentHashMap.newKeySet();
+
+        Run(Path root, List<Path> files, String provider, Listener listener) {
+            this.files = files;
+            this.provider = provider;
+            this.listener = listener;
+            this.report = new ProjectReviewReport(root, provider, files.size());
+        }
+    }
+}
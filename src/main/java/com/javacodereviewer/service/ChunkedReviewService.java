@@ -0,0 +1,292 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+import com.javacodereviewer.service.CodeChunker.Chunk;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for reviewing files too large for one request
+ *
+ * Code over chunkTokens is split by CodeChunker and the chunks are sent
+ * together, so a large file takes about as long as its slowest chunk rather
+ * than the sum of them. Each chunk takes one of the caller's request
+ * permits, so a bulk review's concurrency limit covers chunks too; a single
+ * review sends them all at once and OkHttp's dispatcher bounds how many run.
+ * The findings are merged in chunk order, dropping repeats: the overlap
+ * between chunks means neighbouring chunks often report the same problem,
+ * in the same or slightly different words. If some chunks fail the others
+ * are still returned, with a warning naming the parts that are missing.
+ * Smaller code gets a normal whole-file review.
+ */
+public class ChunkedReviewService implements CodeReviewer {
+
+    /** Leaves room in GPT-4's 8K context for the prompt and a full-length answer */
+    public static final int DEFAULT_CHUNK_TOKENS = 4000;
+    public static final int DEFAULT_OVERLAP_TOKENS = 200;
+
+    /** Version of the chunk prompt below; bump it whenever the prompt changes */
+    public static final int CHUNK_PROMPT_VERSION = 1;
+
+    // Findings sharing this fraction of their words are taken to be the same finding
+    private static final double DUPLICATE_SIMILARITY = 0.8;
+
+    private final AIReviewService reviewService;
+    private final ReviewCache cache;
+    private final int chunkTokens;
+    private final int overlapTokens;
+
+    public ChunkedReviewService(AIReviewService reviewService, ReviewCache cache, int chunkTokens, int overlapTokens) {
+        if (chunkTokens < 16 || overlapTokens < 0 || overlapTokens >= chunkTokens / 2) {
+            throw new IllegalArgumentException("Chunks need at least 16 tokens and an overlap under half a chunk");
+        }
+        this.reviewService = reviewService;
+        this.cache = cache;
+        this.chunkTokens = chunkTokens;
+        this.overlapTokens = overlapTokens;
+    }
+
+    private boolean fitsOneRequest(String code) {
+        return CodeChunker.estimateTokens(code) <= chunkTokens;
+    }
+
+    @Override
+    public int requestCount(String code) {
+        return fitsOneRequest(code) ? 1 : CodeChunker.split(code, chunkTokens, overlapTokens).size();
+    }
+
+    @Override
+    public CodeReviewResult cachedReview(String code, String provider) {
+        if (fitsOneRequest(code)) {
+            return reviewService.cachedReview(code, provider);
+        }
+        return cache != null ? cache.get(code, cacheNamespace(provider)) : null;
+    }
+
+    /**
+     * Reviews the code, in parallel chunks if it is over the chunk size
+     */
+    @Override
+    public CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider) {
+        return reviewCodeAsync(code, provider, RequestPermits.unlimited());
+    }
+
+    @Override
+    public CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider, RequestPermits permits) {
+        if (fitsOneRequest(code)) {
+            return permits.submit(() -> reviewService.reviewCodeAsync(code, provider));
+        }
+        CodeReviewResult cached = cachedReview(code, provider);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        List<Chunk> chunks = CodeChunker.split(code, chunkTokens, overlapTokens);
+        List<CompletableFuture<CodeReviewResult>> parts = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            String prompt = buildPrompt(chunks.get(i), i, chunks.size());
+            // The deadline starts when the chunk is sent, not while it waits for a permit
+            parts.add(permits.submit(() -> reviewService.sendAsync(prompt, code, provider,
+                AIReviewService.DEFAULT_DEADLINE)));
+        }
+
+        CompletableFuture<CodeReviewResult> review = new CompletableFuture<>();
+        review.whenComplete((result, error) -> {
+            if (review.isCancelled()) {
+                // Last first: the waiting parts are at the end, and cancelling a sent one frees its permit
+                for (int i = parts.size() - 1; i >= 0; i--) {
+                    parts.get(i).cancel(true);
+                }
+            }
+        });
+        AtomicInteger remaining = new AtomicInteger(parts.size());
+        for (CompletableFuture<CodeReviewResult> part : parts) {
+            part.whenComplete((result, error) -> {
+                if (remaining.decrementAndGet() == 0) {
+                    try {
+                        complete(review, code, provider, chunks, parts);
+                    } catch (RuntimeException e) {
+                        review.completeExceptionally(e);
+                    }
+                }
+            });
+        }
+        return review;
+    }
+
+    private void complete(CompletableFuture<CodeReviewResult> review, String code, String provider,
+                          List<Chunk> chunks, List<CompletableFuture<CodeReviewResult>> parts) {
+        if (review.isDone()) {
+            return;
+        }
+        List<CodeReviewResult> results = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        Throwable firstError = null;
+        boolean complete = true;
+        for (int i = 0; i < parts.size(); i++) {
+            try {
+                CodeReviewResult result = parts.get(i).join();
+                results.add(result);
+                complete &= AIReviewService.isStructured(result);
+            } catch (CancellationException | CompletionException e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                firstError = firstError != null ? firstError : cause;
+                missing.add(String.format("Part %d of %d (%s) could not be reviewed: %s",
+                    i + 1, parts.size(), describe(chunks.get(i)), cause.getMessage()));
+                complete = false;
+            }
+        }
+        if (results.isEmpty()) {
+            review.completeExceptionally(firstError);
+            return;
+        }
+
+        CodeReviewResult merged = merge(code, provider, chunks, results);
+        missing.forEach(merged::addWarning);
+        // Only a review of the whole file is worth keeping
+        if (complete && cache != null) {
+            try {
+                cache.put(code, cacheNamespace(provider), merged);
+            } catch (IOException e) {
+                System.err.println("Could not cache review: " + e.getMessage());
+            }
+        }
+        review.complete(merged);
+    }
+
+    private static CodeReviewResult merge(String code, String provider, List<Chunk> chunks,
+                                          List<CodeReviewResult> results) {
+        List<String> errors = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        List<String> suggestions = new ArrayList<>();
+        List<String> goodPractices = new ArrayList<>();
+        List<String> summaries = new ArrayList<>();
+        for (CodeReviewResult result : results) {
+            addDistinct(errors, result.getErrors());
+            addDistinct(warnings, result.getWarnings());
+            addDistinct(suggestions, result.getSuggestions());
+            addDistinct(goodPractices, result.getGoodPractices());
+            if (result.getSummary() != null && !result.getSummary().isBlank()) {
+                summaries.add(result.getSummary().strip());
+            }
+        }
+
+        StringBuilder summary = new StringBuilder(String.format(
+            "Reviewed in %d parts of up to %d estimated tokens each.", chunks.size(),
+            chunks.stream().mapToInt(Chunk::getTokens).max().orElse(0)));
+        for (String part : summaries) {
+            summary.append("\n\n").append(part);
+        }
+        CodeReviewResult merged = new CodeReviewResult(summary.toString(), provider, code);
+        merged.setErrors(errors);
+        merged.setWarnings(warnings);
+        merged.setSuggestions(suggestions);
+        merged.setGoodPractices(goodPractices);
+        merged.setReviewTime(LocalDateTime.now());
+        return merged;
+    }
+
+    /**
+     * Adds the findings not already present: equal once case, punctuation
+     * and spacing are ignored, or sharing most of their words
+     */
+    private static void addDistinct(List<String> kept, List<String> findings) {
+        List<Set<String>> keptWords = new ArrayList<>();
+        kept.forEach(finding -> keptWords.add(words(finding)));
+        for (String finding : findings) {
+            Set<String> words = words(finding);
+            boolean duplicate = false;
+            for (Set<String> other : keptWords) {
+                if (similarity(words, other) >= DUPLICATE_SIMILARITY) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                kept.add(finding);
+                keptWords.add(words);
+            }
+        }
+    }
+
+    private static Set<String> words(String finding) {
+        return Arrays.stream(finding.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}_]+"))
+            .filter(word -> !word.isEmpty())
+            .collect(Collectors.toCollection(HashSet::new));
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return a.equals(b) ? 1 : 0;
+        }
+        int shared = 0;
+        for (String word : a) {
+            if (b.contains(word)) {
+                shared++;
+            }
+        }
+        return shared / (double) (a.size() + b.size() - shared);
+    }
+
+    private static String describe(Chunk chunk) {
+        return chunk.getFirstLabel().equals(chunk.getLastLabel())
+            ? chunk.getFirstLabel() : chunk.getFirstLabel() + " to " + chunk.getLastLabel();
+    }
+
+    // Keeps chunked reviews apart from whole-file reviews, and from other chunk sizes
+    private String cacheNamespace(String provider) {
+        return provider + " [chunks v" + CHUNK_PROMPT_VERSION + " " + chunkTokens + "/" + overlapTokens + "]";
+    }
+
+    private static String buildPrompt(Chunk chunk, int index, int count) {
+        String context = chunk.getContext() != null ? String.format("""
+            The file's package, imports, type declarations and fields, for context only:
+            ```java
+            %s
+            ```
+
+            """, chunk.getContext()) : "";
+        return String.format("""
+            Please review the following part of a large Java source file and provide a comprehensive
+            analysis. This is part %d of %d (%s); the other parts are reviewed separately, so
+            review only this part and do not report code that is cut off at its start or end.
+            Format your response as JSON with the following structure:
+
+            {
+                "summary": "Brief overview of the code quality and main issues in this part",
+                "errors": ["List of actual errors or bugs"],
+                "warnings": ["List of potential issues or code smells"],
+                "suggestions": ["List of improvement suggestions"],
+                "goodPractices": ["List of good practices already followed"]
+            }
+
+            Focus on:
+            - Syntax errors and compilation issues
+            - Security vulnerabilities
+            - Performance issues
+            - Code style and best practices
+            - Design patterns and architecture
+            - Error handling
+            - Documentation and comments
+
+            %sJava Code to Review:
+            ```java
+            %s
+            ```
+
+            Please provide a detailed analysis in the JSON format specified above.
+            """, index + 1, count, describe(chunk), context, chunk.getText());
+    }
+}
@@ -0,0 +1,273 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.service.CodeUnitParser.CodeUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits Java source that is too large for one request into chunks of a
+ * bounded number of tokens
+ *
+ * Chunks are cut between the units found by CodeUnitParser, so a method is
+ * only split when it alone is over the limit, and then between lines. The
+ * file's declarations travel with every chunk as context when they are
+ * small; otherwise they are chunked like any other unit. Each chunk repeats
+ * the trailing units (or lines) of the one before it, up to overlapTokens,
+ * so code near a boundary is seen with its neighbours.
+ *
+ * Token counts are estimates: words count one token per four characters,
+ * punctuation one each, and indentation one per four characters of
+ * whitespace after a line break. That is close to GPT tokenizers on Java
+ * and errs high, which is the safe side for a context limit.
+ */
+public final class CodeChunker {
+
+    private CodeChunker() {
+    }
+
+    /**
+     * A part of the source, with the labels of the units it covers
+     */
+    public static final class Chunk {
+        private final String context;
+        private final String text;
+        private final String firstLabel;
+        private final String lastLabel;
+        private final int tokens;
+
+        Chunk(String context, String text, String firstLabel, String lastLabel, int tokens) {
+            this.context = context;
+            this.text = text;
+            this.firstLabel = firstLabel;
+            this.lastLabel = lastLabel;
+            this.tokens = tokens;
+        }
+
+        /**
+         * The file's declarations, to be shown but not reviewed, or null
+         */
+        public String getContext() {
+            return context;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getFirstLabel() {
+            return firstLabel;
+        }
+
+        public String getLastLabel() {
+            return lastLabel;
+        }
+
+        /**
+         * Estimated tokens of the text and context together
+         */
+        public int getTokens() {
+            return tokens;
+        }
+    }
+
+    /**
+     * A unit, or a run of lines of one, with its estimated tokens
+     */
+    private static final class Piece {
+        final String label;
+        final String text;
+        final int tokens;
+
+        Piece(String label, String text) {
+            this.label = label;
+            this.text = text;
+            // Counted with the blank line that separates it from the piece before
+            this.tokens = estimateTokens("\n\n" + text);
+        }
+    }
+
+    /**
+     * Estimated number of model tokens in the text
+     */
+    public static int estimateTokens(CharSequence text) {
+        int tokens = 0;
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            int start = i;
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '$') {
+                while (i < length && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'
+                        || text.charAt(i) == '$')) {
+                    i++;
+                }
+                tokens += (i - start + 3) / 4;
+            } else if (Character.isWhitespace(c)) {
+                boolean lineBreak = false;
+                while (i < length && Character.isWhitespace(text.charAt(i))) {
+                    lineBreak |= text.charAt(i) == '\n';
+                    i++;
+                }
+                // A single space is merged into the next word's token
+                if (lineBreak) {
+                    tokens += (i - start + 3) / 4;
+                }
+            } else {
+                tokens++;
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Splits the source into chunks of at most maxTokens each, context
+     * included. Source within the limit comes back as a single chunk.
+     */
+    public static List<Chunk> split(String source, int maxTokens, int overlapTokens) {
+        if (maxTokens < 16 || overlapTokens < 0 || overlapTokens >= maxTokens / 2) {
+            throw new IllegalArgumentException("Chunks need at least 16 tokens and an overlap under half a chunk");
+        }
+        List<CodeUnit> units = CodeUnitParser.parse(source);
+        String context = null;
+        int contextTokens = 0;
+        if (units.size() > 1 && units.get(0).getLabel().equals(CodeUnitParser.DECLARATIONS)) {
+            int declarationTokens = estimateTokens(units.get(0).getText());
+            // Declarations that would crowd out the code are reviewed as a chunk of their own instead
+            if (declarationTokens <= maxTokens / 4) {
+                context = units.get(0).getText();
+                contextTokens = declarationTokens;
+                units = units.subList(1, units.size());
+            }
+        }
+        int budget = maxTokens - contextTokens;
+
+        List<Piece> pieces = new ArrayList<>();
+        for (CodeUnit unit : units) {
+            Piece piece = new Piece(unit.getLabel(), unit.getText());
+            if (piece.tokens <= budget) {
+                pieces.add(piece);
+            } else {
+                pieces.addAll(splitLines(unit, budget, overlapTokens));
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        List<Piece> current = new ArrayList<>();
+        int currentTokens = 0;
+        for (Piece piece : pieces) {
+            if (!current.isEmpty() && currentTokens + piece.tokens > budget) {
+                chunks.add(chunk(context, contextTokens, current));
+                List<Piece> overlap = tail(current, overlapTokens);
+                current = new ArrayList<>();
+                currentTokens = 0;
+                if (sum(overlap) + piece.tokens <= budget) {
+                    current.addAll(overlap);
+                    currentTokens = sum(overlap);
+                }
+            }
+            current.add(piece);
+            currentTokens += piece.tokens;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(chunk(context, contextTokens, current));
+        }
+        return chunks;
+    }
+
+    /**
+     * Cuts an oversized unit between lines, preferring the last line in the
+     * second half of a piece that ends a statement or block
+     */
+    private static List<Piece> splitLines(CodeUnit unit, int budget, int overlapTokens) {
+        // Room for the separator a piece is counted with
+        budget -= 2;
+        List<String> lines = new ArrayList<>();
+        for (String line : unit.getText().split("\n", -1)) {
+            // A single line over the limit (generated data, minified code) is cut at a length no tokenizer can exceed
+            int maxChars = Math.max(8, budget - 2);
+            while (lineTokens(line) > budget && line.length() > maxChars) {
+                lines.add(line.substring(0, maxChars));
+                line = line.substring(maxChars);
+            }
+            lines.add(line);
+        }
+
+        List<String> texts = new ArrayList<>();
+        int start = 0;
+        while (start < lines.size()) {
+            int end = start;
+            int tokens = 0;
+            int lastBoundary = -1;
+            while (end < lines.size() && (end == start || tokens + lineTokens(lines.get(end)) <= budget)) {
+                tokens += lineTokens(lines.get(end));
+                String trimmed = lines.get(end).strip();
+                if (trimmed.isEmpty() || trimmed.endsWith(";") || trimmed.endsWith("{") || trimmed.endsWith("}")) {
+                    lastBoundary = end;
+                }
+                end++;
+            }
+            if (end < lines.size() && lastBoundary >= 0 && lastBoundary >= start + (end - start) / 2) {
+                end = lastBoundary + 1;
+            }
+            texts.add(String.join("\n", lines.subList(start, end)));
+            if (end >= lines.size()) {
+                break;
+            }
+            int next = end;
+            int overlap = 0;
+            while (next - 1 > start && overlap + lineTokens(lines.get(next - 1)) <= overlapTokens) {
+                overlap += lineTokens(lines.get(next - 1));
+                next--;
+            }
+            start = next;
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            pieces.add(new Piece(unit.getLabel() + " (part " + (i + 1) + " of " + texts.size() + ")", texts.get(i)));
+        }
+        return pieces;
+    }
+
+    /**
+     * Tokens of a line with the line break and indentation before it
+     */
+    private static int lineTokens(String line) {
+        return estimateTokens("\n" + line);
+    }
+
+    /**
+     * The trailing pieces that fit in the overlap
+     */
+    private static List<Piece> tail(List<Piece> pieces, int overlapTokens) {
+        int from = pieces.size();
+        int tokens = 0;
+        while (from > 1 && tokens + pieces.get(from - 1).tokens <= overlapTokens) {
+            tokens += pieces.get(from - 1).tokens;
+            from--;
+        }
+        return new ArrayList<>(pieces.subList(from, pieces.size()));
+    }
+
+    private static int sum(List<Piece> pieces) {
+        int tokens = 0;
+        for (Piece piece : pieces) {
+            tokens += piece.tokens;
+        }
+        return tokens;
+    }
+
+    private static Chunk chunk(String context, int contextTokens, List<Piece> pieces) {
+        StringBuilder text = new StringBuilder();
+        for (Piece piece : pieces) {
+            if (text.length() > 0) {
+                text.append("\n\n");
+            }
+            text.append(piece.text);
+        }
+        return new Chunk(context, text.toString(), pieces.get(0).label, pieces.get(pieces.size() - 1).label,
+            contextTokens + sum(pieces));
+    }
+}
@@ -0,0 +1,40 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reviews a piece of Java code with an AI provider
+ *
+ * Implemented by AIReviewService, which sends the whole code in one request,
+ * and by the services that review it in parts on top of it.
+ */
+public interface CodeReviewer {
+
+    /**
+     * Reviews the code without blocking; cancelling the future cancels the provider calls
+     */
+    CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider);
+
+    /**
+     * Reviews the code with every provider request it sends taking one of
+     * the permits, so a caller reviewing many files bounds the requests in
+     * flight rather than the files
+     */
+    default CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider, RequestPermits permits) {
+        return permits.submit(() -> reviewCodeAsync(code, provider));
+    }
+
+    /**
+     * The review this reviewer would return without calling the provider, or null
+     */
+    CodeReviewResult cachedReview(String code, String provider);
+
+    /**
+     * Provider requests a review of the code sends when nothing is cached
+     */
+    default int requestCount(String code) {
+        return 1;
+    }
+}
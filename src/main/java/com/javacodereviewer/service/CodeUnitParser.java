@@ -0,0 +1,320 @@
+package com.javacodereviewer.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits Java source into the units an incremental review compares
+ *
+ * Every method, constructor, initializer and nested type with a body
+ * becomes one unit, labelled like Type.method(int, String). Everything else
+ * (package, imports, type headers, fields and abstract methods) forms one
+ * more unit, "<declarations>". A snippet of bare methods without a class is
+ * split the same way with unqualified labels.
+ *
+ * This is a lexical scan, not a full parser: comments, string, character
+ * and text block literals are blanked out first, then braces are matched.
+ * Source whose braces do not balance is returned as a single unit.
+ */
+public final class CodeUnitParser {
+
+    public static final String DECLARATIONS = "<declarations>";
+
+    private static final Pattern TYPE_DECLARATION =
+        Pattern.compile("\\b(?:class|interface|enum|record)\\s+([A-Za-z_$][\\w$]*)");
+    private static final Pattern ANNOTATION =
+        Pattern.compile("@\\s*(?!interface\\b)[\\w$.]+(?:\\s*\\([^()]*\\))?");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][\\w$]*");
+
+    private CodeUnitParser() {
+    }
+
+    /**
+     * One reviewable part of a source file
+     */
+    public static final class CodeUnit {
+        private final String label;
+        private final String text;
+        private final String hash;
+
+        CodeUnit(String label, String text) {
+            this.label = label;
+            this.text = text;
+            this.hash = sha256(text.replaceAll("\\s+", " "));
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * SHA-256 of the text with whitespace runs collapsed, so reindenting does not change it
+         */
+        public String getHash() {
+            return hash;
+        }
+    }
+
+    /**
+     * The units of the source, in source order with the declarations unit first
+     */
+    public static List<CodeUnit> parse(String source) {
+        String code = mask(source);
+        List<CodeUnit> members = new ArrayList<>();
+        StringBuilder declarations = new StringBuilder();
+        Map<String, Integer> seenLabels = new HashMap<>();
+
+        int depth = 0;
+        int parens = 0;
+        // Start of the declaration being read at type-body level, and where uncopied declaration text begins
+        int declarationStart = 0;
+        int copiedTo = 0;
+        String type = "";
+        // Depth a member body returns to when it closes, or -1 outside a member
+        int memberDepth = -1;
+        int memberStart = 0;
+        String memberLabel = null;
+        // Depth of a top-level type's body, or -1 at top level outside a type
+        int typeDepth = -1;
+
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            boolean atTypeLevel = memberDepth < 0 && parens == 0 && depth == (typeDepth < 0 ? 0 : typeDepth);
+            switch (c) {
+                case '(':
+                    parens++;
+                    break;
+                case ')':
+                    parens = Math.max(0, parens - 1);
+                    break;
+                case ';':
+                    if (atTypeLevel) {
+                        declarationStart = i + 1;
+                    }
+                    break;
+                case '{':
+                    if (atTypeLevel) {
+                        String header = stripAnnotations(code.substring(declarationStart, i));
+                        Matcher typeName = TYPE_DECLARATION.matcher(header);
+                        if (typeDepth < 0 && typeName.find()) {
+                            type = typeName.group(1);
+                            typeDepth = depth + 1;
+                            declarationStart = i + 1;
+                        } else if (!isInitializer(header)) {
+                            memberDepth = depth;
+                            memberStart = declarationStart;
+                            memberLabel = unique(label(type, header), seenLabels);
+                        }
+                    }
+                    depth++;
+                    break;
+                case '}':
+                    depth--;
+                    if (depth < 0) {
+                        return whole(source);
+                    }
+                    if (depth == memberDepth) {
+                        declarations.append(source, copiedTo, memberStart);
+                        members.add(new CodeUnit(memberLabel, source.substring(memberStart, i + 1).strip()));
+                        copiedTo = i + 1;
+                        declarationStart = i + 1;
+                        memberDepth = -1;
+                    } else if (memberDepth < 0 && typeDepth >= 0 && depth == typeDepth - 1) {
+                        typeDepth = -1;
+                        type = "";
+                        declarationStart = i + 1;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (depth != 0 || memberDepth >= 0) {
+            return whole(source);
+        }
+        declarations.append(source, copiedTo, source.length());
+
+        List<CodeUnit> units = new ArrayList<>();
+        String declarationText = declarations.toString().strip();
+        if (!declarationText.isEmpty()) {
+            units.add(new CodeUnit(DECLARATIONS, declarationText));
+        }
+        units.addAll(members);
+        return units.isEmpty() ? whole(source) : units;
+    }
+
+    private static List<CodeUnit> whole(String source) {
+        List<CodeUnit> units = new ArrayList<>();
+        units.add(new CodeUnit(DECLARATIONS, source.strip()));
+        return units;
+    }
+
+    /**
+     * A brace after an assignment opens an array initializer, anonymous
+     * class or lambda in a field, which belongs to the declarations
+     */
+    private static boolean isInitializer(String header) {
+        int parens = 0;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '(') {
+                parens++;
+            } else if (c == ')') {
+                parens--;
+            } else if (c == '=' && parens == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String label(String type, String header) {
+        String prefix = type.isEmpty() ? "" : type + ".";
+        int open = header.indexOf('(');
+        Matcher nested = TYPE_DECLARATION.matcher(header);
+        if (nested.find() && (open < 0 || nested.start() < open)) {
+            return prefix + nested.group(1);
+        }
+        if (open < 0) {
+            // An initializer block, or an enum constant with a body after the constants before it
+            String last = lastIdentifier(header.substring(header.lastIndexOf(',') + 1));
+            if (last == null) {
+                return prefix + "<init>";
+            }
+            return prefix + (last.equals("static") ? "<static init>" : last);
+        }
+        String name = lastIdentifier(header.substring(0, open));
+        int close = matchingParen(header, open);
+        List<String> parameterTypes = new ArrayList<>();
+        for (String parameter : splitParameters(header.substring(open + 1, close))) {
+            String declared = parameter.replaceAll("\\bfinal\\b", "").strip();
+            int nameStart = declared.length();
+            while (nameStart > 0 && Character.isJavaIdentifierPart(declared.charAt(nameStart - 1))) {
+                nameStart--;
+            }
+            String parameterType = declared.substring(0, nameStart).replaceAll("\\s+", "");
+            parameterTypes.add(parameterType.isEmpty() ? declared : parameterType);
+        }
+        return prefix + (name != null ? name : "<anonymous>") + "(" + String.join(", ", parameterTypes) + ")";
+    }
+
+    private static String unique(String label, Map<String, Integer> seen) {
+        int count = seen.merge(label, 1, Integer::sum);
+        return count == 1 ? label : label + " #" + count;
+    }
+
+    private static String lastIdentifier(String text) {
+        Matcher identifier = IDENTIFIER.matcher(text);
+        String last = null;
+        while (identifier.find()) {
+            last = identifier.group();
+        }
+        return last;
+    }
+
+    private static int matchingParen(String text, int open) {
+        int depth = 0;
+        for (int i = open; i < text.length(); i++) {
+            if (text.charAt(i) == '(') {
+                depth++;
+            } else if (text.charAt(i) == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    /**
+     * Splits a parameter list at commas that are not inside generic type arguments
+     */
+    private static List<String> splitParameters(String list) {
+        List<String> parameters = new ArrayList<>();
+        int angles = 0;
+        int start = 0;
+        for (int i = 0; i < list.length(); i++) {
+            char c = list.charAt(i);
+            if (c == '<') {
+                angles++;
+            } else if (c == '>') {
+                angles--;
+            } else if (c == ',' && angles == 0) {
+                parameters.add(list.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (!list.isBlank()) {
+            parameters.add(list.substring(start));
+        }
+        return parameters;
+    }
+
+    private static String stripAnnotations(String header) {
+        return ANNOTATION.matcher(header).replaceAll(" ");
+    }
+
+    /**
+     * The source with comments and the contents of literals replaced by
+     * spaces, keeping every offset and line break in place
+     */
+    static String mask(String source) {
+        char[] masked = source.toCharArray();
+        int i = 0;
+        while (i < masked.length) {
+            char c = masked[i];
+            char next = i + 1 < masked.length ? masked[i + 1] : 0;
+            int end;
+            if (c == '/' && next == '/') {
+                end = i;
+                while (end < masked.length && masked[end] != '\n') {
+                    end++;
+                }
+            } else if (c == '/' && next == '*') {
+                int close = source.indexOf("*/", i + 2);
+                end = close < 0 ? masked.length : close + 2;
+            } else if (source.startsWith("\"\"\"", i)) {
+                int close = i + 3;
+                while (close < masked.length && !source.startsWith("\"\"\"", close)) {
+                    close += masked[close] == '\\' ? 2 : 1;
+                }
+                end = Math.min(masked.length, close + 3);
+            } else if (c == '"' || c == '\'') {
+                end = i + 1;
+                while (end < masked.length && masked[end] != c && masked[end] != '\n') {
+                    end += masked[end] == '\\' ? 2 : 1;
+                }
+                end = Math.min(masked.length, end + 1);
+            } else {
+                i++;
+                continue;
+            }
+            for (int j = i; j < end; j++) {
+                if (masked[j] != '\n') {
+                    masked[j] = ' ';
+                }
+            }
+            i = end;
+        }
+        return new String(masked);
+    }
+
+    static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
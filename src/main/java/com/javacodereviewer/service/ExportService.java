@@ -1,11 +1,14 @@
 package com.javacodereviewer.service;
 
 import com.javacodereviewer.model.CodeReviewResult;
+import com.javacodereviewer.model.ProjectReviewReport;
+import com.javacodereviewer.model.ProjectReviewReport.FileReview;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 /**
  * Service class for exporting code review reports
@@ -57,44 +60,16 @@ public class ExportService {
         report.append("Good Practices: ").append(result.getGoodPractices().size()).append("\n\n");
         
         // Errors
-        if (!result.getErrors().isEmpty()) {
-            report.append("❌ ERRORS\n");
-            report.append("-".repeat(40)).append("\n");
-            for (int i = 0; i < result.getErrors().size(); i++) {
-                report.append(String.format("%d. %s\n", i + 1, result.getErrors().get(i)));
-            }
-            report.append("\n");
-        }
+        appendSection(report, "❌ ERRORS", result.getErrors());
         
         // Warnings
-        if (!result.getWarnings().isEmpty()) {
-            report.append("⚠️ WARNINGS\n");
-            report.append("-".repeat(40)).append("\n");
-            for (int i = 0; i < result.getWarnings().size(); i++) {
-                report.append(String.format("%d. %s\n", i + 1, result.getWarnings().get(i)));
-            }
-            report.append("\n");
-        }
+        appendSection(report, "⚠️ WARNINGS", result.getWarnings());
         
         // Suggestions
-        if (!result.getSuggestions().isEmpty()) {
-            report.append("💡 SUGGESTIONS\n");
-            report.append("-".repeat(40)).append("\n");
-            for (int i = 0; i < result.getSuggestions().size(); i++) {
-                report.append(String.format("%d. %s\n", i + 1, result.getSuggestions().get(i)));
-            }
-            report.append("\n");
-        }
+        appendSection(report, "💡 SUGGESTIONS", result.getSuggestions());
         
         // Good Practices
-        if (!result.getGoodPractices().isEmpty()) {
-            report.append("✅ GOOD PRACTICES\n");
-            report.append("-".repeat(40)).append("\n");
-            for (int i = 0; i < result.getGoodPractices().size(); i++) {
-                report.append(String.format("%d. %s\n", i + 1, result.getGoodPractices().get(i)));
-            }
-            report.append("\n");
-        }
+        appendSection(report, "✅ GOOD PRACTICES", result.getGoodPractices());
         
         // Original Code
         report.append("ORIGINAL CODE\n");
@@ -109,6 +84,84 @@ public class ExportService {
         Files.writeString(outputFile.toPath(), report.toString());
     }
     
+    private void appendSection(StringBuilder report, String title, List<String> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        report.append(title).append("\n");
+        report.append("-".repeat(40)).append("\n");
+        for (int i = 0; i < items.size(); i++) {
+            report.append(String.format("%d. %s\n", i + 1, items.get(i)));
+        }
+        report.append("\n");
+    }
+    
+    /**
+     * Exports a bulk project review as a text report
+     */
+    public void exportProjectReport(ProjectReviewReport report, File outputFile) throws IOException {
+        StringBuilder out = new StringBuilder(formatProjectHeader(report));
+        for (FileReview review : report.getFiles()) {
+            out.append(formatFileReview(report, review));
+        }
+        out.append(formatProjectSummary(report));
+        Files.writeString(outputFile.toPath(), out.toString());
+    }
+    
+    /**
+     * Report header for a bulk project review
+     */
+    public String formatProjectHeader(ProjectReviewReport report) {
+        StringBuilder out = new StringBuilder();
+        out.append("=".repeat(80)).append("\n");
+        out.append("AI-POWERED JAVA PROJECT REVIEW REPORT\n");
+        out.append("=".repeat(80)).append("\n");
+        out.append("Started: ").append(report.getStartTime().format(DATE_FORMATTER)).append("\n");
+        out.append("Project: ").append(report.getRoot().toAbsolutePath()).append("\n");
+        out.append("AI Provider: ").append(report.getApiProvider()).append("\n");
+        out.append("Files: ").append(report.getTotalFiles()).append("\n");
+        out.append("=".repeat(80)).append("\n\n");
+        return out.toString();
+    }
+    
+    /**
+     * Report section for one file, without its source, so sections can be
+     * written out as reviews finish
+     */
+    public String formatFileReview(ProjectReviewReport report, FileReview review) {
+        StringBuilder out = new StringBuilder();
+        out.append("FILE: ").append(report.getRoot().relativize(review.getFile())).append("\n");
+        out.append("-".repeat(80)).append("\n");
+        if (review.getResult() == null) {
+            out.append(review.getStatus()).append(": ").append(review.getMessage()).append("\n\n");
+            return out.toString();
+        }
+        CodeReviewResult result = review.getResult();
+        out.append(result.getSummary()).append("\n\n");
+        appendSection(out, "❌ ERRORS", result.getErrors());
+        appendSection(out, "⚠️ WARNINGS", result.getWarnings());
+        appendSection(out, "💡 SUGGESTIONS", result.getSuggestions());
+        return out.toString();
+    }
+    
+    /**
+     * Totals for a bulk project review
+     */
+    public String formatProjectSummary(ProjectReviewReport report) {
+        StringBuilder out = new StringBuilder();
+        out.append("=".repeat(80)).append("\n");
+        out.append("PROJECT STATISTICS\n");
+        out.append("-".repeat(40)).append("\n");
+        out.append("Files Reviewed: ").append(report.getReviewedFiles()).append(" of ").append(report.getTotalFiles()).append("\n");
+        out.append("Files Failed: ").append(report.getFailedFiles()).append("\n");
+        out.append("Files Skipped: ").append(report.getSkippedFiles()).append("\n");
+        out.append("Errors: ").append(report.getTotalErrors()).append("\n");
+        out.append("Warnings: ").append(report.getTotalWarnings()).append("\n");
+        out.append("Suggestions: ").append(report.getTotalSuggestions()).append("\n");
+        out.append("=".repeat(80)).append("\n");
+        return out.toString();
+    }
+    
     private void exportAsHTML(CodeReviewResult result, File outputFile) throws IOException {
         StringBuilder html = new StringBuilder();
         
@@ -0,0 +1,265 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+import com.javacodereviewer.service.CodeUnitParser.CodeUnit;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service class for reviewing only the parts of a file that changed
+ *
+ * The file is split into units by CodeUnitParser and each unit's findings
+ * are kept in the ReviewCache under the unit's label and text. A review
+ * looks every unit up and sends only the ones not found, in one request,
+ * with the file's declarations as context. The model is asked to start
+ * each finding with the label of the unit it concerns, so the findings can
+ * be filed per unit; an untagged finding is filed under every unit of that
+ * request. The result merges the new findings with the cached ones in
+ * source order. The first review of a file sends every unit, so it costs
+ * the same single request as a normal review.
+ */
+public class IncrementalReviewService implements CodeReviewer {
+
+    /** Version of the unit prompt below; bump it whenever the prompt changes */
+    public static final int UNIT_PROMPT_VERSION = 1;
+
+    private static final Pattern UNIT_TAG = Pattern.compile("^\\s*\\[([^\\]]+)\\]");
+
+    private final AIReviewService reviewService;
+    private final ReviewCache cache;
+
+    public IncrementalReviewService(AIReviewService reviewService, ReviewCache cache) {
+        this.reviewService = reviewService;
+        this.cache = cache;
+    }
+
+    /**
+     * The merged review if every unit of the code is cached, otherwise null
+     */
+    @Override
+    public CodeReviewResult cachedReview(String code, String provider) {
+        List<CodeUnit> units = CodeUnitParser.parse(code);
+        if (units.size() < 2) {
+            return reviewService.cachedReview(code, provider);
+        }
+        Map<CodeUnit, CodeReviewResult> reviews = cachedUnits(units, provider);
+        return reviews.size() == units.size() ? merge(code, provider, units, reviews, null, false, 0) : null;
+    }
+
+    /**
+     * Reviews the units of the code that have no cached review. Code that is
+     * a single unit gains nothing from splitting and gets a normal review.
+     */
+    @Override
+    public CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider) {
+        List<CodeUnit> units = CodeUnitParser.parse(code);
+        if (units.size() < 2) {
+            return reviewService.reviewCodeAsync(code, provider);
+        }
+
+        Map<CodeUnit, CodeReviewResult> reviews = cachedUnits(units, provider);
+        List<CodeUnit> changed = new ArrayList<>();
+        for (CodeUnit unit : units) {
+            if (!reviews.containsKey(unit)) {
+                changed.add(unit);
+            }
+        }
+        if (changed.isEmpty()) {
+            return CompletableFuture.completedFuture(merge(code, provider, units, reviews, null, false, 0));
+        }
+
+        CompletableFuture<CodeReviewResult> sent = reviewService.sendAsync(
+            buildPrompt(units, changed), code, provider, AIReviewService.DEFAULT_DEADLINE);
+        CompletableFuture<CodeReviewResult> review = new CompletableFuture<>();
+        review.whenComplete((result, error) -> {
+            if (review.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+        sent.whenComplete((result, error) -> {
+            if (error != null) {
+                review.completeExceptionally(error);
+                return;
+            }
+            try {
+                // An answer that could not be parsed is shown as it is and nothing is cached
+                boolean structured = AIReviewService.isStructured(result);
+                if (structured) {
+                    Map<CodeUnit, CodeReviewResult> filed = fileByUnit(result, changed);
+                    filed.forEach((unit, unitReview) -> store(unit, provider, unitReview));
+                    reviews.putAll(filed);
+                }
+                review.complete(merge(code, provider, units, reviews, result, !structured, changed.size()));
+            } catch (RuntimeException e) {
+                review.completeExceptionally(e);
+            }
+        });
+        return review;
+    }
+
+    private Map<CodeUnit, CodeReviewResult> cachedUnits(List<CodeUnit> units, String provider) {
+        Map<CodeUnit, CodeReviewResult> reviews = new LinkedHashMap<>();
+        if (cache == null) {
+            return reviews;
+        }
+        for (CodeUnit unit : units) {
+            CodeReviewResult cached = cache.get(cacheKey(unit), cacheNamespace(provider));
+            if (cached != null) {
+                reviews.put(unit, cached);
+            }
+        }
+        return reviews;
+    }
+
+    private void store(CodeUnit unit, String provider, CodeReviewResult review) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.put(cacheKey(unit), cacheNamespace(provider), review);
+        } catch (IOException e) {
+            // Only costs a repeat review of this unit next time
+            System.err.println("Could not cache review of " + unit.getLabel() + ": " + e.getMessage());
+        }
+    }
+
+    private static String cacheKey(CodeUnit unit) {
+        return unit.getLabel() + "\n" + unit.getHash();
+    }
+
+    // Keeps unit reviews apart from whole-file reviews of the same text
+    private static String cacheNamespace(String provider) {
+        return provider + " [units v" + UNIT_PROMPT_VERSION + "]";
+    }
+
+    /**
+     * Splits the findings of one request between the units it covered
+     */
+    private static Map<CodeUnit, CodeReviewResult> fileByUnit(CodeReviewResult result, List<CodeUnit> changed) {
+        Map<String, CodeUnit> byLabel = new LinkedHashMap<>();
+        Map<CodeUnit, CodeReviewResult> filed = new LinkedHashMap<>();
+        for (CodeUnit unit : changed) {
+            byLabel.put(unit.getLabel(), unit);
+            CodeReviewResult unitReview = new CodeReviewResult();
+            unitReview.setApiProvider(result.getApiProvider());
+            unitReview.setReviewTime(result.getReviewTime());
+            filed.put(unit, unitReview);
+        }
+        file(result.getErrors(), byLabel, filed, CodeReviewResult::getErrors);
+        file(result.getWarnings(), byLabel, filed, CodeReviewResult::getWarnings);
+        file(result.getSuggestions(), byLabel, filed, CodeReviewResult::getSuggestions);
+        file(result.getGoodPractices(), byLabel, filed, CodeReviewResult::getGoodPractices);
+        return filed;
+    }
+
+    private static void file(List<String> findings, Map<String, CodeUnit> byLabel,
+                             Map<CodeUnit, CodeReviewResult> filed, Function<CodeReviewResult, List<String>> list) {
+        for (String finding : findings) {
+            Matcher tag = UNIT_TAG.matcher(finding);
+            CodeUnit unit = tag.find() ? byLabel.get(tag.group(1).strip()) : null;
+            if (unit != null) {
+                list.apply(filed.get(unit)).add(finding);
+            } else {
+                filed.values().forEach(unitReview -> list.apply(unitReview).add(finding));
+            }
+        }
+    }
+
+    /**
+     * One result for the whole file: the findings of every unit in source
+     * order without repeats, under the summary of the latest answer. The
+     * latest answer's own findings are added when they could not be filed.
+     */
+    private static CodeReviewResult merge(String code, String provider, List<CodeUnit> units,
+                                          Map<CodeUnit, CodeReviewResult> reviews, CodeReviewResult latest,
+                                          boolean addLatest, int sent) {
+        Set<String> errors = new LinkedHashSet<>();
+        Set<String> warnings = new LinkedHashSet<>();
+        Set<String> suggestions = new LinkedHashSet<>();
+        Set<String> goodPractices = new LinkedHashSet<>();
+        List<CodeReviewResult> parts = new ArrayList<>();
+        for (CodeUnit unit : units) {
+            if (reviews.containsKey(unit)) {
+                parts.add(reviews.get(unit));
+            }
+        }
+        if (addLatest) {
+            parts.add(latest);
+        }
+        for (CodeReviewResult part : parts) {
+            errors.addAll(part.getErrors());
+            warnings.addAll(part.getWarnings());
+            suggestions.addAll(part.getSuggestions());
+            goodPractices.addAll(part.getGoodPractices());
+        }
+
+        String summary = String.format("Incremental review: %d of %d code units changed and were reviewed, "
+            + "findings for the other %d reused from earlier reviews.", sent, units.size(), units.size() - sent);
+        CodeReviewResult merged = new CodeReviewResult(
+            latest != null && latest.getSummary() != null ? summary + "\n\n" + latest.getSummary() : summary,
+            provider, code);
+        merged.setErrors(new ArrayList<>(errors));
+        merged.setWarnings(new ArrayList<>(warnings));
+        merged.setSuggestions(new ArrayList<>(suggestions));
+        merged.setGoodPractices(new ArrayList<>(goodPractices));
+        merged.setReviewTime(LocalDateTime.now());
+        return merged;
+    }
+
+    private static String buildPrompt(List<CodeUnit> units, List<CodeUnit> changed) {
+        StringBuilder parts = new StringBuilder();
+        for (CodeUnit unit : changed) {
+            parts.append("// ===== [").append(unit.getLabel()).append("] =====\n")
+                .append(unit.getText()).append("\n\n");
+        }
+        String context = units.get(0).getLabel().equals(CodeUnitParser.DECLARATIONS) && !changed.contains(units.get(0))
+            ? units.get(0).getText() : "(included in the parts below)";
+        return String.format("""
+            Please review the following parts of a Java source file. Only these parts changed since the
+            file was last reviewed, so review them and nothing else.
+            Format your response as JSON with the following structure:
+
+            {
+                "summary": "Brief overview of the quality of the changed parts and their main issues",
+                "errors": ["List of actual errors or bugs"],
+                "warnings": ["List of potential issues or code smells"],
+                "suggestions": ["List of improvement suggestions"],
+                "goodPractices": ["List of good practices already followed"]
+            }
+
+            Start every item of every list with the label in square brackets of the part it is
+            about, exactly as written in that part's header, for example "[%s] ...".
+
+            Focus on:
+            - Syntax errors and compilation issues
+            - Security vulnerabilities
+            - Performance issues
+            - Code style and best practices
+            - Design patterns and architecture
+            - Error handling
+            - Documentation and comments
+
+            The file's package, imports, type declarations and fields, for context only:
+            ```java
+            %s
+            ```
+
+            Changed parts to review:
+            ```java
+            %s```
+
+            Please provide a detailed analysis in the JSON format specified above.
+            """, changed.get(0).getLabel(), context, parts);
+    }
+}
@@ -0,0 +1,153 @@
+package com.javacodereviewer.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * A limit on provider requests in flight, shared by every request of one
+ * operation
+ *
+ * Requests over the limit wait in a queue, not on a thread: each is sent
+ * when an earlier one completes. Cancelling a waiting request's future
+ * means it is never sent; cancelling a sent one cancels the call, and
+ * closing the permits cancels every request still waiting. Requests
+ * that complete immediately are started in a loop rather than by
+ * recursion, so a long queue of them cannot grow the stack.
+ */
+public final class RequestPermits {
+
+    private final int limit;
+    private final Queue<Waiting> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private boolean starting;
+    private boolean closed;
+
+    /**
+     * A request not sent yet, with the future its caller holds
+     */
+    private static final class Waiting {
+        final CompletableFuture<?> result;
+        final Runnable send;
+
+        Waiting(CompletableFuture<?> result, Runnable send) {
+            this.result = result;
+            this.send = send;
+        }
+    }
+
+    public RequestPermits(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("At least one request must be allowed in flight");
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * No limit beyond OkHttp's own, for single reviews started by hand
+     */
+    public static RequestPermits unlimited() {
+        return new RequestPermits(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Sends the request once a permit is free. The returned future completes
+     * as the request's does, or is cancelled if the permits are closed first.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable send = () -> {
+            if (result.isDone()) {
+                // Cancelled while waiting
+                release();
+                return;
+            }
+            CompletableFuture<T> call;
+            try {
+                call = request.get();
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    call.cancel(true);
+                }
+            });
+            call.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        boolean accepted;
+        synchronized (this) {
+            accepted = !closed;
+            if (accepted) {
+                waiting.add(new Waiting(result, send));
+            }
+        }
+        if (!accepted) {
+            result.cancel(true);
+            return result;
+        }
+        startWaiting();
+        return result;
+    }
+
+    /**
+     * Cancels the requests still waiting and every one submitted from now
+     * on. Requests already sent are left to finish or be cancelled by their
+     * callers; cancelling them first would free permits for waiting ones.
+     */
+    public void close() {
+        List<Waiting> cancelled;
+        synchronized (this) {
+            closed = true;
+            cancelled = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        cancelled.forEach(request -> request.result.cancel(true));
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        startWaiting();
+    }
+
+    /**
+     * Sends waiting requests while permits are free. Only one thread sends
+     * at a time; a release during a send is picked up by the loop.
+     */
+    private void startWaiting() {
+        synchronized (this) {
+            if (starting) {
+                return;
+            }
+            starting = true;
+        }
+        while (true) {
+            Waiting next;
+            synchronized (this) {
+                if (inFlight >= limit || waiting.isEmpty()) {
+                    starting = false;
+                    return;
+                }
+                inFlight++;
+                next = waiting.poll();
+            }
+            next.send.run();
+        }
+    }
+}
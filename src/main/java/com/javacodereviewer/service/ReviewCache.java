@@ -0,0 +1,379 @@
+package com.javacodereviewer.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.javacodereviewer.model.CodeReviewResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent cache of review results, keyed by the source code, the AI
+ * provider and the prompt version
+ *
+ * Results are appended to a single log file; an in-memory index maps each
+ * key's SHA-256 to the offset of its latest record, in least recently used
+ * order. A hit is one index lookup and one positional read, so repeat
+ * reviews come back in microseconds. When the live records exceed maxBytes
+ * the least recently used keys are dropped from the index. Their records
+ * stay in the log as garbage until the log is more than twice the size of
+ * the live records, when the live ones are copied to a new log that
+ * atomically replaces the old one.
+ *
+ * On open the log is scanned to rebuild the index. Each record carries a
+ * CRC, so a record torn by a crash ends the scan and is cut off. An open
+ * cache holds a lock file in its directory, so a second process (another
+ * window, or the bulk CLI) cannot append to or compact the same log; it
+ * gets an IOException from open and should carry on without a cache.
+ *
+ * Record layout: int payload length, int CRC32 of key and payload,
+ * 32-byte key, UTF-8 JSON payload.
+ */
+public class ReviewCache implements Closeable {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final String LOG_NAME = "reviews.log";
+    private static final String LOCK_NAME = "reviews.lock";
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = 4 + 4 + KEY_BYTES;
+
+    // Logs smaller than this are never worth compacting
+    private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> index = new LinkedHashMap<>(1024, 0.75f, true);
+    private FileChannel lockFile;
+    private FileChannel log;
+    private long logSize;
+    private long liveBytes;
+
+    private ReviewCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens the cache in the directory, creating it if needed, and rebuilds
+     * the index from the log. Fails if another process has it open.
+     */
+    public static ReviewCache open(Path directory, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        ReviewCache cache = new ReviewCache(directory, maxBytes);
+        // The lock is on a file of its own: compaction replaces the log, and a lock on it would go with it
+        FileChannel lockFile = FileChannel.open(directory.resolve(LOCK_NAME),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock;
+            try {
+                lock = lockFile.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("Review cache " + directory + " is in use by another process");
+            }
+            cache.lockFile = lockFile;
+            cache.log = cache.openLog();
+            cache.load();
+        } catch (IOException | RuntimeException e) {
+            if (cache.log != null) {
+                cache.log.close();
+            }
+            lockFile.close();
+            throw e;
+        }
+        return cache;
+    }
+
+    /**
+     * Opens the cache in ~/.javacodereviewer/review-cache with the default size
+     */
+    public static ReviewCache openDefault() throws IOException {
+        return openDefault(DEFAULT_MAX_BYTES);
+    }
+
+    public static ReviewCache openDefault(long maxBytes) throws IOException {
+        return open(Paths.get(System.getProperty("user.home"), ".javacodereviewer", "review-cache"), maxBytes);
+    }
+
+    /**
+     * The cached review of this code by this provider, or null. The result
+     * is a fresh copy with the given code as its original code.
+     */
+    public synchronized CodeReviewResult get(String code, String provider) {
+        Entry entry = index.get(key(code, provider));
+        if (entry == null) {
+            return null;
+        }
+        try {
+            ByteBuffer payload = ByteBuffer.allocate(entry.length);
+            readFully(payload, entry.offset + HEADER_BYTES);
+            CodeReviewResult result = fromJson(new String(payload.array(), StandardCharsets.UTF_8));
+            result.setOriginalCode(code);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // An unreadable record is treated as missing and overwritten by the next put
+            return null;
+        }
+    }
+
+    /**
+     * Appends the review to the log and makes it the cached result for this code and provider
+     */
+    public synchronized void put(String code, String provider, CodeReviewResult result) throws IOException {
+        Key key = key(code, provider);
+        byte[] payload = toJson(result).getBytes(StandardCharsets.UTF_8);
+        long offset = logSize;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt(crc(key.bytes, payload, 0, payload.length)).put(key.bytes).put(payload);
+        record.flip();
+        while (record.hasRemaining()) {
+            log.write(record, offset + record.position());
+        }
+        logSize += HEADER_BYTES + payload.length;
+        index(key, new Entry(offset, payload.length));
+        evict();
+        if (logSize > MIN_COMPACT_BYTES && logSize > 2 * liveBytes) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The review is stored either way, and the next put tries again
+                System.err.println("Could not compact review cache: " + e.getMessage());
+            }
+        }
+    }
+
+    private void index(Key key, Entry entry) {
+        Entry previous = index.put(key, entry);
+        if (previous != null) {
+            liveBytes -= HEADER_BYTES + previous.length;
+        }
+        liveBytes += HEADER_BYTES + entry.length;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = index.values().iterator();
+        while (liveBytes > maxBytes && eldest.hasNext()) {
+            liveBytes -= HEADER_BYTES + eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the log, cutting off a torn record at the end
+     */
+    private void load() throws IOException {
+        long size = log.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, offset);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            byte[] key = new byte[KEY_BYTES];
+            header.get(key);
+            if (length < 0 || offset + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, offset + HEADER_BYTES);
+            if (crc(key, payload.array(), 0, length) != crc) {
+                break;
+            }
+            index(new Key(key), new Entry(offset, length));
+            offset += HEADER_BYTES + length;
+        }
+        if (offset < size) {
+            log.truncate(offset);
+        }
+        logSize = offset;
+        evict();
+    }
+
+    /**
+     * Copies the live records, oldest first, to a new log and swaps it in.
+     * If the swap fails the old log is reopened and the index left as it was.
+     */
+    private void compact() throws IOException {
+        Path compacted = directory.resolve(LOG_NAME + ".compact");
+        Map<Key, Entry> moved = new HashMap<>();
+        long offset = 0;
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<Key, Entry> live : index.entrySet()) {
+                long length = HEADER_BYTES + live.getValue().length;
+                long copied = 0;
+                while (copied < length) {
+                    copied += log.transferTo(live.getValue().offset + copied, length - copied, out);
+                }
+                moved.put(live.getKey(), new Entry(offset, live.getValue().length));
+                offset += length;
+            }
+            out.force(true);
+        }
+        // Closed first because Windows will not replace a file that is open
+        log.close();
+        try {
+            Files.move(compacted, directory.resolve(LOG_NAME),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log = openLog();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+        log = openLog();
+        logSize = offset;
+        // Iterating the access-ordered map does not reorder it, so the LRU order carries over
+        for (Map.Entry<Key, Entry> live : index.entrySet()) {
+            live.setValue(moved.get(live.getKey()));
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(directory.resolve(LOG_NAME),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of review cache log");
+            }
+        }
+    }
+
+    private static int crc(byte[] key, byte[] payload, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * SHA-256 of the prompt version, provider and code; the prompt version is
+     * part of the key so changing the prompt invalidates every entry
+     */
+    static Key key(String code, String provider) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("v" + AIReviewService.PROMPT_VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(provider.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(code.getBytes(StandardCharsets.UTF_8));
+            return new Key(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // The source is not stored: the caller has it, and it would dominate the cache size
+    private static String toJson(CodeReviewResult result) {
+        JsonObject json = new JsonObject();
+        json.addProperty("summary", result.getSummary());
+        json.add("errors", toJsonArray(result.getErrors()));
+        json.add("warnings", toJsonArray(result.getWarnings()));
+        json.add("suggestions", toJsonArray(result.getSuggestions()));
+        json.add("goodPractices", toJsonArray(result.getGoodPractices()));
+        json.addProperty("apiProvider", result.getApiProvider());
+        json.addProperty("reviewTime", result.getReviewTime() != null ? result.getReviewTime().toString() : null);
+        return json.toString();
+    }
+
+    private static JsonArray toJsonArray(List<String> items) {
+        JsonArray array = new JsonArray();
+        items.forEach(array::add);
+        return array;
+    }
+
+    private static CodeReviewResult fromJson(String text) {
+        JsonObject json = JsonParser.parseString(text).getAsJsonObject();
+        CodeReviewResult result = new CodeReviewResult();
+        result.setSummary(stringOrNull(json.get("summary")));
+        json.getAsJsonArray("errors").forEach(item -> result.addError(item.getAsString()));
+        json.getAsJsonArray("warnings").forEach(item -> result.addWarning(item.getAsString()));
+        json.getAsJsonArray("suggestions").forEach(item -> result.addSuggestion(item.getAsString()));
+        json.getAsJsonArray("goodPractices").forEach(item -> result.addGoodPractice(item.getAsString()));
+        result.setApiProvider(stringOrNull(json.get("apiProvider")));
+        String reviewTime = stringOrNull(json.get("reviewTime"));
+        if (reviewTime != null) {
+            result.setReviewTime(LocalDateTime.parse(reviewTime));
+        }
+        return result;
+    }
+
+    private static String stringOrNull(JsonElement element) {
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            log.close();
+        } finally {
+            // Closing the channel releases the lock
+            lockFile.close();
+        }
+    }
+
+    /**
+     * SHA-256 digest with value equality, for use as a map key
+     */
+    static final class Key {
+        final byte[] bytes;
+        private final int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes;
+            this.hash = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && java.util.Arrays.equals(bytes, ((Key) other).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        final long offset;
+        final int length;
+
+        Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.javacodereviewer.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.javacodereviewer.model.CodeReviewResult;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AIReviewService against a local server standing in for the OpenAI API:
+ * answers, failures, the deadline and cancelling
+ */
+class AIReviewServiceTest {
+
+    private static final String PROVIDER = "OpenAI GPT-4";
+    private static final String CODE = "class A {}";
+
+    private final MockWebServer server = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient();
+    private AIReviewService service;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server.start();
+        service = new AIReviewService(null, client, server.url("/v1/chat/completions").toString(),
+            provider -> "test-key");
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        client.dispatcher().cancelAll();
+        server.shutdown();
+    }
+
+    /**
+     * A chat completion whose message is the given content
+     */
+    private static MockResponse answer(String content) {
+        JsonObject message = new JsonObject();
+        message.addProperty("content", content);
+        JsonObject choice = new JsonObject();
+        choice.add("message", message);
+        JsonArray choices = new JsonArray();
+        choices.add(choice);
+        JsonObject body = new JsonObject();
+        body.add("choices", choices);
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(body.toString());
+    }
+
+    @Test
+    void answerIsParsedIntoTheReview() throws Exception {
+        server.enqueue(answer("{\"summary\":\"Looks fine.\",\"errors\":[\"Missing semicolon\"]}"));
+
+        CodeReviewResult result = service.reviewCodeAsync(CODE, PROVIDER).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Looks fine.", result.getSummary());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(CODE, result.getOriginalCode());
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals("Bearer test-key", request.getHeader("Authorization"));
+        assertTrue(request.getBody().readUtf8().contains(CODE));
+    }
+
+    @Test
+    void errorStatusFailsTheReview() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> service.reviewCodeAsync(CODE, PROVIDER).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, failure.getCause());
+        assertTrue(failure.getCause().getMessage().startsWith("OpenAI API call failed: 500"),
+            failure.getCause().getMessage());
+    }
+
+    @Test
+    void blockingReviewThrowsTheFailureItself() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        IOException failure = assertThrows(IOException.class, () -> service.reviewCode(CODE, PROVIDER));
+
+        assertTrue(failure.getMessage().startsWith("OpenAI API call failed: 503"), failure.getMessage());
+    }
+
+    @Test
+    void callStillRunningAtTheDeadlineTimesOut() {
+        server.enqueue(answer("{\"summary\":\"Too late.\"}").setHeadersDelay(2, TimeUnit.SECONDS));
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> service.reviewCodeAsync(CODE, PROVIDER, Duration.ofMillis(200)).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, failure.getCause());
+        assertTrue(failure.getCause().getMessage().contains("timed out"), failure.getCause().getMessage());
+    }
+
+    @Test
+    void cancellingTheReviewCancelsTheCall() throws Exception {
+        server.enqueue(answer("{\"summary\":\"Never read.\"}").setHeadersDelay(2, TimeUnit.SECONDS));
+
+        CompletableFuture<CodeReviewResult> review = service.reviewCodeAsync(CODE, PROVIDER);
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertEquals(1, client.dispatcher().runningCallsCount());
+        review.cancel(true);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (client.dispatcher().runningCallsCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, client.dispatcher().runningCallsCount());
+        assertTrue(review.isCancelled());
+    }
+}
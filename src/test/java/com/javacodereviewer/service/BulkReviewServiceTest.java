@@ -0,0 +1,181 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+import com.javacodereviewer.model.ProjectReviewReport;
+import com.javacodereviewer.model.ProjectReviewReport.FileReview;
+import com.javacodereviewer.model.ProjectReviewReport.Status;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lanes, the request budget, cached files and cancelling in BulkReviewService
+ */
+class BulkReviewServiceTest {
+
+    private static final String PROVIDER = "OpenAI GPT-4";
+
+    @TempDir
+    Path root;
+
+    /**
+     * CodeReviewer whose reviews the test completes, or that answers at once
+     * when immediate is set. Not thread-safe: tests complete the reviews on
+     * their own thread.
+     */
+    private static class FakeReviewer implements CodeReviewer {
+        final List<CompletableFuture<CodeReviewResult>> calls = new ArrayList<>();
+        final Set<String> cached = new HashSet<>();
+        boolean immediate;
+        int requestsPerFile = 1;
+        int peakInFlight;
+        int minStackDepth = Integer.MAX_VALUE;
+        int maxStackDepth;
+
+        @Override
+        public CompletableFuture<CodeReviewResult> reviewCodeAsync(String code, String provider) {
+            int depth = Thread.currentThread().getStackTrace().length;
+            minStackDepth = Math.min(minStackDepth, depth);
+            maxStackDepth = Math.max(maxStackDepth, depth);
+
+            CompletableFuture<CodeReviewResult> call = new CompletableFuture<>();
+            calls.add(call);
+            peakInFlight = Math.max(peakInFlight, pending().size());
+            if (immediate) {
+                call.complete(StubAIReviewService.answer("Reviewed."));
+            }
+            return call;
+        }
+
+        @Override
+        public CodeReviewResult cachedReview(String code, String provider) {
+            return cached.contains(code) ? StubAIReviewService.answer("Cached.") : null;
+        }
+
+        @Override
+        public int requestCount(String code) {
+            return requestsPerFile;
+        }
+
+        List<CompletableFuture<CodeReviewResult>> pending() {
+            List<CompletableFuture<CodeReviewResult>> pending = new ArrayList<>();
+            for (CompletableFuture<CodeReviewResult> call : calls) {
+                if (!call.isDone()) {
+                    pending.add(call);
+                }
+            }
+            return pending;
+        }
+    }
+
+    private final FakeReviewer reviewer = new FakeReviewer();
+
+    /**
+     * Writes the given number of small classes under the root and returns their sources
+     */
+    private List<String> writeFiles(int count) throws IOException {
+        List<String> sources = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String source = String.format("class File%04d {}", i);
+            Files.writeString(root.resolve(String.format("File%04d.java", i)), source);
+            sources.add(source);
+        }
+        return sources;
+    }
+
+    private static long count(ProjectReviewReport report, Status status, String message) {
+        return report.getFiles().stream()
+            .filter(file -> file.getStatus() == status && message.equals(file.getMessage()))
+            .count();
+    }
+
+    @Test
+    void lanesKeepAtMostMaxConcurrentReviewsInFlight() throws IOException {
+        writeFiles(10);
+        BulkReviewService service = new BulkReviewService(reviewer, 3, 100);
+
+        List<FileReview> finished = new ArrayList<>();
+        CompletableFuture<ProjectReviewReport> run = service.reviewProject(root, PROVIDER,
+            (review, report) -> finished.add(review));
+        assertEquals(3, reviewer.calls.size());
+        while (!reviewer.pending().isEmpty()) {
+            reviewer.pending().get(0).complete(StubAIReviewService.answer("Reviewed."));
+        }
+
+        assertEquals(3, reviewer.peakInFlight);
+        assertEquals(10, reviewer.calls.size());
+        assertEquals(10, finished.size());
+        assertEquals(10, run.join().getReviewedFiles());
+    }
+
+    @Test
+    void filesBeyondTheBudgetAreSkipped() throws IOException {
+        writeFiles(5);
+        reviewer.immediate = true;
+        reviewer.requestsPerFile = 2;
+        BulkReviewService service = new BulkReviewService(reviewer, 2, 5);
+
+        ProjectReviewReport report = service.reviewProject(root, PROVIDER, null).join();
+
+        assertEquals(2, reviewer.calls.size());
+        assertEquals(2, report.getReviewedFiles());
+        assertEquals(3, report.getSkippedFiles());
+        assertEquals(3, count(report, Status.SKIPPED, "Request budget exhausted"));
+    }
+
+    @Test
+    void cachedFilesSpendNoBudget() throws IOException {
+        List<String> sources = writeFiles(4);
+        reviewer.cached.add(sources.get(0));
+        reviewer.cached.add(sources.get(2));
+        reviewer.immediate = true;
+        BulkReviewService service = new BulkReviewService(reviewer, 2, 2);
+
+        ProjectReviewReport report = service.reviewProject(root, PROVIDER, null).join();
+
+        assertEquals(2, reviewer.calls.size());
+        assertEquals(4, report.getReviewedFiles());
+        assertEquals(0, report.getSkippedFiles());
+    }
+
+    @Test
+    void cancellingTheRunCancelsTheReviewsInFlight() throws IOException {
+        writeFiles(6);
+        BulkReviewService service = new BulkReviewService(reviewer, 2, 100);
+
+        CompletableFuture<ProjectReviewReport> run = service.reviewProject(root, PROVIDER, null);
+        List<CompletableFuture<CodeReviewResult>> sent = new ArrayList<>(reviewer.calls);
+        assertEquals(2, sent.size());
+        run.cancel(true);
+
+        assertTrue(sent.stream().allMatch(CompletableFuture::isCancelled));
+        assertEquals(2, reviewer.calls.size());
+    }
+
+    @Test
+    void reviewsCompletingAtOnceDoNotGrowTheStack() throws Exception {
+        writeFiles(2000);
+        reviewer.immediate = true;
+        BulkReviewService service = new BulkReviewService(reviewer, 1, 2000);
+
+        // A stack overflow in a completion callback is swallowed and would leave the run unfinished
+        ProjectReviewReport report = service.reviewProject(root, PROVIDER, null).get(30, TimeUnit.SECONDS);
+
+        assertEquals(2000, report.getReviewedFiles());
+        assertTrue(reviewer.maxStackDepth - reviewer.minStackDepth < 20,
+            "stack grew from " + reviewer.minStackDepth + " to " + reviewer.maxStackDepth + " frames");
+    }
+}
@@ -0,0 +1,114 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chunk fan-out, request permits, merging and cancellation in ChunkedReviewService
+ */
+class ChunkedReviewServiceTest {
+
+    private static final String PROVIDER = "OpenAI GPT-4";
+    private static final int CHUNK_TOKENS = 500;
+
+    private final StubAIReviewService stub = new StubAIReviewService();
+    private final ChunkedReviewService service = new ChunkedReviewService(stub, null, CHUNK_TOKENS, 50);
+
+    private static String largeClass() {
+        StringBuilder source = new StringBuilder("package demo;\n\npublic class Big {\n");
+        for (int i = 0; i < 60; i++) {
+            source.append("\n    int method").append(i).append("(int value) {\n")
+                .append("        int total = value * ").append(i).append(";\n")
+                .append("        return total + value;\n")
+                .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    @Test
+    void chunksWaitForPermitsAndAreAllSentInTheEnd() {
+        String code = largeClass();
+        int chunks = service.requestCount(code);
+        assertTrue(chunks > 3, chunks + " chunks");
+
+        CompletableFuture<CodeReviewResult> review = service.reviewCodeAsync(code, PROVIDER, new RequestPermits(3));
+        assertEquals(3, stub.calls.size());
+        while (!stub.pending().isEmpty()) {
+            stub.pending().get(0).complete(StubAIReviewService.answer("Part reviewed."));
+        }
+
+        assertEquals(3, stub.peakInFlight);
+        assertEquals(chunks, stub.calls.size());
+        assertTrue(review.join().getSummary().startsWith("Reviewed in " + chunks + " parts"));
+    }
+
+    @Test
+    void singleReviewSendsEveryChunkAtOnce() {
+        String code = largeClass();
+        service.reviewCodeAsync(code, PROVIDER);
+        assertEquals(service.requestCount(code), stub.pending().size());
+    }
+
+    @Test
+    void smallCodeIsOneWholeFileRequest() {
+        String code = "class Small {\n    int one() {\n        return 1;\n    }\n}\n";
+        assertEquals(1, service.requestCount(code));
+        service.reviewCodeAsync(code, PROVIDER, new RequestPermits(3));
+        assertEquals(1, stub.prompts.size());
+        assertTrue(stub.prompts.get(0).startsWith("Please review the following Java code"));
+    }
+
+    @Test
+    void repeatedFindingsAreMergedOnce() {
+        stub.answer = prompt -> StubAIReviewService.answer("Part reviewed.",
+            "Method names are not descriptive.", "method names are NOT descriptive", "Overflow in method"
+                + prompt.length());
+        CodeReviewResult merged = service.reviewCodeAsync(largeClass(), PROVIDER, new RequestPermits(2)).join();
+
+        List<String> errors = merged.getErrors();
+        assertEquals("Method names are not descriptive.", errors.get(0));
+        assertEquals(1, errors.stream().filter(error -> error.toLowerCase().startsWith("method names")).count());
+    }
+
+    @Test
+    void failedChunksAreNamedAndTheRestAreKept() {
+        String code = largeClass();
+        CompletableFuture<CodeReviewResult> review = service.reviewCodeAsync(code, PROVIDER, new RequestPermits(2));
+        stub.pending().get(0).completeExceptionally(new java.io.IOException("HTTP 500"));
+        while (!stub.pending().isEmpty()) {
+            stub.pending().get(0).complete(StubAIReviewService.answer("Part reviewed.", "Found a bug"));
+        }
+
+        CodeReviewResult merged = review.join();
+        assertEquals(List.of("Found a bug"), merged.getErrors());
+        assertTrue(merged.getWarnings().get(0).startsWith("Part 1 of " + stub.calls.size()), merged.getWarnings().get(0));
+        assertTrue(merged.getWarnings().get(0).endsWith("HTTP 500"));
+    }
+
+    @Test
+    void everyChunkFailingFailsTheReview() {
+        CompletableFuture<CodeReviewResult> review = service.reviewCodeAsync(largeClass(), PROVIDER);
+        stub.pending().forEach(call -> call.completeExceptionally(new java.io.IOException("HTTP 500")));
+        assertThrows(CompletionException.class, review::join);
+    }
+
+    @Test
+    void cancellingCancelsSentChunksAndNeverSendsWaitingOnes() {
+        CompletableFuture<CodeReviewResult> review = service.reviewCodeAsync(largeClass(), PROVIDER,
+            new RequestPermits(2));
+        List<CompletableFuture<CodeReviewResult>> sent = stub.pending();
+        review.cancel(true);
+
+        assertTrue(sent.stream().allMatch(CompletableFuture::isCancelled));
+        assertEquals(2, stub.calls.size());
+    }
+}
@@ -0,0 +1,112 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.service.CodeChunker.Chunk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chunk sizes, boundaries and overlap from CodeChunker
+ */
+class CodeChunkerTest {
+
+    /**
+     * A class of the given number of small methods
+     */
+    private static String classWithMethods(int methods) {
+        StringBuilder source = new StringBuilder("package demo;\n\nimport java.util.List;\n\npublic class Big {\n");
+        for (int i = 0; i < methods; i++) {
+            source.append("\n    int method").append(i).append("(List<String> values) {\n")
+                .append("        int total = values.size() * ").append(i).append(";\n")
+                .append("        return total + values.get(0).length();\n")
+                .append("    }\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static void assertWithinLimit(List<Chunk> chunks, int maxTokens) {
+        for (Chunk chunk : chunks) {
+            int tokens = CodeChunker.estimateTokens(chunk.getText())
+                + (chunk.getContext() == null ? 0 : CodeChunker.estimateTokens(chunk.getContext()));
+            assertTrue(chunk.getTokens() <= maxTokens, chunk.getFirstLabel() + " has " + chunk.getTokens() + " tokens");
+            assertTrue(tokens <= maxTokens, chunk.getFirstLabel() + " text has " + tokens + " tokens");
+        }
+    }
+
+    @Test
+    void smallSourceIsOneChunk() {
+        String source = classWithMethods(2);
+        List<Chunk> chunks = CodeChunker.split(source, 4000, 200);
+        assertEquals(1, chunks.size());
+        assertTrue(chunks.get(0).getContext().contains("import java.util.List;"));
+        assertEquals("Big.method0(List<String>)", chunks.get(0).getFirstLabel());
+        assertEquals("Big.method1(List<String>)", chunks.get(0).getLastLabel());
+    }
+
+    @Test
+    void largeSourceIsCutBetweenMethodsWithTheDeclarationsAsContext() {
+        List<Chunk> chunks = CodeChunker.split(classWithMethods(200), 500, 100);
+        assertTrue(chunks.size() > 1);
+        assertWithinLimit(chunks, 500);
+        for (Chunk chunk : chunks) {
+            assertTrue(chunk.getContext().contains("public class Big {"));
+            assertTrue(chunk.getText().startsWith("int method"), chunk.getText());
+            assertTrue(chunk.getText().endsWith("}"), chunk.getText());
+        }
+        assertEquals("Big.method0(List<String>)", chunks.get(0).getFirstLabel());
+        assertEquals("Big.method199(List<String>)", chunks.get(chunks.size() - 1).getLastLabel());
+    }
+
+    @Test
+    void consecutiveChunksOverlap() {
+        List<Chunk> chunks = CodeChunker.split(classWithMethods(200), 500, 100);
+        for (int i = 1; i < chunks.size(); i++) {
+            String previousLast = chunks.get(i - 1).getLastLabel();
+            assertTrue(chunks.get(i).getText().contains(previousLast.substring("Big.".length(), previousLast.indexOf('('))
+                + "("), "chunk " + i + " does not repeat " + previousLast);
+        }
+    }
+
+    @Test
+    void oversizedSingleLineIsCutIntoChunksWithinTheLimit() {
+        // Minified or generated code: one line, no statement boundaries to cut at
+        String line = "int[] data = {" + "1234567,".repeat(5000) + "};";
+        String source = "class Data {\n    void load() {\n        " + line + "\n    }\n}\n";
+        for (int maxTokens : new int[] {16, 64, 500, 4000}) {
+            List<Chunk> chunks = CodeChunker.split(source, maxTokens, maxTokens / 4);
+            assertTrue(chunks.size() > 1);
+            assertWithinLimit(chunks, maxTokens);
+        }
+    }
+
+    @Test
+    void oversizedSingleWordIsCutIntoChunksWithinTheLimit() {
+        String source = "class Data {\n    String s = \"" + "a".repeat(40_000) + "\";\n    void f() {\n    }\n}\n";
+        List<Chunk> chunks = CodeChunker.split(source, 64, 8);
+        assertWithinLimit(chunks, 64);
+        assertEquals("Data.f()", chunks.get(chunks.size() - 1).getLastLabel());
+    }
+
+    @Test
+    void invalidLimitsAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> CodeChunker.split("class A {}", 15, 0));
+        assertThrows(IllegalArgumentException.class, () -> CodeChunker.split("class A {}", 100, 50));
+        assertThrows(IllegalArgumentException.class, () -> CodeChunker.split("class A {}", 100, -1));
+    }
+
+    @Test
+    void tokenEstimateCountsWordsPunctuationAndIndentation() {
+        assertEquals(0, CodeChunker.estimateTokens(""));
+        // "int" and "x" one each, a single space merges into the next word
+        assertEquals(3, CodeChunker.estimateTokens("int x;"));
+        // Eight characters of identifier are two tokens
+        assertEquals(2, CodeChunker.estimateTokens("abcdefgh"));
+        // A line break with four spaces of indentation is two tokens
+        assertEquals(4, CodeChunker.estimateTokens("a\n    b"));
+    }
+}
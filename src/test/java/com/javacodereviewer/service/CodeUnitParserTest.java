@@ -0,0 +1,136 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.service.CodeUnitParser.CodeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit boundaries and labels from CodeUnitParser
+ */
+class CodeUnitParserTest {
+
+    private static final String SOURCE = String.join("\n",
+        "package demo;",
+        "",
+        "import java.util.Map;",
+        "",
+        "public class Foo<K, T> {",
+        "    private static final Map<String, Integer> CACHE = Map.of();",
+        "    private int count;",
+        "",
+        "    static {",
+        "        System.out.println(\"static { not a brace }\");",
+        "    }",
+        "",
+        "    {",
+        "        count = 1;",
+        "    }",
+        "",
+        "    public Foo() {",
+        "        // a comment with a } brace",
+        "        count = 2;",
+        "    }",
+        "",
+        "    @Override",
+        "    public String toString() {",
+        "        return \"Foo\" + '}';",
+        "    }",
+        "",
+        "    <R> R compute(Map<K, T> values, String... names) {",
+        "        return null;",
+        "    }",
+        "",
+        "    void over(int a) {",
+        "    }",
+        "",
+        "    void over(int b) {",
+        "    }",
+        "",
+        "    abstract static class Inner {",
+        "        abstract void nothing();",
+        "        void twice() {",
+        "        }",
+        "    }",
+        "",
+        "    record R(int x) {",
+        "        R {",
+        "        }",
+        "    }",
+        "",
+        "    enum E { A, B }",
+        "}",
+        "");
+
+    private static List<String> labels(String source) {
+        List<String> labels = new ArrayList<>();
+        for (CodeUnit unit : CodeUnitParser.parse(source)) {
+            labels.add(unit.getLabel());
+        }
+        return labels;
+    }
+
+    @Test
+    void membersAreLabelledByTypeAndParameterTypes() {
+        assertEquals(List.of(
+            CodeUnitParser.DECLARATIONS,
+            "Foo.<static init>",
+            "Foo.<init>",
+            "Foo.Foo()",
+            "Foo.toString()",
+            "Foo.compute(Map<K,T>, String...)",
+            "Foo.over(int)",
+            "Foo.over(int) #2",
+            "Foo.Inner",
+            "Foo.R",
+            "Foo.E"), labels(SOURCE));
+    }
+
+    @Test
+    void bracesInCommentsAndLiteralsDoNotEndAUnit() {
+        List<CodeUnit> units = CodeUnitParser.parse(SOURCE);
+        assertEquals("static {\n        System.out.println(\"static { not a brace }\");\n    }", units.get(1).getText());
+        assertTrue(units.get(4).getText().startsWith("@Override"), units.get(4).getText());
+        assertTrue(units.get(4).getText().endsWith("return \"Foo\" + '}';\n    }"), units.get(4).getText());
+    }
+
+    @Test
+    void declarationsKeepFieldsAndTypeHeaders() {
+        String declarations = CodeUnitParser.parse(SOURCE).get(0).getText();
+        assertTrue(declarations.contains("import java.util.Map;"));
+        assertTrue(declarations.contains("public class Foo<K, T> {"));
+        assertTrue(declarations.contains("private int count;"));
+        assertFalse(declarations.contains("count = 2;"), declarations);
+    }
+
+    @Test
+    void snippetWithoutAClassGetsUnqualifiedLabels() {
+        assertEquals(List.of("add(int, int)", "log(String)"),
+            labels("int add(int a, int b) {\n    return a + b;\n}\n\nvoid log(String s) {\n}\n"));
+    }
+
+    @Test
+    void unbalancedBracesGiveASingleUnit() {
+        String source = "class A {\n    void f() {\n";
+        List<CodeUnit> units = CodeUnitParser.parse(source);
+        assertEquals(1, units.size());
+        assertEquals(CodeUnitParser.DECLARATIONS, units.get(0).getLabel());
+        assertEquals(source.strip(), units.get(0).getText());
+    }
+
+    @Test
+    void hashIgnoresReindentingButNotEdits() {
+        String reindented = SOURCE.replace("\n    ", "\n\t");
+        String edited = SOURCE.replace("count = 2;", "count = 3;");
+        String original = CodeUnitParser.parse(SOURCE).get(3).getHash();
+        assertEquals(original, CodeUnitParser.parse(reindented).get(3).getHash());
+        assertNotEquals(original, CodeUnitParser.parse(edited).get(3).getHash());
+    }
+}
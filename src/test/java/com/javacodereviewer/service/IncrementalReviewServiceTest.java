@@ -0,0 +1,132 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Filing findings by unit, merging them and what IncrementalReviewService caches
+ */
+class IncrementalReviewServiceTest {
+
+    private static final String PROVIDER = "OpenAI GPT-4";
+    private static final String ADD = "[Calc.add(int, int)]";
+    private static final String SUB = "[Calc.sub(int, int)]";
+    private static final String MUL = "[Calc.mul(int, int)]";
+
+    private static final String SOURCE = String.join("\n",
+        "package demo;",
+        "",
+        "public class Calc {",
+        "    private int calls;",
+        "",
+        "    int add(int a, int b) {",
+        "        return a + b;",
+        "    }",
+        "",
+        "    int sub(int a, int b) {",
+        "        return a - b;",
+        "    }",
+        "",
+        "    int mul(int a, int b) {",
+        "        return a * b;",
+        "    }",
+        "}",
+        "");
+
+    @TempDir
+    Path directory;
+
+    private ReviewCache cache;
+    private final StubAIReviewService stub = new StubAIReviewService();
+    private IncrementalReviewService service;
+
+    @BeforeEach
+    void openCache() throws IOException {
+        cache = ReviewCache.open(directory, 16L * 1024 * 1024);
+        service = new IncrementalReviewService(stub, cache);
+    }
+
+    @AfterEach
+    void closeCache() throws IOException {
+        cache.close();
+    }
+
+    private CodeReviewResult review(String code, CodeReviewResult answer) {
+        stub.answer = prompt -> answer;
+        return service.reviewCodeAsync(code, PROVIDER).join();
+    }
+
+    private String lastPrompt() {
+        return stub.prompts.get(stub.prompts.size() - 1);
+    }
+
+    @Test
+    void taggedFindingsAreKeptWithTheirUnit() {
+        review(SOURCE, StubAIReviewService.answer("First.", ADD + " may overflow", SUB + " may underflow"));
+        assertNotNull(service.cachedReview(SOURCE, PROVIDER));
+
+        String edited = SOURCE.replace("return a - b;", "return Math.subtractExact(a, b);");
+        CodeReviewResult result = review(edited, StubAIReviewService.answer("Second.", SUB + " throws on overflow"));
+
+        assertTrue(lastPrompt().contains("// ===== " + SUB), lastPrompt());
+        assertFalse(lastPrompt().contains("// ===== " + ADD), lastPrompt());
+        assertEquals(List.of(ADD + " may overflow", SUB + " throws on overflow"), result.getErrors());
+        assertTrue(result.getSummary().startsWith("Incremental review: 1 of 4 code units changed"),
+            result.getSummary());
+    }
+
+    @Test
+    void untaggedFindingsAreFiledUnderEveryUnitSent() {
+        review(SOURCE, StubAIReviewService.answer("First.", "Class has no documentation"));
+
+        // Every unit changes but mul, so only mul's cached review can still carry the finding
+        String edited = SOURCE.replace("private int calls;", "private long calls;")
+            .replace("return a + b;", "return Math.addExact(a, b);")
+            .replace("return a - b;", "return Math.subtractExact(a, b);");
+        CodeReviewResult result = review(edited, StubAIReviewService.answer("Second."));
+
+        assertFalse(lastPrompt().contains("// ===== " + MUL), lastPrompt());
+        assertEquals(List.of("Class has no documentation"), result.getErrors());
+    }
+
+    @Test
+    void mergeListsFindingsInSourceOrderWithoutRepeats() {
+        CodeReviewResult result = review(SOURCE, StubAIReviewService.answer("First.",
+            MUL + " may overflow", "Shared finding", ADD + " may overflow"));
+
+        // The untagged finding is filed under every unit, starting with the declarations
+        assertEquals(List.of("Shared finding", ADD + " may overflow", MUL + " may overflow"), result.getErrors());
+        assertEquals(result.getErrors(), service.cachedReview(SOURCE, PROVIDER).getErrors());
+    }
+
+    @Test
+    void unparsedAnswerIsShownAndNothingIsCached() {
+        CodeReviewResult raw = new CodeReviewResult("AI Response (Raw):\nnot json", PROVIDER, null);
+        raw.addWarning(AIReviewService.UNPARSED_RESPONSE_WARNING);
+
+        CodeReviewResult result = review(SOURCE, raw);
+
+        assertTrue(result.getSummary().endsWith("not json"), result.getSummary());
+        assertEquals(List.of(AIReviewService.UNPARSED_RESPONSE_WARNING), result.getWarnings());
+        assertNull(service.cachedReview(SOURCE, PROVIDER));
+        assertEquals(0, cache.size());
+
+        review(SOURCE, StubAIReviewService.answer("Second."));
+        assertEquals(2, stub.calls.size());
+        assertTrue(lastPrompt().contains("// ===== " + ADD), lastPrompt());
+    }
+}
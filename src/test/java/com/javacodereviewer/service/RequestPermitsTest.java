@@ -0,0 +1,90 @@
+package com.javacodereviewer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Limits, queueing, cancellation and closing in RequestPermits
+ */
+class RequestPermitsTest {
+
+    private final List<CompletableFuture<String>> sent = new ArrayList<>();
+
+    private CompletableFuture<String> send() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        sent.add(call);
+        return call;
+    }
+
+    @Test
+    void requestsOverTheLimitWaitAndAreSentInOrder() {
+        RequestPermits permits = new RequestPermits(2);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(permits.submit(this::send));
+        }
+        assertEquals(2, sent.size());
+
+        sent.get(1).complete("second");
+        assertEquals("second", results.get(1).join());
+        assertEquals(3, sent.size());
+        sent.get(0).completeExceptionally(new IllegalStateException("failed"));
+        assertEquals(4, sent.size());
+        assertTrue(results.get(0).isCompletedExceptionally());
+    }
+
+    @Test
+    void cancelledWaitingRequestIsNeverSent() {
+        RequestPermits permits = new RequestPermits(1);
+        CompletableFuture<String> first = permits.submit(this::send);
+        CompletableFuture<String> second = permits.submit(this::send);
+        CompletableFuture<String> third = permits.submit(this::send);
+        second.cancel(true);
+
+        first.cancel(true);
+        assertTrue(sent.get(0).isCancelled());
+        assertEquals(2, sent.size());
+        assertFalse(third.isDone());
+    }
+
+    @Test
+    void closingCancelsWaitingAndLaterRequests() {
+        RequestPermits permits = new RequestPermits(1);
+        CompletableFuture<String> first = permits.submit(this::send);
+        CompletableFuture<String> waiting = permits.submit(this::send);
+        permits.close();
+
+        assertTrue(waiting.isCancelled());
+        assertTrue(permits.submit(this::send).isCancelled());
+        sent.get(0).complete("done");
+        assertEquals("done", first.join());
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    void longQueueOfImmediateAnswersDoesNotGrowTheStack() {
+        RequestPermits permits = new RequestPermits(1);
+        CompletableFuture<String> first = permits.submit(this::send);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            results.add(permits.submit(() -> CompletableFuture.completedFuture("cached")));
+        }
+        sent.get(0).complete("sent");
+
+        assertEquals("sent", first.join());
+        assertTrue(results.stream().allMatch(result -> "cached".equals(result.join())));
+    }
+
+    @Test
+    void limitBelowOneIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new RequestPermits(0));
+    }
+}
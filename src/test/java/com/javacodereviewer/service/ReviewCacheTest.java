@@ -0,0 +1,184 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for ReviewCache: lookups, reopening, torn tails, eviction,
+ * compaction and the lock between processes
+ */
+class ReviewCacheTest {
+
+    private static final long MAX_BYTES = 16L * 1024 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private static CodeReviewResult review(String summary) {
+        CodeReviewResult result = new CodeReviewResult(summary, "OpenAI GPT-4", "ignored");
+        result.addError("error in " + summary);
+        result.addWarning("warning in " + summary);
+        result.addSuggestion("suggestion for " + summary);
+        result.addGoodPractice("good practice in " + summary);
+        result.setReviewTime(LocalDateTime.of(2024, 5, 1, 12, 30));
+        return result;
+    }
+
+    private Path log() {
+        return directory.resolve("reviews.log");
+    }
+
+    @Test
+    void storedReviewComesBackForTheSameCodeAndProvider() throws IOException {
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            cache.put("class A {}", "OpenAI GPT-4", review("A"));
+
+            CodeReviewResult cached = cache.get("class A {}", "OpenAI GPT-4");
+            assertNotNull(cached);
+            assertEquals("A", cached.getSummary());
+            assertEquals("error in A", cached.getErrors().get(0));
+            assertEquals("good practice in A", cached.getGoodPractices().get(0));
+            assertEquals(LocalDateTime.of(2024, 5, 1, 12, 30), cached.getReviewTime());
+            // The code is not stored; the result carries the code it was looked up with
+            assertEquals("class A {}", cached.getOriginalCode());
+
+            assertNull(cache.get("class A { }", "OpenAI GPT-4"));
+            assertNull(cache.get("class A {}", "Anthropic Claude"));
+        }
+    }
+
+    @Test
+    void reopeningRebuildsTheIndexFromTheLog() throws IOException {
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            cache.put("class A {}", "p", review("A"));
+            cache.put("class B {}", "p", review("B"));
+            cache.put("class A {}", "p", review("A again"));
+        }
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            assertEquals(2, cache.size());
+            assertEquals("A again", cache.get("class A {}", "p").getSummary());
+            assertEquals("B", cache.get("class B {}", "p").getSummary());
+        }
+    }
+
+    @Test
+    void tornRecordAtTheEndIsCutOff() throws IOException {
+        long intact;
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            cache.put("class A {}", "p", review("A"));
+            intact = Files.size(log());
+            cache.put("class B {}", "p", review("B"));
+        }
+        // A crash halfway through writing B
+        try (FileChannel channel = FileChannel.open(log(), StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(log()) - 5);
+        }
+
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            assertEquals(1, cache.size());
+            assertEquals("A", cache.get("class A {}", "p").getSummary());
+            assertNull(cache.get("class B {}", "p"));
+            assertEquals(intact, Files.size(log()));
+
+            // New records go where the torn one was
+            cache.put("class C {}", "p", review("C"));
+        }
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            assertEquals(2, cache.size());
+            assertEquals("C", cache.get("class C {}", "p").getSummary());
+        }
+    }
+
+    @Test
+    void recordWithABadChecksumEndsTheScan() throws IOException {
+        long intact;
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            cache.put("class A {}", "p", review("A"));
+            intact = Files.size(log());
+            cache.put("class B {}", "p", review("B"));
+        }
+        try (FileChannel channel = FileChannel.open(log(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'#'}), Files.size(log()) - 3);
+        }
+
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            assertEquals(1, cache.size());
+            assertNull(cache.get("class B {}", "p"));
+            assertEquals(intact, Files.size(log()));
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedReviewsAreEvictedOverTheSizeLimit() throws IOException {
+        String padding = "x".repeat(1000);
+        long recordBytes;
+        try (ReviewCache probe = ReviewCache.open(directory.resolve("probe"), MAX_BYTES)) {
+            probe.put("class A {}", "p", review("A" + padding));
+            recordBytes = Files.size(directory.resolve("probe").resolve("reviews.log"));
+        }
+        // Room for three of the four records
+        try (ReviewCache cache = ReviewCache.open(directory, recordBytes * 7 / 2)) {
+            cache.put("class A {}", "p", review("A" + padding));
+            cache.put("class B {}", "p", review("B" + padding));
+            cache.put("class C {}", "p", review("C" + padding));
+            assertNotNull(cache.get("class A {}", "p"));
+            cache.put("class D {}", "p", review("D" + padding));
+
+            assertEquals(3, cache.size());
+            assertNull(cache.get("class B {}", "p"));
+            assertNotNull(cache.get("class A {}", "p"));
+            assertNotNull(cache.get("class D {}", "p"));
+        }
+    }
+
+    @Test
+    void replacedRecordsAreCompactedAway() throws IOException {
+        String large = "y".repeat(100_000);
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            cache.put("class Other {}", "p", review("other"));
+            for (int i = 0; i < 30; i++) {
+                cache.put("class A {}", "p", review(i + large));
+            }
+            // Without compaction the log would hold all 30 versions, over 3 MB
+            assertTrue(Files.size(log()) < 1024 * 1024, "log is " + Files.size(log()) + " bytes");
+            assertFalse(Files.exists(directory.resolve("reviews.log.compact")));
+            assertEquals("29" + large, cache.get("class A {}", "p").getSummary());
+            assertEquals("other", cache.get("class Other {}", "p").getSummary());
+
+            cache.put("class B {}", "p", review("B"));
+        }
+        try (ReviewCache cache = ReviewCache.open(directory, MAX_BYTES)) {
+            assertEquals(3, cache.size());
+            assertEquals("29" + large, cache.get("class A {}", "p").getSummary());
+            assertEquals("B", cache.get("class B {}", "p").getSummary());
+        }
+    }
+
+    @Test
+    void onlyOneOpenCacheUsesADirectory() throws IOException {
+        ReviewCache first = ReviewCache.open(directory, MAX_BYTES);
+        assertThrows(IOException.class, () -> ReviewCache.open(directory, MAX_BYTES));
+        first.close();
+
+        try (ReviewCache second = ReviewCache.open(directory, MAX_BYTES)) {
+            second.put("class A {}", "p", review("A"));
+            assertNotNull(second.get("class A {}", "p"));
+        }
+    }
+}
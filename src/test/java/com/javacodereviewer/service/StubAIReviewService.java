@@ -0,0 +1,63 @@
+package com.javacodereviewer.service;
+
+import com.javacodereviewer.model.CodeReviewResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * AIReviewService that records the prompts sent to it instead of calling a
+ * provider. Each call returns a future the test completes, or is answered
+ * at once when an answer function is set. Not thread-safe: tests complete
+ * the futures on their own thread.
+ */
+class StubAIReviewService extends AIReviewService {
+
+    final List<String> prompts = new ArrayList<>();
+    final List<CompletableFuture<CodeReviewResult>> calls = new ArrayList<>();
+    Function<String, CodeReviewResult> answer;
+    int peakInFlight;
+
+    StubAIReviewService() {
+        super(null);
+    }
+
+    @Override
+    CompletableFuture<CodeReviewResult> sendAsync(String prompt, String code, String provider, Duration deadline) {
+        prompts.add(prompt);
+        CompletableFuture<CodeReviewResult> call = new CompletableFuture<>();
+        calls.add(call);
+        peakInFlight = Math.max(peakInFlight, pending().size());
+        if (answer != null) {
+            call.complete(answer.apply(prompt));
+        }
+        return call;
+    }
+
+    /**
+     * Calls not completed yet, oldest first
+     */
+    List<CompletableFuture<CodeReviewResult>> pending() {
+        List<CompletableFuture<CodeReviewResult>> pending = new ArrayList<>();
+        for (CompletableFuture<CodeReviewResult> call : calls) {
+            if (!call.isDone()) {
+                pending.add(call);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * A parsed answer with the given summary and errors
+     */
+    static CodeReviewResult answer(String summary, String... errors) {
+        CodeReviewResult result = new CodeReviewResult(summary, "OpenAI GPT-4", null);
+        for (String error : errors) {
+            result.addError(error);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+# Fake News Detection API - Test Script
+# This script downloads JUnit, compiles the server and the code reviewer services together with
+# their tests and runs both suites
+#
+# Usage: .\test.ps1 [JUnit console options]
+#   .\test.ps1                                   # every test
+#   .\test.ps1 --include-classname NioHttpServerTest
+#   .\test.ps1 --include-classname '.*BulkReviewServiceTest'
+
+$ErrorActionPreference = "Stop"
+
+Write-Host "🧪 Running Fake News Detection tests..." -ForegroundColor Green
+
+# Tests share the server's Gson dependency
+if (-not (Test-Path "lib\gson-2.10.1.jar")) {
+    Write-Host "❌ Gson dependency not found. Please run .\build.ps1 first" -ForegroundColor Red
+    exit 1
+}
+
+# Create test lib directory
+if (-not (Test-Path "lib\test")) {
+    New-Item -ItemType Directory -Path "lib\test"
+    Write-Host "📁 Created lib\test directory"
+}
+
+# Download the JUnit console launcher if not present; it bundles the JUnit 5 API and engine
+$junitJar = "lib\test\junit-platform-console-standalone-1.10.2.jar"
+if (-not (Test-Path $junitJar)) {
+    Write-Host "📦 Downloading JUnit..."
+    $junitUrl = "https://repo1.maven.org/maven2/org/junit/platform/junit-platform-console-standalone/1.10.2/junit-platform-console-standalone-1.10.2.jar"
+    try {
+        Invoke-WebRequest -Uri $junitUrl -OutFile $junitJar
+    } catch {
+        Write-Host "❌ Failed to download JUnit: $($_.Exception.Message)" -ForegroundColor Red
+        Write-Host "💡 Please manually download junit-platform-console-standalone-1.10.2.jar to the lib\test\ directory" -ForegroundColor Yellow
+        exit 1
+    }
+}
+
+# The reviewer service tests need OkHttp, its Kotlin runtime and MockWebServer, which brings JUnit 4
+$reviewerJars = @{
+    "okhttp-4.12.0.jar" = "https://repo1.maven.org/maven2/com/squareup/okhttp3/okhttp/4.12.0/okhttp-4.12.0.jar"
+    "mockwebserver-4.12.0.jar" = "https://repo1.maven.org/maven2/com/squareup/okhttp3/mockwebserver/4.12.0/mockwebserver-4.12.0.jar"
+    "okio-jvm-3.6.0.jar" = "https://repo1.maven.org/maven2/com/squareup/okio/okio-jvm/3.6.0/okio-jvm-3.6.0.jar"
+    "kotlin-stdlib-1.8.21.jar" = "https://repo1.maven.org/maven2/org/jetbrains/kotlin/kotlin-stdlib/1.8.21/kotlin-stdlib-1.8.21.jar"
+    "kotlin-stdlib-jdk7-1.8.21.jar" = "https://repo1.maven.org/maven2/org/jetbrains/kotlin/kotlin-stdlib-jdk7/1.8.21/kotlin-stdlib-jdk7-1.8.21.jar"
+    "kotlin-stdlib-jdk8-1.8.21.jar" = "https://repo1.maven.org/maven2/org/jetbrains/kotlin/kotlin-stdlib-jdk8/1.8.21/kotlin-stdlib-jdk8-1.8.21.jar"
+    "kotlin-stdlib-common-1.9.10.jar" = "https://repo1.maven.org/maven2/org/jetbrains/kotlin/kotlin-stdlib-common/1.9.10/kotlin-stdlib-common-1.9.10.jar"
+    "junit-4.13.2.jar" = "https://repo1.maven.org/maven2/junit/junit/4.13.2/junit-4.13.2.jar"
+    "hamcrest-core-1.3.jar" = "https://repo1.maven.org/maven2/org/hamcrest/hamcrest-core/1.3/hamcrest-core-1.3.jar"
+}
+foreach ($jar in $reviewerJars.Keys) {
+    $path = "lib\test\$jar"
+    if (-not (Test-Path $path)) {
+        Write-Host "📦 Downloading $jar..."
+        try {
+            Invoke-WebRequest -Uri $reviewerJars[$jar] -OutFile $path
+        } catch {
+            Write-Host "❌ Failed to download $($jar): $($_.Exception.Message)" -ForegroundColor Red
+            Write-Host "💡 Please manually download $jar to the lib\test\ directory" -ForegroundColor Yellow
+            exit 1
+        }
+    }
+}
+$reviewerClassPath = (($reviewerJars.Keys | ForEach-Object { "lib\test\$_" }) + "lib\gson-2.10.1.jar") -join ";"
+
+# Create test classes directories
+if (-not (Test-Path "test-classes")) {
+    New-Item -ItemType Directory -Path "test-classes"
+    Write-Host "📁 Created test-classes directory"
+}
+if (-not (Test-Path "reviewer-test-classes")) {
+    New-Item -ItemType Directory -Path "reviewer-test-classes"
+    Write-Host "📁 Created reviewer-test-classes directory"
+}
+
+# Compile server and test sources; the tests use package-private classes of the server
+Write-Host "🔨 Compiling tests..."
+javac -encoding UTF-8 -cp "lib\*;lib\test\*" -d test-classes src\*.java test\*.java
+if ($LASTEXITCODE -ne 0) {
+    Write-Host "❌ Compilation of the server tests failed" -ForegroundColor Red
+    exit 1
+}
+
+# The reviewer services and model do not need JavaFX, so they are compiled with their tests on their own
+$reviewerSources = @(Get-ChildItem -Path "src\main\java\com\javacodereviewer\model", "src\main\java\com\javacodereviewer\service" -Filter *.java) +
+    @(Get-ChildItem -Path "src\test\java" -Filter *.java -Recurse) | ForEach-Object { $_.FullName }
+javac -encoding UTF-8 -cp "$reviewerClassPath;$junitJar" -d reviewer-test-classes $reviewerSources
+if ($LASTEXITCODE -ne 0) {
+    Write-Host "❌ Compilation of the reviewer tests failed" -ForegroundColor Red
+    exit 1
+}
+Write-Host "✅ Compilation successful!"
+
+# Run every test class found in each tree; the script fails if either suite does
+Write-Host ""
+Write-Host "🧪 Server tests" -ForegroundColor Green
+java -jar $junitJar execute --class-path "test-classes;lib\gson-2.10.1.jar" --scan-class-path @args
+$serverResult = $LASTEXITCODE
+
+Write-Host ""
+Write-Host "🧪 Code reviewer service tests" -ForegroundColor Green
+java -jar $junitJar execute --class-path "reviewer-test-classes;$reviewerClassPath" --scan-class-path @args
+$reviewerResult = $LASTEXITCODE
+
+if ($serverResult -ne 0 -or $reviewerResult -ne 0) {
+    exit 1
+}
+exit 0
@@ -0,0 +1,262 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The endpoints end to end, against one server started for the whole class
+ * with small limits so they are easy to reach
+ */
+class FakeNewsAPITest {
+
+    private static final int BATCH_MAX_ITEMS = 3;
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+    private static final int SEGMENT_MIN_CHARS = 2000;
+
+    private static final HttpClient client = HttpClient.newHttpClient();
+    private static int port;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        // The server keeps its state in statics, so it is started once per JVM
+        FakeNewsAPI.main(new String[] {
+            "--port", String.valueOf(port),
+            "--engine", "nio",
+            "--batch-max-items", String.valueOf(BATCH_MAX_ITEMS),
+            "--max-body-bytes", String.valueOf(MAX_BODY_BYTES),
+            "--segment-min-chars", String.valueOf(SEGMENT_MIN_CHARS),
+            "--segment-chars", "200",
+            "--log-dir="
+        });
+    }
+
+    static HttpResponse<String> post(String path, String body, String contentType)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+            .header("Content-Type", contentType)
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Posts without a Content-Length, so the body arrives chunked
+     */
+    static HttpResponse<String> postChunked(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.fromPublisher(HttpRequest.BodyPublishers.ofString(body)))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    static JsonElement json(HttpResponse<String> response) {
+        return JsonParser.parseString(response.body());
+    }
+
+    @Test
+    void batchScoresStringsAndObjectsInInputOrder() throws Exception {
+        String first = "Scientists published the peer-reviewed study on Tuesday.";
+        String second = "SHOCKING secret they don't want you to know!!!";
+        HttpResponse<String> response = post("/detect/batch",
+            "[\"" + first + "\", {\"text\": \"" + second + "\"}]", "application/json");
+        assertEquals(200, response.statusCode());
+
+        JsonArray results = json(response).getAsJsonArray();
+        assertEquals(2, results.size());
+        assertEquals(first.length(), results.get(0).getAsJsonObject().get("textLength").getAsInt());
+        assertEquals(second.length(), results.get(1).getAsJsonObject().get("textLength").getAsInt());
+    }
+
+    @Test
+    void batchItemsThatCannotBeScoredGetErrorsInPlace() throws Exception {
+        HttpResponse<String> response = post("/detect/batch",
+            "[\"A real article.\", \"   \", {\"title\": \"no text\"}]", "application/json");
+        assertEquals(200, response.statusCode());
+
+        JsonArray results = json(response).getAsJsonArray();
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).getAsJsonObject().has("prediction"));
+        for (int i = 1; i < 3; i++) {
+            JsonObject error = results.get(i).getAsJsonObject();
+            assertEquals(400, error.get("status").getAsInt());
+            assertTrue(error.has("error"));
+        }
+    }
+
+    @Test
+    void ndjsonBatchIsAnsweredAsNdjson() throws Exception {
+        HttpResponse<String> response = post("/detect/batch",
+            "\"First article.\"\n\n{\"text\": \"Second article.\"}\n", "application/x-ndjson");
+        assertEquals(200, response.statusCode());
+
+        String[] lines = response.body().strip().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("First article.".length(),
+            JsonParser.parseString(lines[0]).getAsJsonObject().get("textLength").getAsInt());
+    }
+
+    @Test
+    void batchOverTheItemLimitIsRefused() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i <= BATCH_MAX_ITEMS; i++) {
+            body.append(i > 0 ? "," : "").append("\"Article ").append(i).append("\"");
+        }
+        HttpResponse<String> response = post("/detect/batch", body.append(']').toString(), "application/json");
+        assertEquals(413, response.statusCode());
+    }
+
+    @Test
+    void bodyThatIsNotAnArrayIsReadAsNdjson() throws Exception {
+        HttpResponse<String> response = post("/detect/batch", "{\"text\": \"One article.\"}", "application/json");
+        assertEquals(200, response.statusCode());
+        assertEquals("One article.".length(),
+            JsonParser.parseString(response.body().strip()).getAsJsonObject().get("textLength").getAsInt());
+    }
+
+    @Test
+    void emptyOrMalformedBatchIsRefused() throws Exception {
+        assertEquals(400, post("/detect/batch", "[]", "application/json").statusCode());
+        assertEquals(400, post("/detect/batch", "[\"unterminated", "application/json").statusCode());
+    }
+
+    @Test
+    void textFieldIsReadWithItsWhitespaceAndOtherFieldsSkipped() throws IOException {
+        assertEquals("line one\n\n  line two", FakeNewsAPI.extractTextField(new StringReader(
+            "{\"source\": {\"name\": \"wire\", \"tags\": [1, 2, {\"text\": \"nested\"}]},"
+                + " \"text\": \"line one\\n\\n  line two\", \"id\": 7}")));
+        assertNull(FakeNewsAPI.extractTextField(new StringReader("{\"title\": \"no text\"}")));
+        assertNull(FakeNewsAPI.extractTextField(new StringReader("{\"text\": null}")));
+        // Answered with 400 by the handler
+        assertThrows(IllegalStateException.class, () -> FakeNewsAPI.extractTextField(new StringReader("[\"text\"]")));
+    }
+
+    @Test
+    void detectCountsTheTextAsSent() throws Exception {
+        HttpResponse<String> response = post("/detect", "{\"text\": \"First line.\\nSecond line.\"}",
+            "application/json");
+        assertEquals(200, response.statusCode());
+        assertEquals("First line.\nSecond line.".length(),
+            json(response).getAsJsonObject().get("textLength").getAsInt());
+    }
+
+    @Test
+    void detectRefusesMissingEmptyAndMalformedText() throws Exception {
+        assertEquals(400, post("/detect", "{\"title\": \"no text\"}", "application/json").statusCode());
+        assertEquals(400, post("/detect", "{\"text\": \" \\n \"}", "application/json").statusCode());
+        assertEquals(400, post("/detect", "{\"text\": ", "application/json").statusCode());
+    }
+
+    @Test
+    void detectBodyOverTheLimitIsRefused() throws Exception {
+        String body = "{\"text\": \"" + "a".repeat(MAX_BODY_BYTES) + "\"}";
+        assertEquals(413, post("/detect", body, "application/json").statusCode());
+        assertEquals(413, postChunked("/detect", body).statusCode());
+        // The batch endpoint has a limit of its own
+        assertEquals(200, post("/detect/batch", "[" + body + "]", "application/json").statusCode());
+    }
+
+    @Test
+    void metricsCountRequestsInPrometheusTextFormat() throws Exception {
+        post("/detect", "{\"text\": \"An article to count.\"}", "application/json");
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/metrics")).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+
+        Map<String, Double> samples = new HashMap<>();
+        for (String line : response.body().split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            samples.put(line.substring(0, space), Double.parseDouble(line.substring(space + 1)));
+        }
+        assertTrue(samples.get("fakenews_requests_total{endpoint=\"/detect\",code=\"200\"}") >= 1);
+        double count = samples.get("fakenews_request_duration_seconds_count{endpoint=\"/detect\"}");
+        assertEquals(count, samples.get("fakenews_request_duration_seconds_bucket{endpoint=\"/detect\",le=\"+Inf\"}"), 0);
+        assertTrue(samples.containsKey("fakenews_cache_hits_total"));
+    }
+
+    /**
+     * A text long enough to be scored in segments
+     */
+    private static String longArticle(String topic) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < SEGMENT_MIN_CHARS * 2; i++) {
+            text.append("Paragraph ").append(i).append(" about ").append(topic)
+                .append(". Officials confirmed the figures on Monday.");
+            text.append(i % 3 == 2 ? "\n\n" : " ");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Fails unless every segment's excerpt is found in the text at the segment's offset
+     */
+    private static void assertSegmentsPointInto(String text, JsonObject result) {
+        JsonArray segments = result.getAsJsonArray("segments");
+        assertTrue(segments != null && segments.size() > 0, "no segments in " + result);
+        for (JsonElement element : segments) {
+            JsonObject segment = element.getAsJsonObject();
+            int start = segment.get("start").getAsInt();
+            assertTrue(segment.get("end").getAsInt() <= text.length());
+            assertTrue(text.startsWith(segment.get("excerpt").getAsString(), start), "segment at " + start);
+        }
+    }
+
+    private static String detectBody(String text) {
+        JsonObject body = new JsonObject();
+        body.addProperty("text", text);
+        return body.toString();
+    }
+
+    @Test
+    void segmentOffsetsCountTheLeadingWhitespaceThatWasTrimmed() throws Exception {
+        String text = "\n\t  " + longArticle("the harbour bridge");
+        assertSegmentsPointInto(text, json(post("/detect", detectBody(text), "application/json")).getAsJsonObject());
+
+        JsonArray batch = new JsonArray();
+        batch.add(text);
+        JsonArray results = json(post("/detect/batch", batch.toString(), "application/json")).getAsJsonArray();
+        assertSegmentsPointInto(text, results.get(0).getAsJsonObject());
+    }
+
+    @Test
+    void cachedSegmentsAreOnlyServedForTheExactTextScored() throws Exception {
+        String text = longArticle("the city budget");
+        // Same cache key and length, different characters
+        String shouted = text.toUpperCase(Locale.ROOT);
+        String respaced = text.replaceFirst("\\. ", ".\n");
+        assertEquals(text.length(), shouted.length());
+        assertEquals(text.length(), respaced.length());
+
+        for (String variant : new String[] {text, shouted, respaced, text}) {
+            JsonObject result = json(post("/detect", detectBody(variant), "application/json")).getAsJsonObject();
+            assertSegmentsPointInto(variant, result);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Indicator matching in HeuristicClassifier: whole words, headline prefixes
+ * and duplicate phrases
+ */
+class HeuristicClassifierTest {
+
+    private static final HeuristicClassifier builtIn = new HeuristicClassifier();
+
+    private static int id(HeuristicClassifier classifier, String phrase) {
+        for (int id = 0; id < classifier.size(); id++) {
+            if (classifier.phrase(id).equals(phrase)) {
+                return id;
+            }
+        }
+        throw new AssertionError("No indicator '" + phrase + "'");
+    }
+
+    @Test
+    void indicatorsMatchWholeWordsWhateverThePunctuation() {
+        int secret = id(builtIn, "secret");
+        assertTrue(builtIn.scan("The SECRET!!! plan").matched(secret));
+        assertFalse(builtIn.scan("The secretary resigned").matched(secret));
+    }
+
+    @Test
+    void headlinePrefixOnlyCountsAtTheStart() {
+        int breaking = id(builtIn, "breaking:");
+        IndicatorMatcher.Matches headline = builtIn.scan("  BREAKING: minister resigns. Breaking news follows.");
+        assertEquals(1, headline.count(breaking));
+        assertEquals(0, headline.firstOffset(breaking));
+
+        assertFalse(builtIn.scan("The athlete set a record-breaking time").matched(breaking));
+        assertFalse(builtIn.scan("Officials said the breaking story was accurate").matched(breaking));
+        assertTrue(builtIn.fakeProbability("BREAKING: the minister resigned")
+            > builtIn.fakeProbability("The athlete set a record-breaking time"));
+    }
+
+    @Test
+    void phrasesThatNormalizeAlikeAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> new HeuristicClassifier(
+            List.of("Miracle cure", "miracle  CURE!"), new double[] {1, 1}, 0, 0, 1, 0, null));
+    }
+}
@@ -0,0 +1,41 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bucket bounds and bucket selection of LatencyHistogram
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void boundsGrowByAtMostHalfFromOneMicrosecond() {
+        assertEquals(1_000, LatencyHistogram.upperBoundNanos(0));
+        assertEquals(1_500, LatencyHistogram.upperBoundNanos(1));
+        assertEquals(2_000, LatencyHistogram.upperBoundNanos(2));
+        for (int i = 1; i < LatencyHistogram.bucketCount(); i++) {
+            long previous = LatencyHistogram.upperBoundNanos(i - 1);
+            long bound = LatencyHistogram.upperBoundNanos(i);
+            assertTrue(bound > previous && bound <= previous * 3 / 2 + 1, "bucket " + i);
+        }
+        assertTrue(LatencyHistogram.upperBoundNanos(LatencyHistogram.bucketCount() - 1) >= 30_000_000_000L);
+    }
+
+    @Test
+    void valuesLandInTheFirstBucketTheyFit() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(1_000);
+        histogram.record(1_001);
+        histogram.record(1_500);
+        histogram.record(3_600_000_000_000L);
+
+        long[] counts = histogram.counts();
+        assertEquals(LatencyHistogram.bucketCount() + 1, counts.length);
+        assertEquals(2, counts[0]);
+        assertEquals(2, counts[1]);
+        // An hour is past the last finite bucket
+        assertEquals(1, counts[counts.length - 1]);
+        assertEquals(3_600_000_003_501L, histogram.sumNanos());
+    }
+}
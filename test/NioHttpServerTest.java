@@ -0,0 +1,248 @@
+import com.sun.net.httpserver.HttpExchange;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Request parsing in NioHttpServer, driven over a real socket: bodies by
+ * length and in chunks, per-context body limits, pipelining and malformed
+ * requests
+ */
+class NioHttpServerTest {
+
+    private static final long SMALL_LIMIT = 1024;
+    private static final long LARGE_LIMIT = 1024 * 1024;
+
+    private ExecutorService executor;
+    private NioHttpServer server;
+    private int port;
+
+    @BeforeEach
+    void start() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        executor = Executors.newCachedThreadPool();
+        server = new NioHttpServer(new InetSocketAddress("127.0.0.1", port), 16, 1, executor, SMALL_LIMIT);
+        server.createContext("/small", NioHttpServerTest::echo);
+        server.createContext("/large", NioHttpServerTest::echo, LARGE_LIMIT);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Answers with the request body
+     */
+    private static void echo(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    void bodyLargerThanTheInitialBufferArrivesWhole() throws IOException {
+        byte[] body = new byte[100_000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head("POST /large HTTP/1.1", "Content-Length: " + body.length));
+            // In small writes, so the body is buffered across many reads
+            for (int offset = 0; offset < body.length; offset += 4096) {
+                out.write(body, offset, Math.min(4096, body.length - offset));
+                out.flush();
+            }
+            Response response = Response.read(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertArrayEquals(body, response.body);
+        }
+    }
+
+    @Test
+    void chunkedBodyIsReassembled() throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head("POST /small HTTP/1.1", "Transfer-Encoding: chunked"));
+            out.write("5\r\nhello\r\n7;ext=1\r\n, world\r\n0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            Response response = Response.read(socket.getInputStream());
+            assertEquals(200, response.status);
+            assertEquals("hello, world", response.text());
+        }
+    }
+
+    @Test
+    void declaredLengthIsCheckedAgainstTheContextLimit() throws IOException {
+        long declared = SMALL_LIMIT * 2;
+        try (Socket socket = connect()) {
+            // Refused on the headers alone: no body is sent
+            socket.getOutputStream().write(head("POST /small HTTP/1.1", "Content-Length: " + declared));
+            Response response = Response.read(socket.getInputStream());
+            assertEquals(413, response.status);
+            assertEquals("close", response.headers.get("connection"));
+        }
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(head("POST /large HTTP/1.1", "Content-Length: " + declared));
+            socket.getOutputStream().write(new byte[(int) declared]);
+            assertEquals(200, Response.read(socket.getInputStream()).status);
+        }
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(head("POST /large HTTP/1.1", "Content-Length: " + Long.MAX_VALUE));
+            assertEquals(413, Response.read(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    void chunkedBodyOverTheContextLimitIsRefused() throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(head("POST /small HTTP/1.1", "Transfer-Encoding: chunked"));
+            out.write((Long.toHexString(SMALL_LIMIT + 1) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals(413, Response.read(socket.getInputStream()).status);
+        }
+    }
+
+    @Test
+    void pipelinedRequestsAreAnsweredInOrder() throws IOException {
+        try (Socket socket = connect()) {
+            ByteArrayOutputStream requests = new ByteArrayOutputStream();
+            requests.write(head("POST /small HTTP/1.1", "Content-Length: 3"));
+            requests.write("one".getBytes(StandardCharsets.ISO_8859_1));
+            requests.write(head("POST /large HTTP/1.1", "Content-Length: 3"));
+            requests.write("two".getBytes(StandardCharsets.ISO_8859_1));
+            socket.getOutputStream().write(requests.toByteArray());
+
+            InputStream in = socket.getInputStream();
+            assertEquals("one", Response.read(in).text());
+            assertEquals("two", Response.read(in).text());
+        }
+    }
+
+    @Test
+    void malformedRequestsAreRefused() throws IOException {
+        assertEquals(400, exchange(head("GARBAGE")).status);
+        assertEquals(400, exchange(head("POST /small HTTP/1.1", "no colon here")).status);
+        assertEquals(400, exchange(head("POST /small HTTP/1.1", "Content-Length: ten")).status);
+        ByteArrayOutputStream badChunk = new ByteArrayOutputStream();
+        badChunk.write(head("POST /small HTTP/1.1", "Transfer-Encoding: chunked"));
+        badChunk.write("zz\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(400, exchange(badChunk.toByteArray()).status);
+    }
+
+    @Test
+    void chunkDataNotEndedByCrlfIsRefused() throws IOException {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        request.write(head("POST /small HTTP/1.1", "Transfer-Encoding: chunked"));
+        // Two stray bytes where the CRLF after the data belongs
+        request.write("5\r\nhelloXY3\r\nabc\r\n0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        Response response = exchange(request.toByteArray());
+        assertEquals(400, response.status);
+        assertEquals("close", response.headers.get("connection"));
+    }
+
+    @Test
+    void unknownPathGets404() throws IOException {
+        assertEquals(404, exchange(head("GET /missing HTTP/1.1")).status);
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", port);
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private Response exchange(byte[] request) throws IOException {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(request);
+            return Response.read(socket.getInputStream());
+        }
+    }
+
+    /**
+     * Request line and headers, with the blank line that ends them
+     */
+    private static byte[] head(String... lines) {
+        StringBuilder head = new StringBuilder();
+        for (String line : lines) {
+            head.append(line).append("\r\n");
+            if (line.startsWith("POST") || line.startsWith("GET")) {
+                head.append("Host: localhost\r\n");
+            }
+        }
+        return head.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * A response read off the socket; only Content-Length bodies, which is all the server sends here
+     */
+    private static final class Response {
+        final int status;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        private Response(int status, Map<String, String> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+
+        static Response read(InputStream in) throws IOException {
+            String statusLine = readLine(in);
+            int status = Integer.parseInt(statusLine.split(" ")[1]);
+            Map<String, String> headers = new HashMap<>();
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+            int length = Integer.parseInt(headers.getOrDefault("content-length", "0"));
+            byte[] body = in.readNBytes(length);
+            if (body.length < length) {
+                throw new IOException("Response body cut short after " + body.length + " bytes");
+            }
+            return new Response(status, headers, body);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new IOException("Connection closed mid-response after: " + line);
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
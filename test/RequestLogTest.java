@@ -0,0 +1,83 @@
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The JSONL lines RequestLog writes, its size-based rotation and what it
+ * does after close
+ */
+class RequestLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static FakeNewsAPI.DetectionResult result(String id) {
+        return new FakeNewsAPI.DetectionResult("Fake", 0.87, "analysis", 42).withId(id);
+    }
+
+    @Test
+    void recordsAreWrittenAsOneJsonObjectPerLine() throws IOException {
+        RequestLog log = new RequestLog(directory, 64, 1024 * 1024, 2);
+        assertTrue(log.log("/detect", log.nextRequestId(), -1, result("a1"), 1_500, 2_500, 10_000, 500));
+        assertTrue(log.log("/detect/batch", log.nextRequestId(), 3, result("b2"), -1, -1, 7_000, -1));
+        log.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve("requests.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+
+        JsonObject single = JsonParser.parseString(lines.get(0)).getAsJsonObject();
+        assertEquals(1, single.get("requestId").getAsLong());
+        assertEquals("/detect", single.get("endpoint").getAsString());
+        assertEquals("a1", single.get("textHash").getAsString());
+        assertEquals("Fake", single.get("prediction").getAsString());
+        assertEquals(42, single.get("textLength").getAsInt());
+        assertFalse(single.has("item"));
+        assertEquals(1, single.get("readUs").getAsLong());
+        assertEquals(10, single.get("detectUs").getAsLong());
+
+        JsonObject item = JsonParser.parseString(lines.get(1)).getAsJsonObject();
+        assertEquals(3, item.get("item").getAsInt());
+        // Stages that were not timed for this record are left out
+        assertFalse(item.has("readUs"));
+        assertFalse(item.has("serializeUs"));
+        assertEquals(7, item.get("detectUs").getAsLong());
+        assertEquals(2, log.written());
+    }
+
+    @Test
+    void filesRotateBySizeAndOldOnesAreDropped() throws IOException {
+        RequestLog log = new RequestLog(directory, 1024, 300, 3);
+        for (int i = 0; i < 100; i++) {
+            log.log("/detect", log.nextRequestId(), -1, result("id" + i), -1, -1, 1_000, -1);
+        }
+        log.close();
+
+        assertTrue(Files.exists(directory.resolve("requests.jsonl")));
+        assertTrue(Files.exists(directory.resolve("requests.1.jsonl")));
+        assertTrue(Files.exists(directory.resolve("requests.2.jsonl")));
+        assertFalse(Files.exists(directory.resolve("requests.3.jsonl")));
+        // The newest records are in the current file
+        List<String> current = Files.readAllLines(directory.resolve("requests.jsonl"), StandardCharsets.UTF_8);
+        assertTrue(current.get(current.size() - 1).contains("\"textHash\":\"id99\""));
+    }
+
+    @Test
+    void recordsAfterCloseAreDroppedAndCounted() throws IOException {
+        RequestLog log = new RequestLog(directory, 16, 1024 * 1024, 1);
+        log.close();
+        assertFalse(log.log("/detect", log.nextRequestId(), -1, result("late"), -1, -1, 1_000, -1));
+        assertEquals(1, log.dropped());
+    }
+}
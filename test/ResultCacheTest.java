@@ -0,0 +1,93 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ResultCache lookups, LRU eviction per stripe, TTL expiry and counters
+ */
+class ResultCacheTest {
+
+    // Sixteen stripes, so 16 entries is one per stripe and 32 is two
+    private static final int STRIPES = 16;
+
+    @Test
+    void textsThatOnlyDifferInCaseAndSpacingShareAnEntry() {
+        ResultCache<String> cache = new ResultCache<>(100, 0);
+        cache.put(ContentHash.of("Breaking  News:\tthe Minister resigned"), "verdict");
+
+        assertEquals("verdict", cache.get(ContentHash.of("  breaking news: THE MINISTER RESIGNED ")));
+        assertNull(cache.get(ContentHash.of("breaking news: the minister stayed")));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void fullStripeEvictsItsLeastRecentlyUsedEntry() {
+        ResultCache<String> cache = new ResultCache<>(2 * STRIPES, 0);
+        List<ContentHash> keys = sameStripe(3);
+        cache.put(keys.get(0), "first");
+        cache.put(keys.get(1), "second");
+        // Using the first entry makes the second the eldest
+        assertEquals("first", cache.get(keys.get(0)));
+        cache.put(keys.get(2), "third");
+
+        assertEquals(1, cache.evictions());
+        assertNull(cache.get(keys.get(1)));
+        assertEquals("first", cache.get(keys.get(0)));
+        assertEquals("third", cache.get(keys.get(2)));
+    }
+
+    @Test
+    void sizeStaysWithinTheLimit() {
+        ResultCache<Integer> cache = new ResultCache<>(64, 0);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(ContentHash.of("article " + i), i);
+        }
+        assertTrue(cache.size() <= 64, "size " + cache.size());
+        assertEquals(10_000 - cache.size(), cache.evictions());
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws InterruptedException {
+        ResultCache<String> cache = new ResultCache<>(100, 1);
+        ContentHash key = ContentHash.of("an article");
+        cache.put(key, "verdict");
+        assertEquals("verdict", cache.get(key));
+
+        Thread.sleep(1_100);
+        assertNull(cache.get(key));
+        assertEquals(1, cache.expirations());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void clearDropsEverything() {
+        ResultCache<Integer> cache = new ResultCache<>(100, 0);
+        for (int i = 0; i < 50; i++) {
+            cache.put(ContentHash.of("article " + i), i);
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(ContentHash.of("article 1")));
+    }
+
+    /**
+     * Keys of distinct texts that land in the same stripe
+     */
+    private static List<ContentHash> sameStripe(int count) {
+        List<ContentHash> keys = new ArrayList<>();
+        long stripe = ContentHash.of("text 0").high >>> 60;
+        for (int i = 0; keys.size() < count; i++) {
+            ContentHash key = ContentHash.of("text " + i);
+            if (key.high >>> 60 == stripe) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Window bounds and document scoring of SegmentScorer
+ */
+class SegmentScorerTest {
+
+    /**
+     * Fake exactly when the text mentions a conspiracy
+     */
+    private static final Classifier CONSPIRACY = new Classifier() {
+        @Override
+        public double fakeProbability(CharSequence text) {
+            return text.toString().toLowerCase().contains("conspiracy") ? 0.9 : 0.2;
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+    };
+
+    @Test
+    void windowsCoverTheTextWithoutWhitespaceAtTheirEdges() {
+        StringBuilder text = new StringBuilder("  \n");
+        for (int i = 0; i < 200; i++) {
+            text.append("Sentence number ").append(i).append(" of the article. ");
+            if (i % 7 == 6) {
+                text.append("\n\n");
+            }
+        }
+        String article = text.toString();
+        int[] bounds = SegmentScorer.split(article, 300);
+
+        assertEquals(0, bounds.length % 2);
+        int previousEnd = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            assertTrue(start < end && end - start <= 300, "window " + start + "-" + end);
+            assertFalse(Character.isWhitespace(article.charAt(start)));
+            assertFalse(Character.isWhitespace(article.charAt(end - 1)));
+            // Only whitespace is skipped between windows
+            assertTrue(article.substring(previousEnd, start).isBlank());
+            previousEnd = end;
+        }
+        assertTrue(article.substring(previousEnd).isBlank());
+    }
+
+    @Test
+    void windowsEndAtParagraphsThenSentences() {
+        String paragraph = "One short paragraph here.\n\n";
+        String sentences = "First sentence is here. Second one follows it and goes on";
+        assertEquals(paragraph.length() - 2, SegmentScorer.split(paragraph + sentences, 40)[1]);
+        assertEquals("First sentence is here.".length(), SegmentScorer.split(sentences, 40)[1]);
+    }
+
+    @Test
+    void aLongWordIsCutButNotBetweenASurrogatePair() {
+        String emoji = "😀";
+        String word = "a".repeat(9) + emoji.repeat(10);
+        int[] bounds = SegmentScorer.split(word, 10);
+        for (int i = 0; i < bounds.length; i += 2) {
+            assertFalse(Character.isLowSurrogate(word.charAt(bounds[i])), "cut at " + bounds[i]);
+        }
+        assertEquals(word.length(), bounds[bounds.length - 1]);
+    }
+
+    @Test
+    void excerptIsNotCutBetweenASurrogatePair() {
+        // The 160-char excerpt limit falls on the low half of an emoji
+        String text = "a" + "😀".repeat(300);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            SegmentScorer.Scored scored = new SegmentScorer(100, 400, 1, pool).score(text, CONSPIRACY);
+            String excerpt = scored.top.get(0).getExcerpt();
+            assertFalse(Character.isHighSurrogate(excerpt.charAt(excerpt.length() - 1)), "excerpt ends mid-pair");
+            assertTrue(text.startsWith(excerpt));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void mostSuspiciousWindowsAreReturnedWithTheirOffsets() {
+        String calm = "The council met on Monday and approved the budget for the coming year. ";
+        String article = calm.repeat(10) + "Insiders reveal the conspiracy behind the vote. " + calm.repeat(10);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            SegmentScorer scorer = new SegmentScorer(100, 80, 2, pool);
+            assertTrue(scorer.applies(article));
+            assertFalse(scorer.applies("short"));
+
+            SegmentScorer.Scored scored = scorer.score(article, CONSPIRACY);
+            assertEquals(1, scored.suspiciousCount);
+            assertEquals(2, scored.top.size());
+            SegmentScorer.Segment worst = scored.top.get(0);
+            assertEquals(0.9, worst.getFakeProbability(), 0);
+            assertTrue(article.substring(worst.getStart(), worst.getEnd()).contains("conspiracy"));
+            assertTrue(article.startsWith(worst.getExcerpt(), worst.getStart()));
+            // One suspicious window among many calm ones leaves the document calm
+            assertTrue(scored.fakeProbability < 0.5);
+            assertEquals(scored.segmentCount, scorer.segments());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}